@@ -0,0 +1,47 @@
+package leelawatcher.goboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded games with {@link Board#doMove}, checking each move
+ * against the rules or, on a trusted board, not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardBenchmark {
+
+  @Param({"false", "true"})
+  public boolean trusted;
+
+  private GameRecord game;
+
+  @Setup
+  public void record() {
+    game = RecordedGames.play(1, 250);
+  }
+
+  @Benchmark
+  public Board replayGame() throws IllegalMoveException {
+    Board board = new Board();
+    board.setTrusted(trusted);
+    for (int i = 0; i < game.size(); i++) {
+      int mv = game.moveAt(i);
+      if (mv == GameRecord.PASS) {
+        board.doMove(Move.PASS, Move.PASS);
+      } else {
+        board.doMove(mv % 19, mv / 19);
+      }
+    }
+    return board;
+  }
+}
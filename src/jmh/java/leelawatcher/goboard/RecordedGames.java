@@ -0,0 +1,64 @@
+package leelawatcher.goboard;
+
+import java.util.Random;
+
+/**
+ * Reproducible games for the benchmarks to replay. They are random, but
+ * long and full of captures like real self play games, and the same seed
+ * always gives the same game.
+ */
+public final class RecordedGames {
+
+  private RecordedGames() {
+  }
+
+  /**
+   * Play a random game of legal moves.
+   *
+   * @param seed  which game
+   * @param moves how many moves to play, passes included
+   * @return The record of the game.
+   */
+  public static GameRecord play(long seed, int moves) {
+    Random random = new Random(seed);
+    Board board = new Board();
+    while (board.getMoveCount() < moves) {
+      int x = random.nextInt(19);
+      int y = random.nextInt(19);
+      try {
+        if (random.nextInt(100) == 0) {
+          board.doMove(Move.PASS, Move.PASS);
+        } else if (board.isLegalMove(x, y)) {
+          board.doMove(x, y);
+        }
+      } catch (IllegalMoveException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return GameRecord.of(board);
+  }
+
+  /**
+   * Write a game as autogtp would report it.
+   *
+   * @param seed the game's seed as autogtp prints it
+   * @param game the game
+   * @return One line per move, then the score line, each ending in a new
+   * line.
+   */
+  public static String[] autogtpLines(String seed, GameRecord game) {
+    String[] lines = new String[game.size() + 1];
+    for (int i = 0; i < game.size(); i++) {
+      int mv = game.moveAt(i);
+      String vertex = "pass";
+      if (mv != GameRecord.PASS) {
+        int x = mv % 19;
+        vertex = (char) ('A' + (x >= 8 ? x + 1 : x)) + Integer.toString(mv / 19 + 1);
+      }
+      String color = i % 2 == 0 ? "B" : "W";
+      lines[i] = seed + " " + (i + 1) + " (" + color + " " + vertex + ") 0." + (i % 97) + "\n";
+    }
+    lines[game.size()] = seed + " Score: W+7.5\n";
+    return lines;
+  }
+}
@@ -0,0 +1,41 @@
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.RecordedGames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paints a board late in a game at several window sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageMakerBenchmark {
+
+  @Param({"300", "600", "1200"})
+  public int pixels;
+
+  private ImageMaker maker;
+  private Position position;
+
+  @Setup
+  public void record() {
+    maker = new ImageMaker();
+    position = RecordedGames.play(1, 250).toBoard().getCurrPos();
+  }
+
+  @Benchmark
+  public BufferedImage paintBoard() {
+    return maker.paintBoard(pixels, 19, position);
+  }
+}
@@ -0,0 +1,44 @@
+package leelawatcher.parser;
+
+import leelawatcher.event.GameEventBus;
+import leelawatcher.goboard.RecordedGames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles lines of autogtp output one at a time, as the parser thread does,
+ * publishing to a bus with no subscribers so only parsing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutoGtpOutputParserBenchmark {
+
+  private String[] lines;
+  private int next;
+  private AutoGtpOutputParser parser;
+
+  @Setup
+  public void record() {
+    String[] game = RecordedGames.autogtpLines("5eed1234", RecordedGames.play(1, 250));
+    lines = new String[game.length + 1];
+    lines[0] = "Got new job: selfplay\n";
+    System.arraycopy(game, 0, lines, 1, game.length);
+    parser = new AutoGtpOutputParser(new GameEventBus());
+  }
+
+  @Benchmark
+  public void handleLine() {
+    parser.handleLine(lines[next]);
+    if (++next == lines.length) {
+      next = 0;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package leelawatcher.scorer;
+
+import leelawatcher.goboard.PlayoutBoard;
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.RecordedGames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays out a position from the middle of a game with random moves, one
+ * playout per operation, so the score is playouts per second per thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OwnershipBenchmark {
+
+  private final PlayoutBoard start = new PlayoutBoard(1);
+  private final PlayoutBoard board = new PlayoutBoard(2);
+  private final int[] ownership = new int[19 * 19];
+
+  @Setup
+  public void setUp() {
+    Position pos = RecordedGames.play(1, 150).toBoard().getCurrPos();
+    start.setUp(pos.getArrayBlack(), pos.getArrayWhite(), true);
+  }
+
+  @Benchmark
+  public int[] playout() {
+    board.copyFrom(start);
+    board.playOut(3 * 19 * 19);
+    board.addOwnership(ownership);
+    return ownership;
+  }
+}
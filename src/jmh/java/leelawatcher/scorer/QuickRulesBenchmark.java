@@ -0,0 +1,62 @@
+package leelawatcher.scorer;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.RecordedGames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks every point of a board late in a game, where the history the ko
+ * checks search is longest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuickRulesBenchmark {
+
+  private final QuickRules rules = new QuickRules();
+  private final PointOfPlay[] points = new PointOfPlay[19 * 19];
+  private Board board;
+  private Position position;
+
+  @Setup
+  public void record() {
+    board = RecordedGames.play(1, 250).toBoard();
+    position = board.getCurrPos();
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new PointOfPlay(i % 19, i / 19);
+    }
+  }
+
+  @Benchmark
+  public int isLegalMove() {
+    int legal = 0;
+    for (PointOfPlay p : points) {
+      if (rules.isLegalMove(p, board)) {
+        legal++;
+      }
+    }
+    return legal;
+  }
+
+  @Benchmark
+  public int isKo() {
+    int ko = 0;
+    for (PointOfPlay p : points) {
+      if (position.colorAt(p) == Move.EMPTY && rules.isKo(p, board)) {
+        ko++;
+      }
+    }
+    return ko;
+  }
+}
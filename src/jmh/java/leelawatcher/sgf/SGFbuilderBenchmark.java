@@ -0,0 +1,49 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.GameRecord;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.RecordedGames;
+import leelawatcher.goboard.WinRateSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a long game, with a win rate comment on every move, as SGF.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SGFbuilderBenchmark {
+
+  private Game game;
+  private WinRateSeries winRates;
+
+  @Setup
+  public void record() {
+    GameRecord record = RecordedGames.play(1, 400);
+    game = new Game("White", "Black", 0, 7.5f);
+    winRates = new WinRateSeries();
+    for (int i = 0; i < record.size(); i++) {
+      int mv = record.moveAt(i);
+      if (mv == GameRecord.PASS) {
+        game.play(Move.PASS, Move.PASS);
+      } else {
+        game.play(mv % 19, mv / 19);
+      }
+      winRates.add(0.5f + (i % 40) / 100f);
+    }
+  }
+
+  @Benchmark
+  public String buildSGF() {
+    return new SGFbuilder().buildSGF(game, winRates);
+  }
+}
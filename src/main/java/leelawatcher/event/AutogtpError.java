@@ -0,0 +1,56 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * autogtp reported an error. It abandons the games in progress when this
+ * happens, so sinks should forget them too. Only the games of the stream
+ * the error came from are abandoned, other streams watched at the same time
+ * carry on.
+ */
+public final class AutogtpError extends GameEvent {
+
+  private final String message;
+  private final int[] gameIds;
+
+  /**
+   * @param message    the error as autogtp printed it
+   * @param gameIds    the ids of the games it abandons
+   * @param backlogged see {@link GameEvent#isBacklogged()}
+   */
+  public AutogtpError(String message, int[] gameIds, boolean backlogged) {
+    super(backlogged);
+    this.message = message;
+    this.gameIds = gameIds.clone();
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @return The ids of the games in progress in the stream that failed.
+   */
+  public int[] getGameIds() {
+    return gameIds.clone();
+  }
+
+  @Override
+  void dispatchTo(GameEventSink sink) {
+    sink.autogtpError(this);
+  }
+}
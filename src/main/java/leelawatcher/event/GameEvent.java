@@ -0,0 +1,87 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * Something that happened in the output of autogtp. Events are immutable,
+ * so the same instance is handed to every {@link GameEventSink}.
+ */
+public abstract class GameEvent {
+
+  private final boolean backlogged;
+  private final long readNanos;
+
+  /**
+   * Create an event read just now.
+   *
+   * @param backlogged true if the producer is behind and more events are
+   *                   already waiting, see {@link #isBacklogged()}
+   */
+  protected GameEvent(boolean backlogged) {
+    this(backlogged, System.nanoTime());
+  }
+
+  /**
+   * @param backlogged true if the producer is behind and more events are
+   *                   already waiting, see {@link #isBacklogged()}
+   * @param readNanos  when the line it came from was read, see
+   *                   {@link #getReadNanos()}
+   */
+  protected GameEvent(boolean backlogged, long readNanos) {
+    this.backlogged = backlogged;
+    this.readNanos = readNanos;
+  }
+
+  /**
+   * Find out if this event was produced while catching up on a backlog.
+   * Sinks that only present state, rather than record it, may skip work
+   * such as repainting for such events, as long as they catch up on the
+   * next event that is not backlogged.
+   *
+   * @return True if more events were already queued behind this one.
+   */
+  public boolean isBacklogged() {
+    return backlogged;
+  }
+
+  /**
+   * Find out when the output this event came from was read from autogtp,
+   * so sinks can tell how far behind it they are.
+   *
+   * @return The time it was read, from {@link System#nanoTime()}.
+   */
+  public long getReadNanos() {
+    return readNanos;
+  }
+
+  /**
+   * Find out if publishing this event may wait for a sink that is behind.
+   *
+   * @return True unless waiting could deadlock the sinks, see
+   * {@link GameEventBus}.
+   */
+  boolean mayWait() {
+    return true;
+  }
+
+  /**
+   * Call the method of the sink meant for this type of event.
+   *
+   * @param sink the sink to notify
+   */
+  abstract void dispatchTo(GameEventSink sink);
+}
@@ -0,0 +1,255 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+import leelawatcher.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands every published {@link GameEvent} to every subscribed
+ * {@link GameEventSink}.
+ * <p>
+ * Each subscription has its own executor and its own queue, so a slow sink
+ * only delays itself until its queue is full. Unless an executor is given, a
+ * subscription gets a thread of its own.
+ * <p>
+ * The queues are bounded: publishing waits while any sink has
+ * {@link #getCapacity() capacity} events pending. Every event carries game
+ * state that a sink cannot do without, so none are dropped here. Instead
+ * the parser stalls, its queue of lines fills, and the reader applies the
+ * {@link leelawatcher.parser.OverflowPolicy overflow policy} to lines, where
+ * it is safe to drop or spill them. Several parsers may publish to one bus,
+ * so these are not single producer queues. A sink publishing from its own
+ * thread, and any {@link Message}, never waits, so sinks that report back
+ * on the bus cannot deadlock.
+ */
+public class GameEventBus {
+
+  /**
+   * How many events a sink may have pending unless asked otherwise.
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final int capacity;
+
+  /**
+   * Create a bus whose sinks may fall {@link #DEFAULT_CAPACITY} events behind.
+   */
+  public GameEventBus() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity how many events each sink may have pending before
+   *                 publishing waits for it
+   */
+  public GameEventBus(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * A sink's place on the bus.
+   */
+  public static final class Subscription {
+
+    private final String name;
+    private final GameEventSink sink;
+    private final Executor executor;
+    private final ExecutorService owned;
+    private final int capacity;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile int highWaterMark;
+    private volatile int waiting; // publishers waiting for room
+    private volatile Thread deliveredOn; // the thread that last called the sink
+
+    private Subscription(String name, GameEventSink sink, Executor executor, ExecutorService owned,
+                         int capacity) {
+      this.name = name;
+      this.sink = sink;
+      this.executor = executor;
+      this.owned = owned;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Wait until the sink has room for an event, unless the event or the
+     * calling thread is one that must not wait.
+     */
+    private void awaitRoomFor(GameEvent event) throws InterruptedException {
+      if (pending.get() >= capacity && event.mayWait() && Thread.currentThread() != deliveredOn) {
+        awaitRoom();
+      }
+    }
+
+    private void deliver(GameEvent event) {
+      int depth = pending.incrementAndGet();
+      if (depth > highWaterMark) {
+        highWaterMark = depth;
+      }
+      executor.execute(() -> {
+        deliveredOn = Thread.currentThread();
+        try {
+          event.dispatchTo(sink);
+        } catch (RuntimeException e) {
+          System.err.println("Sink " + name + " failed on " + event.getClass().getSimpleName());
+          e.printStackTrace();
+        } finally {
+          pending.decrementAndGet();
+          if (waiting > 0) {
+            synchronized (this) {
+              notifyAll();
+            }
+          }
+        }
+      });
+    }
+
+    private synchronized void awaitRoom() throws InterruptedException {
+      waiting++;
+      try {
+        while (pending.get() >= capacity) {
+          wait();
+        }
+      } finally {
+        waiting--;
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return how many events have been published to this sink but not yet
+     * handled by it.
+     */
+    public int backlog() {
+      return pending.get();
+    }
+
+    /**
+     * @return the largest backlog this sink has had.
+     */
+    public int highWaterMark() {
+      return highWaterMark;
+    }
+  }
+
+  /**
+   * Subscribe a sink on a thread of its own.
+   *
+   * @param name a name for the sink, used for its thread and in reports
+   * @param sink the sink
+   * @return The subscription, which can be passed to {@link #unsubscribe}.
+   */
+  public Subscription subscribe(String name, GameEventSink sink) {
+    ExecutorService own = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "sink-" + name);
+      t.setDaemon(true);
+      return t;
+    });
+    return add(new Subscription(name, sink, own, own, capacity));
+  }
+
+  /**
+   * Subscribe a sink that runs on a given executor. The executor must run
+   * tasks one at a time in order if the sink relies on event order.
+   *
+   * @param name     a name for the sink, used in reports
+   * @param sink     the sink
+   * @param executor where to call the sink
+   * @return The subscription, which can be passed to {@link #unsubscribe}.
+   */
+  public Subscription subscribe(String name, GameEventSink sink, Executor executor) {
+    return add(new Subscription(name, sink, executor, null, capacity));
+  }
+
+  private Subscription add(Subscription sub) {
+    subscriptions.add(sub);
+    String name = sub.getName();
+    Metrics.REGISTRY.gauge("leelawatcher_sink_" + name + "_backlog",
+        "Events published to the " + name + " sink and not yet handled by it.", sub::backlog);
+    Metrics.REGISTRY.gauge("leelawatcher_sink_" + name + "_max_backlog",
+        "The largest backlog the " + name + " sink has had.", sub::highWaterMark);
+    return sub;
+  }
+
+  /**
+   * Stop sending events to a sink. Events already queued for it are still
+   * delivered.
+   *
+   * @param subscription what {@link #subscribe} returned
+   */
+  public void unsubscribe(Subscription subscription) {
+    subscriptions.remove(subscription);
+    if (subscription.owned != null) {
+      subscription.owned.shutdown();
+    }
+  }
+
+  /**
+   * @return the current subscriptions, for reporting.
+   */
+  public List<Subscription> getSubscriptions() {
+    return subscriptions;
+  }
+
+  /**
+   * @return how many events each sink may have pending before publishing
+   * waits for it.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Send an event to every sink, waiting for room if a sink is
+   * {@link #getCapacity() full}.
+   * <p>
+   * If the publishing thread is interrupted while waiting, the event still
+   * goes to every sink, past their capacity, and the thread is left
+   * interrupted.
+   *
+   * @param event the event
+   */
+  public void publish(GameEvent event) {
+    boolean interrupted = false;
+    for (Subscription sub : subscriptions) {
+      if (!interrupted) {
+        try {
+          sub.awaitRoomFor(event);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      sub.deliver(event);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * Something that wants to know what autogtp is doing. Implement the methods
+ * for the events of interest; the rest do nothing.
+ * <p>
+ * A sink subscribed to a {@link GameEventBus} is called from one thread at a
+ * time, in the order the events were published, so it needs no locking of
+ * its own unless it shares state with other threads.
+ */
+public interface GameEventSink {
+
+  default void gameStarted(GameStarted event) {
+  }
+
+  default void movePlayed(MovePlayed event) {
+  }
+
+  default void gameScored(GameScored event) {
+  }
+
+  default void autogtpError(AutogtpError event) {
+  }
+
+  default void message(Message event) {
+  }
+}
@@ -0,0 +1,122 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.BoardPool;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.scorer.AreaScorer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sink that keeps a {@link Board} for each game in progress, for sinks
+ * that want whole games rather than single moves. Subclasses are told when
+ * a game is finished and get its board, which is reused for a later game
+ * once {@link #gameFinished} returns. The boards have the komi Leela Zero
+ * plays with, so saved games can be scored from the file alone.
+ * <p>
+ * Several of these sinks can {@link #share(GameRecordSink) share} the boards
+ * of one, so each move is played once no matter how many of them want the
+ * finished games. Only the sink that owns the boards is subscribed.
+ */
+public abstract class GameRecordSink implements GameEventSink {
+
+  private final GameRegistry<Board> games = new GameRegistry<>();
+  private final BoardPool pool = new BoardPool();
+  private final List<GameRecordSink> sharing = new ArrayList<>();
+
+  /**
+   * Called when a game has been scored. The board must not be kept, and
+   * any sink sharing it sees it after this one.
+   *
+   * @param board the game as played
+   * @param event the result autogtp reported
+   */
+  protected abstract void gameFinished(Board board, GameScored event);
+
+  /**
+   * Hand the finished games of this sink to another as well, instead of
+   * subscribing the other to play every move on boards of its own. Call
+   * before this sink is subscribed.
+   *
+   * @param other the sink to also finish games on, not itself subscribed
+   * @return This sink, for chaining.
+   */
+  public GameRecordSink share(GameRecordSink other) {
+    sharing.add(other);
+    return this;
+  }
+
+  @Override
+  public void gameStarted(GameStarted event) {
+    Board board = pool.acquire();
+    board.setTrusted(true);
+    board.setKomi(AreaScorer.LEELA_ZERO_KOMI);
+    games.put(event.getGameId(), board);
+  }
+
+  @Override
+  public void movePlayed(MovePlayed event) {
+    Board board = games.get(event.getGameId());
+    if (board == null) {
+      return; // we joined after the game started
+    }
+    PointOfPlay point = event.getPoint();
+    try {
+      if (point == null) {
+        board.doMove(Move.PASS, Move.PASS);
+      } else {
+        board.doMove(point.getX(), point.getY());
+      }
+    } catch (IllegalMoveException e) {
+      System.err.println("Dropping game " + event.getSeed() + ": " + e.getMessage());
+      pool.release(games.remove(event.getGameId()));
+      return;
+    }
+    board.setMoveNum(event.getMoveNum());
+    board.setWinRate(event.getWinRate());
+  }
+
+  @Override
+  public void gameScored(GameScored event) {
+    Board board = games.remove(event.getGameId());
+    if (board != null) {
+      try {
+        gameFinished(board, event);
+        for (GameRecordSink other : sharing) {
+          other.gameFinished(board, event);
+        }
+      } finally {
+        pool.release(board);
+      }
+    }
+  }
+
+  @Override
+  public void autogtpError(AutogtpError event) {
+    for (int gameId : event.getGameIds()) {
+      Board board = games.remove(gameId);
+      if (board != null) {
+        pool.release(board);
+      }
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The games in progress, keyed by the id the parser gave each one.
+ * <p>
+ * This is an open addressing table of primitive int keys, so looking up the
+ * game a move belongs to neither boxes the id nor hashes a String. Every
+ * method is synchronized, because games are added and played on by event
+ * threads while the user interface reads them.
+ *
+ * @param <V> what is kept for each game
+ */
+public class GameRegistry<V> {
+
+  private static final int FREE = -1;
+
+  private int[] keys;
+  private Object[] values;
+  private int size;
+
+  public GameRegistry() {
+    keys = new int[16];
+    Arrays.fill(keys, FREE);
+    values = new Object[16];
+  }
+
+  /**
+   * Add a game, replacing anything kept for it before.
+   *
+   * @param gameId the id, never negative
+   * @param value  what to keep, not null
+   */
+  public synchronized void put(int gameId, V value) {
+    if (gameId < 0) {
+      throw new IllegalArgumentException("negative game id: " + gameId);
+    }
+    int slot = find(gameId);
+    if (keys[slot] == FREE) {
+      if ((size + 1) * 2 > keys.length) {
+        grow();
+        slot = find(gameId);
+      }
+      keys[slot] = gameId;
+      size++;
+    }
+    values[slot] = value;
+  }
+
+  /**
+   * @return what is kept for a game, or null if it is not in progress.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized V get(int gameId) {
+    if (gameId < 0) {
+      return null;
+    }
+    return (V) values[find(gameId)];
+  }
+
+  /**
+   * Remove a game.
+   *
+   * @return what was kept for it, or null if it was not in progress.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized V remove(int gameId) {
+    if (gameId < 0) {
+      return null;
+    }
+    int slot = find(gameId);
+    if (keys[slot] == FREE) {
+      return null;
+    }
+    V old = (V) values[slot];
+    keys[slot] = FREE;
+    values[slot] = null;
+    size--;
+    // shift later members of the same run back so probing still finds them
+    int mask = keys.length - 1;
+    int hole = slot;
+    for (int i = (slot + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+      int home = hash(keys[i]) & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        keys[i] = FREE;
+        values[i] = null;
+        hole = i;
+      }
+    }
+    return old;
+  }
+
+  public synchronized boolean containsValue(V value) {
+    for (Object v : values) {
+      if (v != null && v.equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public synchronized void clear() {
+    Arrays.fill(keys, FREE);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Get everything kept, in the order the games were given their ids, which
+   * is the order they started.
+   *
+   * @return A snapshot that is safe to use from any thread.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized List<V> values() {
+    int[] ids = new int[size];
+    int n = 0;
+    for (int key : keys) {
+      if (key != FREE) {
+        ids[n++] = key;
+      }
+    }
+    Arrays.sort(ids);
+    List<V> result = new ArrayList<>(size);
+    for (int id : ids) {
+      result.add((V) values[find(id)]);
+    }
+    return result;
+  }
+
+  private int find(int gameId) {
+    int mask = keys.length - 1;
+    int i = hash(gameId) & mask;
+    while (keys[i] != FREE && keys[i] != gameId) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[oldKeys.length * 2];
+    Arrays.fill(keys, FREE);
+    values = new Object[oldValues.length * 2];
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != FREE) {
+        int slot = find(oldKeys[j]);
+        keys[slot] = oldKeys[j];
+        values[slot] = oldValues[j];
+      }
+    }
+  }
+
+  private static int hash(int gameId) {
+    int h = gameId * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
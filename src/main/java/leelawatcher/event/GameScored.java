@@ -0,0 +1,66 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * A game has finished and autogtp has reported its result.
+ */
+public final class GameScored extends GameEvent {
+
+  private final int gameId;
+  private final String seed;
+  private final String score;
+
+  /**
+   * @param gameId     the id the parser gave the game, for fast lookups, or
+   *                   -1 if it started before parsing did
+   * @param seed       the game that finished
+   * @param score      the result as autogtp printed it, for example "B+R"
+   * @param backlogged see {@link GameEvent#isBacklogged()}
+   */
+  public GameScored(int gameId, String seed, String score, boolean backlogged) {
+    this(gameId, seed, score, backlogged, System.nanoTime());
+  }
+
+  /**
+   * @param readNanos see {@link GameEvent#getReadNanos()}
+   * @see #GameScored(int, String, String, boolean)
+   */
+  public GameScored(int gameId, String seed, String score, boolean backlogged, long readNanos) {
+    super(backlogged, readNanos);
+    this.gameId = gameId;
+    this.seed = seed;
+    this.score = score;
+  }
+
+  public int getGameId() {
+    return gameId;
+  }
+
+  public String getSeed() {
+    return seed;
+  }
+
+  public String getScore() {
+    return score;
+  }
+
+  @Override
+  void dispatchTo(GameEventSink sink) {
+    sink.gameScored(this);
+  }
+}
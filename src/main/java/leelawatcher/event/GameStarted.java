@@ -0,0 +1,59 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * The first move of a new game has been reported. It is always followed by
+ * the {@link MovePlayed} event for that move.
+ */
+public final class GameStarted extends GameEvent {
+
+  private final int gameId;
+  private final String seed;
+  private final String gameType;
+
+  /**
+   * @param gameId     the id the parser gave the game, for fast lookups
+   * @param seed       the identifier autogtp gives the game
+   * @param gameType   the kind of job, as autogtp names it ("selfplay" or
+   *                   "match"), or null if no job was announced
+   * @param backlogged see {@link GameEvent#isBacklogged()}
+   */
+  public GameStarted(int gameId, String seed, String gameType, boolean backlogged) {
+    super(backlogged);
+    this.gameId = gameId;
+    this.seed = seed;
+    this.gameType = gameType;
+  }
+
+  public int getGameId() {
+    return gameId;
+  }
+
+  public String getSeed() {
+    return seed;
+  }
+
+  public String getGameType() {
+    return gameType;
+  }
+
+  @Override
+  void dispatchTo(GameEventSink sink) {
+    sink.gameStarted(this);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+/**
+ * Something to tell whoever is watching, such as an illegal move or the
+ * result of a lookup. Unlike the other events it does not come from
+ * autogtp, the watcher publishes it so that every message reaches the
+ * output the same way.
+ */
+public final class Message extends GameEvent {
+
+  private final String text;
+
+  /**
+   * @param text what to say, one or more lines
+   */
+  public Message(String text) {
+    super(false);
+    this.text = text;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  boolean mayWait() {
+    return false; // published by sinks, which may be what it would wait for
+  }
+
+  @Override
+  void dispatchTo(GameEventSink sink) {
+    sink.message(this);
+  }
+}
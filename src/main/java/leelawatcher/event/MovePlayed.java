@@ -0,0 +1,87 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.event;
+
+import leelawatcher.goboard.PointOfPlay;
+
+/**
+ * A move was played in one of the games in progress.
+ */
+public final class MovePlayed extends GameEvent {
+
+  private final int gameId;
+  private final String seed;
+  private final int moveNum;
+  private final PointOfPlay point;
+  private final float winRate;
+
+  /**
+   * @param gameId     the id the parser gave the game, for fast lookups
+   * @param seed       the game the move was played in
+   * @param moveNum    the number autogtp gave the move, starting from 1
+   * @param point      where the stone was placed, or null for a pass or
+   *                   resignation
+   * @param winRate    the win rate autogtp reported with the move
+   * @param backlogged see {@link GameEvent#isBacklogged()}
+   */
+  public MovePlayed(int gameId, String seed, int moveNum, PointOfPlay point, float winRate, boolean backlogged) {
+    this(gameId, seed, moveNum, point, winRate, backlogged, System.nanoTime());
+  }
+
+  /**
+   * @param readNanos see {@link GameEvent#getReadNanos()}
+   * @see #MovePlayed(int, String, int, PointOfPlay, float, boolean)
+   */
+  public MovePlayed(int gameId, String seed, int moveNum, PointOfPlay point, float winRate, boolean backlogged,
+                    long readNanos) {
+    super(backlogged, readNanos);
+    this.gameId = gameId;
+    this.seed = seed;
+    this.moveNum = moveNum;
+    this.point = point;
+    this.winRate = winRate;
+  }
+
+  public int getGameId() {
+    return gameId;
+  }
+
+  public String getSeed() {
+    return seed;
+  }
+
+  public int getMoveNum() {
+    return moveNum;
+  }
+
+  /**
+   * @return where the stone was placed, or null if the player passed or
+   * resigned.
+   */
+  public PointOfPlay getPoint() {
+    return point;
+  }
+
+  public float getWinRate() {
+    return winRate;
+  }
+
+  @Override
+  void dispatchTo(GameEventSink sink) {
+    sink.movePlayed(this);
+  }
+}
@@ -0,0 +1,237 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.event;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.BoardPool;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks the moves that {@link Board#setTrusted(boolean) trusted} boards
+ * apply without checking.
+ * <p>
+ * Subscribed to a {@link GameEventBus} this runs on its own thread, so the
+ * cost of the full rules is kept off the path that updates the display. It
+ * works in one of two ways. Sampling keeps a trusted board for each game
+ * and, for a random fraction of moves, asks the rules if the move is legal
+ * before playing it. Whole game checking only remembers the moves and, when
+ * a game is scored, replays it on a board that enforces the rules and on a
+ * trusted one side by side, so both illegal input and any difference in how
+ * the two apply moves are found.
+ */
+public class MoveVerifier implements GameEventSink {
+
+  /**
+   * Told about each discrepancy found.
+   */
+  public interface Report {
+    void lam(String discrepancy);
+  }
+
+  private static final class Tracked {
+    final String seed;
+    final Board board;  // only when sampling
+    int[] moves;        // only when checking whole games, x << 16 | y
+    int size;
+
+    Tracked(String seed, Board board) {
+      this.seed = seed;
+      this.board = board;
+      this.moves = board == null ? new int[256] : null;
+    }
+  }
+
+  private final GameRegistry<Tracked> games = new GameRegistry<>();
+  private final BoardPool pool = new BoardPool();
+  private final double sampleRate;
+  private final boolean wholeGames;
+  private final Report report;
+  private volatile long checked;
+  private volatile long discrepancies;
+
+  private MoveVerifier(double sampleRate, boolean wholeGames, Report report) {
+    this.sampleRate = sampleRate;
+    this.wholeGames = wholeGames;
+    this.report = report;
+  }
+
+  /**
+   * Check a random sample of moves as they are played.
+   *
+   * @param sampleRate the fraction of moves to check, from 0 to 1
+   * @param report     told about illegal moves
+   * @return The verifier.
+   */
+  public static MoveVerifier sampling(double sampleRate, Report report) {
+    if (!(sampleRate >= 0 && sampleRate <= 1)) {
+      throw new IllegalArgumentException("sample rate must be between 0 and 1: " + sampleRate);
+    }
+    return new MoveVerifier(sampleRate, false, report);
+  }
+
+  /**
+   * Check every move of each game once it has been scored.
+   *
+   * @param report told about illegal moves and positions that differ
+   * @return The verifier.
+   */
+  public static MoveVerifier wholeGames(Report report) {
+    return new MoveVerifier(1, true, report);
+  }
+
+  /**
+   * Create a verifier from a command line setting.
+   *
+   * @param setting "games" to check whole games, otherwise the fraction of
+   *                moves to sample
+   * @param report  told about discrepancies
+   * @return The verifier.
+   */
+  public static MoveVerifier parse(String setting, Report report) {
+    if ("games".equalsIgnoreCase(setting)) {
+      return wholeGames(report);
+    }
+    return sampling(Double.parseDouble(setting), report);
+  }
+
+  @Override
+  public void gameStarted(GameStarted event) {
+    Board board = null;
+    if (!wholeGames) {
+      board = pool.acquire();
+      board.setTrusted(true);
+    }
+    games.put(event.getGameId(), new Tracked(event.getSeed(), board));
+  }
+
+  @Override
+  public void movePlayed(MovePlayed event) {
+    Tracked game = games.get(event.getGameId());
+    if (game == null) {
+      return;
+    }
+    PointOfPlay point = event.getPoint();
+    int x = point == null ? Move.PASS : point.getX();
+    int y = point == null ? Move.PASS : point.getY();
+    if (wholeGames) {
+      if (game.size == game.moves.length) {
+        game.moves = Arrays.copyOf(game.moves, game.size * 2);
+      }
+      game.moves[game.size++] = x << 16 | y;
+      return;
+    }
+    if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+      checked++;
+      if (!game.board.isLegalMove(x, y)) {
+        discrepancy(game, event.getMoveNum(), x, y, "is illegal");
+        pool.release(games.remove(event.getGameId()).board);
+        return;
+      }
+    }
+    try {
+      game.board.doMove(x, y);
+    } catch (IllegalMoveException e) {
+      throw new IllegalStateException("trusted board checked a move", e);
+    }
+  }
+
+  @Override
+  public void gameScored(GameScored event) {
+    Tracked game = games.remove(event.getGameId());
+    if (game == null) {
+      return;
+    }
+    if (wholeGames) {
+      replay(game);
+    } else {
+      pool.release(game.board);
+    }
+  }
+
+  @Override
+  public void autogtpError(AutogtpError event) {
+    for (int gameId : event.getGameIds()) {
+      Tracked game = games.remove(gameId);
+      if (game != null && game.board != null) {
+        pool.release(game.board);
+      }
+    }
+  }
+
+  private void replay(Tracked game) {
+    Board strict = pool.acquire();
+    strict.setTrusted(false);
+    Board trusted = pool.acquire();
+    trusted.setTrusted(true);
+    try {
+      replay(game, strict, trusted);
+    } finally {
+      pool.release(strict);
+      pool.release(trusted);
+    }
+  }
+
+  private void replay(Tracked game, Board strict, Board trusted) {
+    for (int i = 0; i < game.size; i++) {
+      int x = game.moves[i] >> 16;
+      int y = game.moves[i] & 0xffff;
+      checked++;
+      try {
+        strict.doMove(x, y);
+        trusted.doMove(x, y);
+      } catch (IllegalMoveException e) {
+        discrepancy(game, i + 1, x, y, "is illegal");
+        return;
+      }
+      if (!strict.getCurrPos().equals(trusted.getCurrPos())) {
+        discrepancy(game, i + 1, x, y, "was applied differently when trusted");
+        return;
+      }
+    }
+  }
+
+  private void discrepancy(Tracked game, int moveNum, int x, int y, String problem) {
+    discrepancies++;
+    String where = x == Move.PASS ? "pass" : x + "," + y;
+    report.lam("Game " + game.seed + " move " + moveNum + " (" + where + ") " + problem);
+  }
+
+  /**
+   * @return false if this verifier would never check anything.
+   */
+  public boolean isActive() {
+    return wholeGames || sampleRate > 0;
+  }
+
+  /**
+   * @return how many moves have been checked against the rules.
+   */
+  public long getChecked() {
+    return checked;
+  }
+
+  /**
+   * @return how many problems have been reported.
+   */
+  public long getDiscrepancies() {
+    return discrepancies;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.event;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.scorer.AreaScorer;
+
+/**
+ * Scores each finished game by Tromp-Taylor area rules and reports any
+ * whose result disagrees with the one autogtp printed. Games that ended by
+ * resignation are not counted and so can't be checked.
+ * <p>
+ * Subscribed to a {@link GameEventBus} this runs on its own thread, off the
+ * parser and the display.
+ */
+public class ScoreVerifier extends GameRecordSink {
+
+  private final AreaScorer scorer = new AreaScorer();
+  private final float komi;
+  private final MoveVerifier.Report report;
+  private volatile long checked;
+  private volatile long resigned;
+  private volatile long disagreements;
+
+  /**
+   * @param komi   the komi the games are played with, see
+   *               {@link AreaScorer#LEELA_ZERO_KOMI}
+   * @param report told about each game scored differently
+   */
+  public ScoreVerifier(float komi, MoveVerifier.Report report) {
+    this.komi = komi;
+    this.report = report;
+  }
+
+  @Override
+  protected void gameFinished(Board board, GameScored event) {
+    String seed = event.getSeed();
+    String score = event.getScore();
+    float reported = AreaScorer.margin(score);
+    if (Float.isNaN(reported)) {
+      resigned++;
+      return;
+    }
+    checked++;
+    float margin = scorer.score(board.getCurrPos(), komi);
+    if (margin != reported) {
+      disagreements++;
+      report.lam("Game " + seed + " reported " + score + " but scores " + AreaScorer.result(margin)
+          + " (black " + scorer.getBlackArea() + ", white " + scorer.getWhiteArea() + ", komi " + komi + ")");
+    }
+  }
+
+  /**
+   * @return how many counted games have been scored.
+   */
+  public long getChecked() {
+    return checked;
+  }
+
+  /**
+   * @return how many games ended without being counted.
+   */
+  public long getResigned() {
+    return resigned;
+  }
+
+  /**
+   * @return how many games scored differently than autogtp said.
+   */
+  public long getDisagreements() {
+    return disagreements;
+  }
+}
@@ -0,0 +1,250 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.goboard;
+
+/**
+ * Operations on boards stored the way {@link Position} stores them: one
+ * <code>int</code> per row, with bit <code>x</code> of
+ * <code>rows[y]</code> set when the point x,y is occupied.
+ * <p>
+ * None of these methods allocate, callers supply any arrays needed for
+ * results so they can be reused across calls.
+ */
+public final class Bitboard {
+
+  /**
+   * The number of lines on the board.
+   */
+  public static final int SIZE = 19;
+
+  /**
+   * The bits of a row that are on the board.
+   */
+  public static final int ROW_MASK = (1 << SIZE) - 1;
+
+  private Bitboard() {
+  }
+
+  /**
+   * Find the group of stones connected to a point.
+   *
+   * @param stones the stones of one color
+   * @param x      horizontal coordinate of a member of the group
+   * @param y      vertical coordinate of a member of the group
+   * @param group  receives the group, must have {@link #SIZE} rows
+   * @return The number of stones in the group, 0 if there is no stone at x,y.
+   */
+  public static int floodFill(int[] stones, int x, int y, int[] group) {
+    for (int r = 0; r < SIZE; r++) {
+      group[r] = 0;
+    }
+    int seed = 1 << x;
+    if ((stones[y] & seed) == 0) {
+      return 0;
+    }
+    group[y] = seed;
+    int lo = y;
+    int hi = y;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int r = Math.max(0, lo - 1); r <= Math.min(SIZE - 1, hi + 1); r++) {
+        int g = group[r];
+        int grown = g | (g << 1) | (g >>> 1);
+        if (r > 0) {
+          grown |= group[r - 1];
+        }
+        if (r < SIZE - 1) {
+          grown |= group[r + 1];
+        }
+        grown &= stones[r];
+        if (grown != g) {
+          group[r] = grown;
+          changed = true;
+          lo = Math.min(lo, r);
+          hi = Math.max(hi, r);
+        }
+      }
+    }
+    int count = 0;
+    for (int r = lo; r <= hi; r++) {
+      count += Integer.bitCount(group[r]);
+    }
+    return count;
+  }
+
+  /**
+   * Find the points that can be reached from a set of points by stepping
+   * only through another set, as when working out which empty points are
+   * surrounded by one color.
+   *
+   * @param from    where to start, not included in the result unless also
+   *                in <code>through</code>
+   * @param through the points that may be stepped through
+   * @param reached receives the points of <code>through</code> that
+   *                connect to <code>from</code>
+   * @return The number of points reached.
+   */
+  public static int spread(int[] from, int[] through, int[] reached) {
+    for (int r = 0; r < SIZE; r++) {
+      int f = from[r];
+      int around = f | (f << 1) | (f >>> 1);
+      if (r > 0) {
+        around |= from[r - 1];
+      }
+      if (r < SIZE - 1) {
+        around |= from[r + 1];
+      }
+      reached[r] = around & through[r] & ROW_MASK;
+    }
+    // sweep down then up until nothing changes, most regions settle in a
+    // sweep or two
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int r = 0; r < SIZE; r++) {
+        changed |= grow(reached, through, r);
+      }
+      for (int r = SIZE - 1; r >= 0; r--) {
+        changed |= grow(reached, through, r);
+      }
+    }
+    int count = 0;
+    for (int r = 0; r < SIZE; r++) {
+      count += Integer.bitCount(reached[r]);
+    }
+    return count;
+  }
+
+  private static boolean grow(int[] reached, int[] through, int r) {
+    int g = reached[r];
+    int grown = g;
+    if (r > 0) {
+      grown |= reached[r - 1];
+    }
+    if (r < SIZE - 1) {
+      grown |= reached[r + 1];
+    }
+    grown &= through[r];
+    // fill along the row as far as the row allows
+    int prev;
+    do {
+      prev = grown;
+      grown |= ((grown << 1) | (grown >>> 1)) & through[r];
+    } while (grown != prev);
+    if (grown == g) {
+      return false;
+    }
+    reached[r] = grown;
+    return true;
+  }
+
+  /**
+   * Test if any point next to a group is empty.
+   *
+   * @param group the group, as filled in by {@link #floodFill}
+   * @param black the black stones
+   * @param white the white stones
+   * @return True if the group has at least one liberty.
+   */
+  public static boolean hasLiberty(int[] group, int[] black, int[] white) {
+    for (int r = 0; r < SIZE; r++) {
+      int g = group[r];
+      int around = (g << 1) | (g >>> 1);
+      if (r > 0) {
+        around |= group[r - 1];
+      }
+      if (r < SIZE - 1) {
+        around |= group[r + 1];
+      }
+      if ((around & ROW_MASK & ~(black[r] | white[r])) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Count the empty points next to a group.
+   *
+   * @param group the group, as filled in by {@link #floodFill}
+   * @param black the black stones
+   * @param white the white stones
+   * @return The number of distinct liberties of the group.
+   */
+  public static int countLiberties(int[] group, int[] black, int[] white) {
+    int libs = 0;
+    for (int r = 0; r < SIZE; r++) {
+      int g = group[r];
+      int around = (g << 1) | (g >>> 1);
+      if (r > 0) {
+        around |= group[r - 1];
+      }
+      if (r < SIZE - 1) {
+        around |= group[r + 1];
+      }
+      libs += Integer.bitCount(around & ROW_MASK & ~(black[r] | white[r]));
+    }
+    return libs;
+  }
+
+  /**
+   * Remove the stones of a group from a set of stones.
+   *
+   * @param stones the stones to modify
+   * @param group  the stones to remove
+   */
+  public static void remove(int[] stones, int[] group) {
+    for (int r = 0; r < SIZE; r++) {
+      stones[r] &= ~group[r];
+    }
+  }
+
+  /**
+   * Place a stone and capture any adjacent opposing groups left without
+   * liberties. No legality checks are made, this is meant for replaying
+   * moves already known to be legal.
+   *
+   * @param own     the stones of the player moving, modified
+   * @param other   the opponent's stones, modified
+   * @param x       horizontal coordinate of the new stone
+   * @param y       vertical coordinate of the new stone
+   * @param scratch a work array of {@link #SIZE} rows
+   * @return The number of stones captured.
+   */
+  public static int play(int[] own, int[] other, int x, int y, int[] scratch) {
+    own[y] |= 1 << x;
+    int captured = 0;
+    captured += captureAt(own, other, x, y + 1, scratch);
+    captured += captureAt(own, other, x + 1, y, scratch);
+    captured += captureAt(own, other, x, y - 1, scratch);
+    captured += captureAt(own, other, x - 1, y, scratch);
+    return captured;
+  }
+
+  private static int captureAt(int[] own, int[] other, int x, int y, int[] scratch) {
+    if (x < 0 || y < 0 || x >= SIZE || y >= SIZE || (other[y] & (1 << x)) == 0) {
+      return 0;
+    }
+    int n = floodFill(other, x, y, scratch);
+    if (hasLiberty(scratch, own, other)) {
+      return 0;
+    }
+    remove(other, scratch);
+    return n;
+  }
+}
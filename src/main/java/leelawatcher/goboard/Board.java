@@ -16,9 +16,12 @@
 
 package leelawatcher.goboard;
 
+import leelawatcher.jfr.Jfr;
+import leelawatcher.jfr.SgfWriteEvent;
 import leelawatcher.scorer.AbstractRules;
 import leelawatcher.scorer.QuickRules;
 import leelawatcher.scorer.Rules;
+import leelawatcher.sgf.SGFbuilder;
 
 import java.io.*;
 import java.util.*;
@@ -41,13 +44,18 @@ import java.util.*;
 public class Board {
 
   private Game gm;
-  private List<Position> positions;
-  private int currPos;
+  private volatile Position current;
+  private final List<KeyframeIndex> earlier = new ArrayList<>(); // before each set up
   private Rules ruleImp;
   private int whiteHasCap; // number of opponents stones white has captured.
   private int blackHasCap;
   private int moveNum;
-  private float winRate;
+  private WinRateSeries winRates = new WinRateSeries();
+  private volatile KeyframeIndex keyframes;
+  private volatile int version; // bumped whenever the displayed position changes
+  private boolean trusted;
+  private final int[] scratch = new int[Bitboard.SIZE];
+  private final MoveResult moveResult = new MoveResult();
 
   /**
    * Create a new default board object. Default player names are "White" and
@@ -60,9 +68,8 @@ public class Board {
 
   public Board() {
     gm = new Game("White", "Black", 0, 5.5f); // for the moment stick in a
-    positions = new ArrayList<>();              // default game.
-    positions.add(new Position());
-    currPos = 0;
+    current = new Position();                   // default game.
+    keyframes = new KeyframeIndex(current, KeyframeIndex.DEFAULT_INTERVAL);
     ruleImp = new QuickRules();
     whiteHasCap = 0;
     blackHasCap = 0;
@@ -80,11 +87,44 @@ public class Board {
   public void newGame(String nameWhite, String nameBlack,
                       int handi, float komi) {
     gm = new Game(nameWhite, nameBlack, handi, komi);
-    positions = new ArrayList<>();              // default game.
-    positions.add(new Position());
-    currPos = 0;
+    current = new Position();
+    earlier.clear();
+    keyframes = new KeyframeIndex(current, KeyframeIndex.DEFAULT_INTERVAL);
     whiteHasCap = 0;
     blackHasCap = 0;
+    winRates = new WinRateSeries();
+    version++;
+  }
+
+  /**
+   * Clear this board for another game with the same defaults as a newly
+   * created board, for reuse by a {@link BoardPool}.
+   * <p>
+   * Unlike {@link #newGame} this keeps everything already allocated that
+   * can be emptied: the keyframe index, the win rate series and the root
+   * of the game tree. Whether the board is
+   * {@link #setTrusted(boolean) trusted} is not changed.
+   */
+  public void reset() {
+    gm.reset("White", "Black", 0, 5.5f);
+    current = new Position();
+    earlier.clear();
+    keyframes.reset(current);
+    whiteHasCap = 0;
+    blackHasCap = 0;
+    moveNum = 0;
+    winRates.clear();
+    version++;
+  }
+
+  /**
+   * Set the komi of the current game, for example once a board from a
+   * {@link BoardPool} is known to be for a game with other than the default.
+   *
+   * @param komi The compensation points black has given to white.
+   */
+  public void setKomi(float komi) {
+    gm.setKomi(komi);
   }
 
   /**
@@ -111,17 +151,53 @@ public class Board {
    * Get an <code>Iterator</code> for looping through the list of
    * {@link Position position}s in this variation up to this move.
    * <p>
-   * The <code>Board</code> object only stores a list of the positions from
-   * the start of the game through the currently displayed position.
-   * Positions from other variations, or later in the game are not stored
-   * anywhere in the program at this point.
+   * The <code>Board</code> object only stores the moves from the start of
+   * the game through the currently displayed position, with a keyframe now
+   * and then, and the positions are recreated from those as the iterator
+   * goes. Positions from other variations, or later in the game are not
+   * stored anywhere in the program at this point.
    *
    * @return An iterator for positions played so far in this
    * variation.
    */
 
   public Iterator getPosIter() {
-    return positions.iterator();
+    if (earlier.isEmpty()) {
+      return keyframes.iterator();
+    }
+    List<Position> all = new ArrayList<>();
+    for (KeyframeIndex index : earlier) {
+      index.iterator().forEachRemaining(all::add);
+    }
+    keyframes.iterator().forEachRemaining(all::add);
+    return all.iterator();
+  }
+
+  /**
+   * Find out whether an analysed move would repeat a position from earlier
+   * in this variation. Unlike going through {@link #getPosIter()} this only
+   * recreates the positions that might match.
+   *
+   * @param result the analysis of a move on the current position
+   * @return True if the stones after the move, with the other player to
+   * move, were seen before.
+   */
+  public boolean repeatsEarlier(MoveResult result) {
+    for (KeyframeIndex index : earlier) {
+      if (index.contains(result)) {
+        return true;
+      }
+    }
+    return keyframes.contains(result);
+  }
+
+  /**
+   * Get the game being played on this board.
+   *
+   * @return The game tree behind this board.
+   */
+  Game getGame() {
+    return gm;
   }
 
   /**
@@ -159,12 +235,41 @@ public class Board {
   }
 
 
+  /**
+   * Get the most recently reported win rate.
+   *
+   * @return The win rate after the last move, or 0 if none was reported.
+   */
   public float getWinRate() {
-    return winRate;
+    return winRates.last();
   }
 
+  /**
+   * Record the win rate reported after the latest move. Each call appends
+   * to the {@link #getWinRates() series} for this game.
+   *
+   * @param winRate The win rate reported for the move just played.
+   */
   public void setWinRate(float winRate) {
-    this.winRate = winRate;
+    winRates.add(winRate);
+  }
+
+  /**
+   * Get every win rate reported during this game so far, one per move.
+   *
+   * @return The live series, which grows as moves are played.
+   */
+  public WinRateSeries getWinRates() {
+    return winRates;
+  }
+
+  /**
+   * Replace the win rate history, for example when rebuilding a game.
+   *
+   * @param winRates The series to use from now on.
+   */
+  public void setWinRates(WinRateSeries winRates) {
+    this.winRates = winRates;
   }
 
   /**
@@ -197,6 +302,84 @@ public class Board {
     return gm.isGameOver();
   }
 
+  /**
+   * Get a counter that changes every time the current position changes.
+   * <p>
+   * Views that cache a rendering of this board can compare the value they
+   * rendered against the current value to decide if a redraw is needed,
+   * without comparing positions.
+   *
+   * @return The modification count of this board.
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Find out if moves are applied without checking that they are legal.
+   *
+   * @return True if this board trusts its input.
+   * @see #setTrusted(boolean)
+   */
+  public boolean isTrusted() {
+    return trusted;
+  }
+
+  /**
+   * Apply moves without checking them against the rules.
+   * <p>
+   * Checking legality costs several times more than playing the move, and
+   * a source like autogtp only ever reports legal moves. A trusted board
+   * places the stone and removes captured groups directly on the position's
+   * bitboards. An illegal move is not detected and leaves the board in a
+   * position the rules would not allow, so input that may be wrong should
+   * be checked some other way, for example by a
+   * {@link leelawatcher.event.MoveVerifier}.
+   *
+   * @param trusted True to skip legality checks from now on.
+   */
+  public void setTrusted(boolean trusted) {
+    this.trusted = trusted;
+  }
+
+  /**
+   * Test a move against the rules without playing it.
+   *
+   * @param x The horizontal coordinate, or <code>Move.PASS</code>
+   * @param y The vertical coordinate, or <code>Move.PASS</code>
+   * @return True if the player to move may play there.
+   */
+  public boolean isLegalMove(int x, int y) {
+    return ruleImp.isLegalMove(new PointOfPlay(x, y), this);
+  }
+
+  /**
+   * Find out how many moves can be looked at with
+   * {@link #getPositionAt(int)}.
+   *
+   * @return The number of moves played since the start of the game, or since
+   * the last set up position.
+   */
+  public int getMoveCount() {
+    return keyframes.size();
+  }
+
+  /**
+   * Get the position after an earlier move of this game.
+   * <p>
+   * The position is rebuilt from the nearest {@link KeyframeIndex keyframe},
+   * so this costs at most a few move applications no matter how long the
+   * game is. Like {@link #getCurrPos()} the result is a copy.
+   *
+   * @param moveCount how many moves into the game, 0 for the start
+   * @return The position after that many moves.
+   * @throws IndexOutOfBoundsException if moveCount is not between 0 and
+   *                                   {@link #getMoveCount()}
+   */
+  public Position getPositionAt(int moveCount) {
+    return keyframes.positionAt(moveCount);
+  }
+
   public void setMoveNum(int moveNum) {
     this.moveNum = moveNum;
   }
@@ -220,12 +403,19 @@ public class Board {
     } catch (IOException ioe) {
       throw new RuntimeException(ioe);
     }
+    SgfWriteEvent event = Jfr.isRecording() ? new SgfWriteEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
     try (PrintWriter writeSGF = new PrintWriter(new BufferedWriter(new FileWriter(gmfile)))) {
-      writeSGF.print(gm.toString());
+      writeSGF.print(new SGFbuilder().buildSGF(gm, winRates));
       writeSGF.flush();
     } catch (IOException e) {
       System.out.println("Couldn't save game:" + e);
     }
+    if (event != null) {
+      event.finish(filName, getMoveCount());
+    }
   }
 
   /**
@@ -237,13 +427,29 @@ public class Board {
    */
   @SuppressWarnings("unused")
   public void undoMove() {
-    if (currPos > 0) {
+    if (keyframes.size() > 0 || !earlier.isEmpty()) {
       gm.undoMove();
-      positions.remove(currPos);
-      currPos--;
+      if (keyframes.size() > 0) {
+        keyframes.truncate(keyframes.size() - 1);
+      } else {
+        // took back a set up, go back to the moves before it
+        keyframes = earlier.remove(earlier.size() - 1);
+      }
+      current = keyframes.positionAt(keyframes.size());
+      version++;
     }
   }
 
+  /**
+   * Record how the game ended.
+   *
+   * @param result the result as written in SGF files, for example "W+R" or
+   *               "B+3.5"
+   */
+  public void setResult(String result) {
+    gm.setGameResult(result);
+  }
+
   /**
    * Resign the game.
    * <p>
@@ -262,70 +468,73 @@ public class Board {
   /**
    * Play a stone at the specified coordinate.
    * <p>
-   * If the move is legal (determined by <code>ruleImp.isLegalMove</code>),
-   * then a stone is placed at the specified coordinates and the liberties
-   * of the neighboring stones of opposing color are counted. Any opposing
-   * groups with zero liberties are captured, and whiteHasCap or
-   * blackHasCap is incremented appropriately.
+   * The move is analysed once by <code>ruleImp.evaluate</code>, which
+   * decides if it is legal and finds the opposing groups left with no
+   * liberties. If it is legal the resulting stones are taken straight from
+   * that {@link MoveResult analysis}, and whiteHasCap or blackHasCap is
+   * incremented by the number of stones captured.
    *
    * @param x The horizontal coordinate at which to place the stone.
    * @param y The vertical coordinate at which to place the stone.
+   * @see #setTrusted(boolean)
    */
 
   public void doMove(int x, int y) throws IllegalMoveException {
-    PointOfPlay proposedMove = new PointOfPlay(x, y);
-    boolean legalMove = ruleImp.isLegalMove(proposedMove, this);
-    if (!legalMove) {
-      throw new IllegalMoveException(proposedMove, positions.get(currPos));
+    if (trusted) {
+      doTrustedMove(x, y);
+      return;
+    }
+    if (!ruleImp.evaluate(x, y, this, moveResult)) {
+      throw new IllegalMoveException(new PointOfPlay(x, y), current);
     }
     if (!gm.isGameOver()) {
       boolean wmove = isWhiteMove();
-      PointOfPlay dir;
-      positions.add(new Position(positions.get(currPos++),
-          gm.doMove(x, y)));
-      Position temp = positions.get(currPos);
-
-      dir = new PointOfPlay(x, y + 1);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x + 1, y);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x, y - 1);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x - 1, y);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-
-      // check self-capture.
-      if (ruleImp.isSelfCaptureAllowed()) {
-        if (countLiberties(proposedMove) == 0) {
-          captureGroup(dir);
+      Position prev = current;
+      char color = gm.play(x, y);
+      if (color == 0) {
+        current = new Position(prev, gm.getCurrMove());
+      } else if (x == Move.PASS) {
+        current = new Position(prev, x, y, color == Move.MOVE_BLACK, scratch);
+      } else {
+        current = new Position(prev, x, y, color == Move.MOVE_BLACK, moveResult);
+        if (wmove) {
+          whiteHasCap += moveResult.getCapturedCount();
+        } else {
+          blackHasCap += moveResult.getCapturedCount();
         }
       }
+      keyframes.record(x, y, !wmove, current);
+      version++;
     } else {
       System.err.println("Warning: move after end of game ignored");
     }
   }
 
+  private void doTrustedMove(int x, int y) {
+    if (gm.isGameOver()) {
+      System.err.println("Warning: move after end of game ignored");
+      return;
+    }
+    boolean black = !isWhiteMove();
+    gm.play(x, y);
+    Position prev = current;
+    Position next = new Position(prev, x, y, black, scratch);
+    current = next;
+    int captured = prev.countStones(!black) - next.countStones(!black);
+    if (black) {
+      blackHasCap += captured;
+    } else {
+      whiteHasCap += captured;
+    }
+    keyframes.record(x, y, black, next);
+    version++;
+  }
+
   /**
    * Get a <em>copy</em> of the current position.
    * <p>
    * The object returned is a clone of the object pointed to by
-   * <code>currPos</code>, and therefore modifications to it will
+   * <code>current</code>, and therefore modifications to it will
    * not be reflected on the board.
    *
    * @return A clone of the current {@link Position position}
@@ -334,11 +543,11 @@ public class Board {
   public Position getCurrPos() // send out a copy of the current position
   {                            // (we wouldn't want it modified directly!)
 
-    Position temp = new Position();  // just to keep the compiler happy
+    Position temp = null;            // just to keep the compiler happy
 
-    try                              // now throw it away...
+    try
     {
-      temp = (Position) positions.get(currPos).clone();
+      temp = (Position) current.clone();
     } catch (CloneNotSupportedException e) {
       e.printStackTrace();
       System.exit(0);                 // don't even try to recover from this!
@@ -370,7 +579,7 @@ public class Board {
    * @param p The point on which the stone lies.
    */
   private void captureStone(PointOfPlay p) {
-    Position tmp = positions.get(currPos);
+    Position tmp = current;
     if (tmp.stoneAt(p)) {
       if (tmp.blackAt(p)) {
         ++whiteHasCap;
@@ -465,14 +674,17 @@ public class Board {
     white.forEach(p -> this.gm.doSetup(Move.MOVE_WHITE, p.getX(), p.getY(), blackToMove));
     black.forEach(p -> this.gm.doSetup(Move.MOVE_BLACK, p.getX(), p.getY(), blackToMove));
     empty.forEach(p -> this.gm.doSetup(Move.EMPTY, p.getX(), p.getY(), blackToMove));
-    if (initalMove == this.gm.getCurrMove()) {
+    if (initalMove == this.gm.getCurrMove() && !earlier.isEmpty()) {
       // was already a setup move to which we added points, need to recreate the existing position.
-      positions.remove(currPos);
-      positions.add(new Position(positions.get(currPos), this.gm.getCurrMove()));
+      KeyframeIndex before = earlier.get(earlier.size() - 1);
+      current = new Position(before.positionAt(before.size()), this.gm.getCurrMove());
     } else {
       // we created a new setup move
-      positions.add(new Position(positions.get(currPos++), this.gm.getCurrMove()));
+      earlier.add(keyframes);
+      current = new Position(current, this.gm.getCurrMove());
     }
+    keyframes = new KeyframeIndex(current, KeyframeIndex.DEFAULT_INTERVAL);
+    version++;
   }
 }
 
@@ -0,0 +1,92 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps boards from finished games so new games can reuse them.
+ * <p>
+ * A released board is {@link Board#reset() reset} and kept, up to a
+ * limit, and handed out again by {@link #acquire()}. The caller releasing a
+ * board must be sure nothing else still uses it. Boards come back with
+ * whatever {@link Board#setTrusted(boolean) trusted} setting they had, so
+ * callers that care should set it after acquiring. All methods may be
+ * called from any thread.
+ */
+public class BoardPool {
+
+  public static final int DEFAULT_CAPACITY = 32;
+
+  private final ArrayDeque<Board> free = new ArrayDeque<>();
+  private final int capacity;
+  private long created;
+  private long reused;
+
+  public BoardPool() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the most boards to keep waiting for reuse
+   */
+  public BoardPool(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Get an empty board, reusing a released one if there is one.
+   *
+   * @return A board with no moves played.
+   */
+  public synchronized Board acquire() {
+    Board board = free.pollFirst();
+    if (board == null) {
+      created++;
+      return new Board();
+    }
+    reused++;
+    return board;
+  }
+
+  /**
+   * Give back a board that is no longer needed.
+   *
+   * @param board the board, which must not be used again by the caller
+   */
+  public void release(Board board) {
+    board.reset();
+    synchronized (this) {
+      if (free.size() < capacity) {
+        free.addFirst(board);
+      }
+    }
+  }
+
+  /**
+   * @return how many boards had to be created.
+   */
+  public synchronized long getCreated() {
+    return created;
+  }
+
+  /**
+   * @return how many boards were handed out again after being released.
+   */
+  public synchronized long getReused() {
+    return reused;
+  }
+}
@@ -20,6 +20,7 @@ package leelawatcher.goboard;
 import leelawatcher.sgf.SGFbuilder;
 
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -30,6 +31,13 @@ import java.util.Date;
  * be lost, and if <code>markUndos</code> is true the word UNDO will
  * be prepended to any comment.
  * <p>
+ * <p>Plain moves added to the end of the tree are not given a {@link Move}
+ * of their own straight away. They are packed into an array of shorts, and
+ * only become <code>Move</code> objects when something asks for part of the
+ * tree they are in: a setup, an undo, a variation, or a caller that wants
+ * the tree itself such as {@link SGFbuilder}. A game that is watched but
+ * never saved or browsed by move therefore costs two bytes per move.</p>
+ * <p>
  * <p><b>refactor:</b> create a player object that holds some of the player
  * specific info.</p>
  * <p><b>refactor:</b> Add an instance variable to point to a concrete instance
@@ -80,9 +88,16 @@ public class Game {
   private boolean gameOver;        // 2 consecutive passes set this to true
   private boolean whiteLast;       // true if it is black's move
 
-  private Move currMove;           // Points to current move
+  private Move currMove;           // Points to current move, or the move
+  //    the packed line continues from
   private Move prevMove;           // Points to last move
 
+  // Plain moves played after currMove that have no Move object yet, one
+  // short each: the point index as in GameRecord plus WHITE_STONE if white.
+  private static final int WHITE_STONE = 0x400;
+  private short[] line = new short[64];
+  private int lineSize;
+
   // Functionality options
 
   private boolean remUndo;          // if true remember undo as a variation
@@ -91,12 +106,6 @@ public class Game {
   //    traditional locations
   private boolean toStringIsSGF;      // if true toString conforms to SGF format
 
-  // to help keep track of objects, and debug problems, all objects number
-  // their instances.
-
-  private static long numInstances = 0;
-  private long numThis;
-
   /**
    * Create an instance of a game from minimal basic info. All properties
    * other than the player's names, the handicap and the komi should be set
@@ -109,6 +118,21 @@ public class Game {
    */
   public Game(String nameWhite, String nameBlack, int handicap,
               float ptsKomi) {
+    reset(nameWhite, nameBlack, handicap, ptsKomi);
+  }
+
+  /**
+   * Start this game over as if it had just been created, so the object can
+   * be reused for another game. The move tree is discarded, but its root
+   * keeps the lists it has already allocated.
+   *
+   * @param nameWhite The name of the player using white stones.
+   * @param nameBlack The name of the player using black stones.
+   * @param handicap  The handicap for the game
+   * @param ptsKomi   The points given to white in compensation.
+   */
+  public void reset(String nameWhite, String nameBlack, int handicap,
+                    float ptsKomi) {
     _bName = nameBlack;
     _wName = nameWhite;
     _bRank = -999.0f;
@@ -130,18 +154,20 @@ public class Game {
 
     _ruleSet = "Japanese";            // default probably will be japaneese
     tradHandi = true;               // traditions are defaults
-    _gameRoot = new Move();     // a white pass to root the game tree
+    if (_gameRoot == null) {
+      _gameRoot = new Move();     // a white pass to root the game tree
+    } else {
+      _gameRoot.clearRoot();
+    }
     gameOver = false;               // we have only just begun!
     whiteLast = true;               // this makes it black's move
     currMove = _gameRoot;
     prevMove = _gameRoot;
+    lineSize = 0;
     remUndo = true;                 // undos create variations
     markUndos = true;               // mark Undo variations
     toStringIsSGF = false;          // toString will be SGF after fully
     // implemented
-
-    numInstances++;                // we just created one!
-    numThis = numInstances;       // which one is this
   }
 
   /**
@@ -154,11 +180,29 @@ public class Game {
    * @param ycoor The y (vertical) coordinate of the move.
    * @return The reference to the move object that has been added
    * to the game tree.
+   * @see #play(int, int)
    */
 
   public Move doMove(int xcoor, int ycoor)    // 0,0 at Upper Left
   {
-    char stoneColor = 'W';
+    play(xcoor, ycoor);
+    materialize();
+    return currMove;
+  }
+
+  /**
+   * Place a stone on the board without creating a {@link Move} for it, as
+   * {@link #doMove(int, int)} does. When the move continues the main line
+   * it is only packed onto the end of the game.
+   *
+   * @param xcoor The x (horizontal) coordinate of the move.
+   * @param ycoor The y (vertical) coordinate of the move.
+   * @return The color of the stone played, or 0 if no move was added
+   * because it was off the board or placed a handicap stone.
+   */
+  public char play(int xcoor, int ycoor)    // 0,0 at Upper Left
+  {
+    char stoneColor;
 
     //Check that this move will fall on the board.
 
@@ -168,42 +212,101 @@ public class Game {
     }
 
     if (!onBoard && (xcoor != Move.PASS))
-      return currMove;
+      return 0;
 
     // figure out if there are handicap stones to be placed
 
-    if (currMove.isRoot() && handiLeft > 0) {
+    if (lineSize == 0 && currMove.isRoot() && handiLeft > 0) {
       if (tradHandi) {
         // place handicap stones at star points.
       } else {
         whiteLast = false;
         handiLeft--;
         currMove.setupBlack(xcoor, ycoor);
-        return currMove;
+        return 0;
       }
     }
 
-    prevMove = currMove;
     // todo: this needs to move to trusting whiteLast all the time...
-    if (currMove.isSetup()) {
+    if (lineSize > 0) {
+      stoneColor = (line[lineSize - 1] & WHITE_STONE) != 0 ? Move.MOVE_BLACK : Move.MOVE_WHITE;
+    } else if (currMove.isSetup()) {
       stoneColor = whiteLast ? Move.MOVE_BLACK : Move.MOVE_WHITE;
     } else {
-      if (prevMove.isWhite() || (prevMove.isRoot() && (_handi == 0))) {
+      if (currMove.isWhite() || (currMove.isRoot() && (_handi == 0))) {
         stoneColor = 'B';            // if white moved last, black stone
       } else {
         stoneColor = 'W';
       }
     }
 
-    currMove = new Move(xcoor, ycoor, stoneColor, prevMove);
+    if (lineSize == 0 && currMove.numChildren() > 0) {
+      prevMove = currMove;           // a variation, so it needs a real node
+      currMove = new Move(xcoor, ycoor, stoneColor, prevMove);
+    } else {
+      if (lineSize == line.length) {
+        line = Arrays.copyOf(line, lineSize * 2);
+      }
+      int point = xcoor == Move.PASS ? GameRecord.PASS : ycoor * _boardSizeX + xcoor;
+      line[lineSize++] = (short) (stoneColor == Move.MOVE_WHITE ? point | WHITE_STONE : point);
+    }
 
     whiteLast = !whiteLast;
 
-    return currMove;
+    return stoneColor;
+  }
 
+  /**
+   * Give each packed move its {@link Move} object, so that the tree is
+   * complete and <code>currMove</code> is really the current move.
+   */
+  private void materialize() {
+    for (int i = 0; i < lineSize; i++) {
+      int packed = line[i];
+      int point = packed & ~WHITE_STONE;
+      char color = (packed & WHITE_STONE) != 0 ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+      prevMove = currMove;
+      if (point == GameRecord.PASS) {
+        currMove = new Move(Move.PASS, Move.PASS, color, prevMove);
+      } else {
+        currMove = new Move(point % _boardSizeX, point / _boardSizeX, color, prevMove);
+      }
+    }
+    lineSize = 0;
+  }
+
+  /**
+   * List the moves of the main line, the first variation at every node,
+   * without building any part of the tree.
+   *
+   * @return The point index of each move (y * 19 + x) or
+   * {@link GameRecord#PASS}, in the order played.
+   */
+  public short[] mainLine() {
+    int count = 0;
+    Move m = _gameRoot;
+    for (; m.next() != m; m = m.next()) {
+      if (m.next().isMove()) {
+        count++;
+      }
+    }
+    int packed = m == currMove ? lineSize : 0;
+    short[] moves = new short[count + packed];
+    int i = 0;
+    for (m = _gameRoot; m.next() != m; m = m.next()) {
+      Move mv = m.next();
+      if (mv.isMove()) {
+        moves[i++] = mv.isPass() ? GameRecord.PASS : (short) (mv.getY() * _boardSizeX + mv.getX());
+      }
+    }
+    for (int j = 0; j < packed; j++) {
+      moves[i++] = (short) (line[j] & ~WHITE_STONE);
+    }
+    return moves;
   }
 
   public void doSetup(char type, int xcoor, int ycoor, boolean blackToMove) {
+    materialize();
     if (!currMove.isSetup()) {
       currMove = new Move(prevMove);
     }
@@ -221,6 +324,7 @@ public class Game {
    */
 
   public void delCurrMove() {
+    materialize();
     Move dead = currMove;
     currMove = currMove.getParent();
     currMove.removeChild(dead);
@@ -228,10 +332,15 @@ public class Game {
 
   /**
    * Marks the current move if Undo marking is enabled and ascends the
-   * move tree by one.
+   * move tree by one. A move that was only packed is simply dropped.
    */
 
   public void undoMove() {
+    if (lineSize > 0) {
+      lineSize--;
+      whiteLast = !whiteLast;
+      return;
+    }
     if (markUndos)
       currMove.setComment("UNDO " + currMove.getComment());
     if (remUndo)
@@ -820,7 +929,9 @@ public class Game {
    * Get a reference to the root of the variation tree for this game.
    *
    * @return A reference to the topmost <code>Move</code> object
-   * in the variation tree for this game.
+   * in the variation tree for this game. Moves that were only packed are
+   * not in the tree, they follow {@link #getCurrMove()}, see
+   * {@link #packedSize()}.
    */
 
   public Move movesRoot() {
@@ -828,14 +939,59 @@ public class Game {
   }
 
   /**
-   * get a reference to the last move made.
+   * get a reference to the last move made that has a <code>Move</code>
+   * object.
    *
-   * @return a reference to the move that the game is currently on.
+   * @return a reference to the move that the game is currently on, or that
+   * the packed moves continue from if there are any.
    */
   public Move getCurrMove() {
     return currMove;
   }
 
+  /**
+   * Count the moves played after {@link #getCurrMove()} that were only
+   * packed, see {@link #play(int, int)}. The current move has no children
+   * while there are any.
+   *
+   * @return How many moves follow the current move without being in the tree.
+   */
+  public int packedSize() {
+    return lineSize;
+  }
+
+  /**
+   * Get the horizontal coordinate of a packed move.
+   *
+   * @param index which packed move, from 0
+   * @return The x coordinate, or <code>Move.PASS</code>.
+   */
+  public int packedX(int index) {
+    int point = line[index] & ~WHITE_STONE;
+    return point == GameRecord.PASS ? Move.PASS : point % _boardSizeX;
+  }
+
+  /**
+   * Get the vertical coordinate of a packed move.
+   *
+   * @param index which packed move, from 0
+   * @return The y coordinate, or <code>Move.PASS</code>.
+   */
+  public int packedY(int index) {
+    int point = line[index] & ~WHITE_STONE;
+    return point == GameRecord.PASS ? Move.PASS : point / _boardSizeX;
+  }
+
+  /**
+   * Get who played a packed move.
+   *
+   * @param index which packed move, from 0
+   * @return <code>Move.MOVE_BLACK</code> or <code>Move.MOVE_WHITE</code>.
+   */
+  public char packedColor(int index) {
+    return (line[index] & WHITE_STONE) != 0 ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+  }
+
   /**
    * Outputs the contents of the move tree for debugging.
    * <p>
@@ -869,7 +1025,7 @@ public class Game {
    */
 
   public void dPrint() {
-    System.out.println("Game " + numThis + " of " + numInstances + " Games");
+    System.out.println("Game " + _gameName);
     System.out.println("_bName=" + _bName);
     System.out.println("_wName=" + _wName);
     System.out.println("_bRank=" + _bRank);
@@ -892,6 +1048,7 @@ public class Game {
     System.out.println("whiteLast=" + whiteLast);
     System.out.println("currMove=" + currMove);
     System.out.println("prevMove=" + prevMove);
+    System.out.println("lineSize=" + lineSize);
     System.out.println("remUndo=" + remUndo);
     System.out.println("markUndos=" + markUndos);
     System.out.println("toStringIsSGF=" + toStringIsSGF);
@@ -0,0 +1,200 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.goboard;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The main line of a game reduced to nothing but the moves.
+ * <p>
+ * A {@link Board} keeps its current {@link Position}, a keyframe every few
+ * moves and the position hashes it needs for superko checks, which is still
+ * a few kilobytes per game. A record keeps one short per move (the point
+ * index <code>y * 19 + x</code>, or {@link #PASS}) plus the komi and result,
+ * and can rebuild an equivalent board on demand by replaying the moves.
+ * Setup nodes and variations are not kept, the games we watch do not have
+ * any.
+ * <p>
+ * Records are immutable.
+ */
+public final class GameRecord {
+
+  /**
+   * The value stored for a pass.
+   */
+  public static final short PASS = 361;
+
+  private static final int SIZE = 19;
+
+  private final short[] moves;
+  private final int moveNum;
+  private final float[] winRates;
+  private final float komi;
+  private final String result;
+
+  private GameRecord(short[] moves, int moveNum, float[] winRates, float komi, String result) {
+    this.moves = moves;
+    this.moveNum = moveNum;
+    this.winRates = winRates;
+    this.komi = komi;
+    this.result = result;
+  }
+
+  /**
+   * Extract the main line of the game on a board.
+   *
+   * @param board the board to read
+   * @return A record that can recreate the board.
+   */
+  public static GameRecord of(Board board) {
+    Game game = board.getGame();
+    return new GameRecord(game.mainLine(), board.getMoveNum(), board.getWinRates().toArray(),
+        game.getKomi(), game.getGameResult());
+  }
+
+  /**
+   * Replay the recorded moves onto a fresh board.
+   *
+   * @return A new board in the same state as the one recorded.
+   * @throws IllegalStateException if the record contains an illegal move,
+   *                               which can only happen if it was corrupted
+   *                               since it was recorded.
+   */
+  public Board toBoard() {
+    Board board = new Board();
+    board.setKomi(komi);
+    board.setTrusted(true); // these moves were played once already
+    for (short mv : moves) {
+      try {
+        if (mv == PASS) {
+          board.doMove(Move.PASS, Move.PASS);
+        } else {
+          board.doMove(mv % SIZE, mv / SIZE);
+        }
+      } catch (IllegalMoveException e) {
+        throw new IllegalStateException("Corrupt game record", e);
+      }
+    }
+    board.setMoveNum(moveNum);
+    board.setWinRates(WinRateSeries.of(winRates));
+    if (result != null) {
+      board.setResult(result);
+    }
+    return board;
+  }
+
+  /**
+   * Find out how many moves were recorded.
+   *
+   * @return The number of moves, including passes.
+   */
+  public int size() {
+    return moves.length;
+  }
+
+  /**
+   * Get one of the recorded moves.
+   *
+   * @param index which move, starting from 0
+   * @return The point index of the move or {@link #PASS}.
+   */
+  public int moveAt(int index) {
+    return moves[index];
+  }
+
+  public int getMoveNum() {
+    return moveNum;
+  }
+
+  /**
+   * Get the recorded win rates.
+   *
+   * @return A copy of the win rate after each move.
+   */
+  public float[] getWinRates() {
+    return winRates.clone();
+  }
+
+  public float getKomi() {
+    return komi;
+  }
+
+  /**
+   * Get the recorded result.
+   *
+   * @return The result in SGF form, or null if the game was not finished.
+   */
+  public String getResult() {
+    return result;
+  }
+
+  /**
+   * Estimate how much heap this record occupies.
+   *
+   * @return An approximate size in bytes.
+   */
+  public long estimatedBytes() {
+    return 72 + 2L * moves.length + 4L * winRates.length + (result == null ? 0 : 40 + 2L * result.length());
+  }
+
+  /**
+   * Write the record in a form that {@link #readFrom(DataInput)} understands.
+   *
+   * @param out where to write it
+   * @throws IOException if the write fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(moveNum);
+    out.writeInt(moves.length);
+    for (short mv : moves) {
+      out.writeShort(mv);
+    }
+    out.writeInt(winRates.length);
+    for (float wr : winRates) {
+      out.writeFloat(wr);
+    }
+    out.writeFloat(komi);
+    out.writeBoolean(result != null);
+    if (result != null) {
+      out.writeUTF(result);
+    }
+  }
+
+  /**
+   * Read a record previously written with {@link #writeTo(DataOutput)}.
+   *
+   * @param in where to read it from
+   * @return The record read.
+   * @throws IOException if the read fails
+   */
+  public static GameRecord readFrom(DataInput in) throws IOException {
+    int moveNum = in.readInt();
+    short[] moves = new short[in.readInt()];
+    for (int i = 0; i < moves.length; i++) {
+      moves[i] = in.readShort();
+    }
+    float[] winRates = new float[in.readInt()];
+    for (int i = 0; i < winRates.length; i++) {
+      winRates[i] = in.readFloat();
+    }
+    float komi = in.readFloat();
+    String result = in.readBoolean() ? in.readUTF() : null;
+    return new GameRecord(moves, moveNum, winRates, komi, result);
+  }
+}
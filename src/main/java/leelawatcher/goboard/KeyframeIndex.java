@@ -0,0 +1,218 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.goboard;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Random access to the positions of a game without keeping all of them.
+ * <p>
+ * Every move is kept as a short (the point index <code>y * 19 + x</code>
+ * with a flag for white, as in {@link GameRecord}) and a copy of the
+ * position is kept every {@link #getInterval() interval} moves. Any earlier
+ * position is then recreated by copying the nearest keyframe at or before it
+ * and replaying fewer than <code>interval</code> moves on it. The hash of
+ * every position is kept as well, so finding out whether a position was
+ * played before only recreates the positions whose hash matches.
+ * <p>
+ * Moves are recorded by the thread playing them on the {@link Board}, and
+ * positions may be requested from any other thread.
+ */
+public class KeyframeIndex {
+
+  /**
+   * How many moves apart keyframes are unless asked otherwise.
+   */
+  public static final int DEFAULT_INTERVAL = 16;
+
+  private static final int SIZE = 19;
+  private static final short PASS = GameRecord.PASS;
+  private static final short WHITE = 0x200;
+
+  private final int interval;
+  private short[] moves = new short[256];
+  private int[] hashes = new int[257]; // of the position after that many moves
+  private int size;
+  private Position[] keyframes = new Position[16];
+
+  /**
+   * Create an index for a game starting at some position.
+   *
+   * @param start    the position before the first move recorded
+   * @param interval how many moves apart to keep keyframes
+   */
+  public KeyframeIndex(Position start, int interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("interval must be positive: " + interval);
+    }
+    this.interval = interval;
+    keyframes[0] = new Position(start);
+    hashes[0] = start.hashCode();
+  }
+
+  /**
+   * Add the next move.
+   *
+   * @param x     horizontal coordinate, or <code>Move.PASS</code>
+   * @param y     vertical coordinate, or <code>Move.PASS</code>
+   * @param black true if black played the move
+   * @param after the position after the move, with captures removed. It is
+   *              only read, a copy is kept if one is needed.
+   */
+  public synchronized void record(int x, int y, boolean black, Position after) {
+    if (size == moves.length) {
+      moves = Arrays.copyOf(moves, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2 + 1);
+    }
+    short mv = x == Move.PASS ? PASS : (short) (y * SIZE + x);
+    moves[size++] = black ? mv : (short) (mv | WHITE);
+    hashes[size] = after.hashCode();
+    if (size % interval == 0) {
+      int k = size / interval;
+      if (k == keyframes.length) {
+        keyframes = Arrays.copyOf(keyframes, k * 2);
+      }
+      keyframes[k] = new Position(after);
+    }
+  }
+
+  /**
+   * Forget moves from the end, for example after an undo.
+   *
+   * @param newSize how many moves to keep
+   */
+  public synchronized void truncate(int newSize) {
+    if (newSize < 0 || newSize > size) {
+      throw new IndexOutOfBoundsException(newSize + " not in 0.." + size);
+    }
+    for (int k = newSize / interval + 1; k <= size / interval; k++) {
+      keyframes[k] = null;
+    }
+    size = newSize;
+  }
+
+  /**
+   * Forget every move and start again from a new position, keeping the
+   * storage already allocated.
+   *
+   * @param start the position before the first move recorded
+   */
+  public synchronized void reset(Position start) {
+    for (int k = 1; k <= size / interval; k++) {
+      keyframes[k] = null;
+    }
+    keyframes[0] = new Position(start);
+    hashes[0] = start.hashCode();
+    size = 0;
+  }
+
+  /**
+   * Find out how many moves have been recorded.
+   *
+   * @return The number of moves, including passes.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  public int getInterval() {
+    return interval;
+  }
+
+  /**
+   * Recreate the position after some number of moves.
+   *
+   * @param moveCount how many moves to play, 0 for the starting position
+   * @return A new position that the caller may keep or modify.
+   * @throws IndexOutOfBoundsException if moveCount is negative or more than
+   *                                   {@link #size()}
+   */
+  public synchronized Position positionAt(int moveCount) {
+    if (moveCount < 0 || moveCount > size) {
+      throw new IndexOutOfBoundsException(moveCount + " not in 0.." + size);
+    }
+    int k = moveCount / interval;
+    Position pos = new Position(keyframes[k]);
+    int[] scratch = new int[SIZE];
+    for (int i = k * interval; i < moveCount; i++) {
+      pos = play(pos, moves[i], scratch);
+    }
+    return pos;
+  }
+
+  /**
+   * Find out whether an analysed move would repeat any position recorded
+   * here, the starting position included.
+   *
+   * @param result the analysis of the move
+   * @return True if the stones after the move, with the other player to
+   * move, match a position after 0 through {@link #size()} moves.
+   */
+  public synchronized boolean contains(MoveResult result) {
+    int hash = result.hashAfter();
+    for (int i = 0; i <= size; i++) {
+      if (hashes[i] == hash && result.repeats(positionAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Go through every position from the start, replaying each move once
+   * rather than looking every position up.
+   *
+   * @return An iterator over the positions after 0 through {@link #size()}
+   * moves, as recorded when this was called. The positions are new, the
+   * caller may keep or modify them.
+   */
+  public synchronized Iterator<Position> iterator() {
+    short[] played = Arrays.copyOf(moves, size);
+    Position start = keyframes[0];
+    return new Iterator<Position>() {
+      private final int[] scratch = new int[SIZE];
+      private Position pos;
+      private int next; // how many moves the next position has
+
+      @Override
+      public boolean hasNext() {
+        return next <= played.length;
+      }
+
+      @Override
+      public Position next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        pos = next == 0 ? new Position(start) : play(pos, played[next - 1], scratch);
+        next++;
+        return pos;
+      }
+    };
+  }
+
+  private static Position play(Position pos, int mv, int[] scratch) {
+    boolean black = (mv & WHITE) == 0;
+    mv &= ~WHITE;
+    if (mv == PASS) {
+      return new Position(pos, Move.PASS, Move.PASS, black, scratch);
+    }
+    return new Position(pos, mv % SIZE, mv / SIZE, black, scratch);
+  }
+}
@@ -115,12 +115,6 @@ public class Move
   private List<PointOfPlay> addWhite;      // in setup nodes.
   private List<PointOfPlay> addEmpty;
 
-  // to help keep track of objects, and debug problems, all objects number
-  // their instances.
-
-  private static long numInstances = 0;
-  private long numThis;
-
   /**
    * Constructor to create the root of a game tree.
    * <p>
@@ -130,10 +124,6 @@ public class Move
    */
   public Move() {
 
-    numInstances++;        // keep track of how many have been created
-    numThis = numInstances;
-
-
     x = 99;              // since this is the root, no stone is placed
     y = 99;              // making it a pass
 
@@ -152,6 +142,19 @@ public class Move
     comment = "";
   }
 
+  /**
+   * Empty a root move so its game can start over, keeping the lists it has
+   * allocated.
+   */
+  void clearRoot() {
+    children.clear();
+    addBlack.clear();
+    addWhite.clear();
+    addEmpty.clear();
+    comment = "";
+    colorMoveNext = 0;
+  }
+
   /**
    * Constructor to use for setup Moves.
    * <p>
@@ -170,9 +173,6 @@ public class Move
    */
   @SuppressWarnings("unused")
   public Move(Move parentMove) {
-    numInstances++;        // keep track of how many have been created
-    numThis = numInstances;
-
     // On a standard 19x19 board:
     x = 98;                // 0-18 0 on left -1 to resign 19+ to pass
     y = 98;                // 0-18 0 on botom -1 to resign 19+ to pass
@@ -205,9 +205,10 @@ public class Move
    * setting the color. It is not legal to try to attach a black move
    * to a black parent move, or a white move to a white parent move,
    * and only black and white moves may be created with this constructor
-   * (no setup or root nodes). In the future, this constructor may set
-   * the vectors for setup moves to null since they shouldn't be used
-   * on an object created with this constructor.
+   * (no setup or root nodes). The vectors for setup moves are shared empty
+   * lists since they shouldn't be used on an object created with this
+   * constructor, and a list of children is only allocated when the first
+   * one is added.
    *
    * @param xcoor      The horizontal displacement from the lower left corner
    * @param ycoor      The vertical displacement from the lower left corner
@@ -219,9 +220,6 @@ public class Move
    * @throws IllegalArgumentException If pcolor is of the same color as the parent move
    */
   public Move(int xcoor, int ycoor, char pcolor, Move parentMove) {
-    numInstances++;        // keep track of how many have been created
-    numThis = numInstances;
-
     // On a standard 19x19 board:
     x = xcoor;             // 0-18 0 on left -1 to resign 19 to pass
     y = ycoor;             // 0-18 0 on bottom -1 to resign 19 to pass
@@ -245,11 +243,11 @@ public class Move
 
     parentMove.addChild(this);            // inform Parent of new child
 
-    children = new ArrayList<>(1);           // A place to put it's children
+    children = Collections.emptyList();     // until a variation is added
 
-    addBlack = new ArrayList<>(1);         // shouldn't be used in move
-    addWhite = new ArrayList<>(1);         // node, and may be set to null
-    addEmpty = new ArrayList<>(1);         // in future versions
+    addBlack = Collections.emptyList();     // never used in a move node
+    addWhite = Collections.emptyList();
+    addEmpty = Collections.emptyList();
 
     comment = "";
 
@@ -322,28 +320,6 @@ public class Move
     return ((x == Move.PASS) && (y == Move.PASS));
   }
 
-  /**
-   * Returns the number of this instance.
-   * <p>
-   * In order to keep track of how many moves are being created by
-   * various operations during debugging  and to identify moves uniquely
-   * this method returns a long for every move that has been created.
-   * This long is a simple count of how many Move objects have been created
-   * since the program was started. If more moves than can be recorded in a
-   * long have been created, it is presumed that the program is failing in
-   * an infinite loop anyway, and the ID number is no longer important.
-   * Though there will be ways for the user to create and destroy moves,
-   * through the normal functioning of the program, a user who managed to
-   * create and destroy 1000 moves every second would have to continue this
-   * for over a half billion years to exhaust the supply of ID numbers, so
-   * I'm not too worried about this.
-   *
-   * @return A unique long integer for each <code>Move</code> object.
-   */
-  public long ID() {
-    return numThis;
-  }
-
   /**
    * Outputs the contents of all variables in the class for debugging.
    * <p>
@@ -360,8 +336,7 @@ public class Move
     Iterator black = addBlack.iterator();
     int numchildren = children.size();
 
-    System.out.println("Move instance " + numThis + " of "
-        + numInstances + ":");
+    System.out.println("Move:");
     System.out.println("moveNum=" + moveNum);
     System.out.println("x=" + x);
     System.out.println("y=" + y);
@@ -425,6 +400,9 @@ public class Move
    *              <code>children</code> vector.
    */
   public void addChild(Move child) {
+    if (children == Collections.<Move>emptyList()) {
+      children = new ArrayList<>(1);
+    }
     children.add(child);
   }
 
@@ -0,0 +1,211 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+/**
+ * What playing a stone would do, worked out in one pass over its
+ * neighbourhood by {@link #analyze(Position, int, int, boolean)}.
+ * <p>
+ * The analysis finds the opposing groups the stone would capture, the
+ * liberties its own group would be left with, whether the point is
+ * occupied or the move would capture its own group, and the ko point the
+ * move would create. It also keeps the stones as they would be after the
+ * move, so a legal move can be applied by copying them rather than by
+ * finding the captured groups again.
+ * <p>
+ * A result holds all its working arrays and is meant to be reused for
+ * every move of a game, so analysing a move allocates nothing. It is not
+ * safe to share between threads.
+ */
+public final class MoveResult {
+
+  public enum Status {
+    LEGAL, OCCUPIED, SELF_CAPTURE, KO
+  }
+
+  private static final int SIZE = Bitboard.SIZE;
+
+  private Status status;
+  private int x;
+  private int y;
+  private boolean black;
+  private int capturedCount;
+  private int liberties;
+  private int koPoint = -1;
+  final int[] captured = new int[SIZE];
+  final int[] blackAfter = new int[SIZE];
+  final int[] whiteAfter = new int[SIZE];
+  private final int[] group = new int[SIZE];
+  private final int[] scratch = new int[SIZE];
+
+  /**
+   * Work out what playing a stone would do.
+   * <p>
+   * A move on the point where the previous move created a ko is reported
+   * as {@link Status#KO}. Rules that forbid repeating positions in other
+   * ways can compare the {@link #repeats(Position) result} against earlier
+   * positions and {@link #reject(Status) reject} it themselves.
+   *
+   * @param pos the position the stone is played on
+   * @param x     horizontal coordinate of the stone
+   * @param y     vertical coordinate of the stone
+   * @param black True if the stone is black
+   * @return This result, for chaining.
+   */
+  public MoveResult analyze(Position pos, int x, int y, boolean black) {
+    this.x = x;
+    this.y = y;
+    this.black = black;
+    capturedCount = 0;
+    liberties = 0;
+    koPoint = -1;
+    pos.copyRows(blackAfter, whiteAfter);
+    int[] own = black ? blackAfter : whiteAfter;
+    int[] other = black ? whiteAfter : blackAfter;
+    for (int r = 0; r < SIZE; r++) {
+      captured[r] = 0;
+    }
+    int bit = 1 << x;
+    if (((own[y] | other[y]) & bit) != 0) {
+      status = Status.OCCUPIED;
+      return this;
+    }
+    if (pos.getKoPoint() == y * SIZE + x) {
+      status = Status.KO;
+      return this;
+    }
+    own[y] |= bit;
+    int lastCapture = -1;
+    lastCapture = capture(own, other, x, y + 1, lastCapture);
+    lastCapture = capture(own, other, x + 1, y, lastCapture);
+    lastCapture = capture(own, other, x, y - 1, lastCapture);
+    lastCapture = capture(own, other, x - 1, y, lastCapture);
+    Bitboard.remove(other, captured);
+
+    int groupSize = Bitboard.floodFill(own, x, y, group);
+    liberties = Bitboard.countLiberties(group, blackAfter, whiteAfter);
+    if (liberties == 0) {
+      status = Status.SELF_CAPTURE;
+      Bitboard.remove(own, group); // for rules that allow it
+      return this;
+    }
+    if (capturedCount == 1 && groupSize == 1 && liberties == 1) {
+      koPoint = lastCapture;
+    }
+    status = Status.LEGAL;
+    return this;
+  }
+
+  private int capture(int[] own, int[] other, int nx, int ny, int lastCapture) {
+    if (nx < 0 || ny < 0 || nx >= SIZE || ny >= SIZE) {
+      return lastCapture;
+    }
+    int bit = 1 << nx;
+    if ((other[ny] & bit) == 0 || (captured[ny] & bit) != 0) {
+      return lastCapture;
+    }
+    int n = Bitboard.floodFill(other, nx, ny, scratch);
+    if (Bitboard.hasLiberty(scratch, own, other)) {
+      return lastCapture;
+    }
+    for (int r = 0; r < SIZE; r++) {
+      captured[r] |= scratch[r];
+    }
+    capturedCount += n;
+    return ny * SIZE + nx;
+  }
+
+  /**
+   * Test if the position after the move would be the same as another.
+   *
+   * @param earlier a position to compare against
+   * @return True if the stones and the player to move would match.
+   */
+  public boolean repeats(Position earlier) {
+    return earlier.sameAs(blackAfter, whiteAfter, !black);
+  }
+
+  /**
+   * @return The {@link Position#hashCode() hash} of the position after the
+   * move, so earlier positions can be ruled out before {@link #repeats
+   * comparing} them.
+   */
+  int hashAfter() {
+    return Position.hashOf(blackAfter, whiteAfter, !black);
+  }
+
+  /**
+   * Mark the move illegal for a reason the analysis itself does not check.
+   *
+   * @param reason why the move may not be played
+   */
+  public void reject(Status reason) {
+    status = reason;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isLegal() {
+    return status == Status.LEGAL;
+  }
+
+  public int getX() {
+    return x;
+  }
+
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * @return True if the stone analysed is black.
+   */
+  public boolean isBlack() {
+    return black;
+  }
+
+  /**
+   * @return how many opposing stones the move captures.
+   */
+  public int getCapturedCount() {
+    return capturedCount;
+  }
+
+  /**
+   * Test if a stone would be captured by the move.
+   */
+  public boolean isCaptured(int px, int py) {
+    return (captured[py] & (1 << px)) != 0;
+  }
+
+  /**
+   * @return the liberties of the group the new stone joins, after any
+   * captures.
+   */
+  public int getLiberties() {
+    return liberties;
+  }
+
+  /**
+   * @return the point the opponent may not play next because it would
+   * retake a ko, as <code>y * 19 + x</code>, or -1 if there is none.
+   */
+  public int getKoPoint() {
+    return koPoint;
+  }
+}
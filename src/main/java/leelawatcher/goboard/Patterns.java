@@ -0,0 +1,161 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+/**
+ * Codes for the shape of the stones around a move, the same whichever way
+ * round the board is and whichever color played.
+ * <p>
+ * The points within a square window around the move, 3x3 for radius 1 or
+ * 5x5 for radius 2, are each empty, a stone of the player making the move,
+ * an opponent's stone, or off the board, which takes two bits a point. The
+ * point played on is left out, it is always empty. The window is read from
+ * the {@link Bitboard} rows before the move through each of the eight
+ * {@link Zobrist#SYMMETRIES symmetries}, and the smallest reading is the
+ * code. The radius is kept in the top byte so codes of both sizes can
+ * share an index.
+ */
+public final class Patterns {
+
+  /**
+   * The largest window, 5x5, whose 24 points fit in a long.
+   */
+  public static final int MAX_RADIUS = 2;
+
+  private static final int SIZE = Bitboard.SIZE;
+  private static final int OWN = 1;
+  private static final int OTHER = 2;
+  private static final int EDGE = 3;
+
+  // by radius, the offsets of the points around the move, in reading order
+  private static final int[][] DX = new int[MAX_RADIUS + 1][];
+  private static final int[][] DY = new int[MAX_RADIUS + 1][];
+  // by radius and symmetry, the shift of each point's two bits in the code
+  private static final int[][][] SHIFTS = new int[MAX_RADIUS + 1][Zobrist.SYMMETRIES][];
+
+  static {
+    for (int r = 1; r <= MAX_RADIUS; r++) {
+      int width = 2 * r + 1;
+      int points = width * width - 1;
+      DX[r] = new int[points];
+      DY[r] = new int[points];
+      int p = 0;
+      for (int dy = -r; dy <= r; dy++) {
+        for (int dx = -r; dx <= r; dx++) {
+          if (dx != 0 || dy != 0) {
+            DX[r][p] = dx;
+            DY[r][p++] = dy;
+          }
+        }
+      }
+      for (int s = 0; s < Zobrist.SYMMETRIES; s++) {
+        SHIFTS[r][s] = new int[points];
+        for (p = 0; p < points; p++) {
+          int tx = (s & 1) != 0 ? -DX[r][p] : DX[r][p];
+          int ty = (s & 2) != 0 ? -DY[r][p] : DY[r][p];
+          if ((s & 4) != 0) {
+            int t = tx;
+            tx = ty;
+            ty = t;
+          }
+          SHIFTS[r][s][p] = 2 * point(r, tx, ty);
+        }
+      }
+    }
+  }
+
+  private Patterns() {
+  }
+
+  private static int point(int radius, int dx, int dy) {
+    for (int p = 0; p < DX[radius].length; p++) {
+      if (DX[radius][p] == dx && DY[radius][p] == dy) {
+        return p;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  /**
+   * Find the code of the shape a move is played into.
+   *
+   * @param own    the stones of the player making the move, as rows of a
+   *               {@link Bitboard}, before the move
+   * @param other  the opponent's stones
+   * @param x      the point played
+   * @param y      the point played
+   * @param radius 1 for a 3x3 window, 2 for 5x5
+   * @return The code, never 0.
+   */
+  public static long code(int[] own, int[] other, int x, int y, int radius) {
+    long[] codes = new long[Zobrist.SYMMETRIES];
+    int[] dx = DX[radius];
+    int[] dy = DY[radius];
+    for (int p = 0; p < dx.length; p++) {
+      int px = x + dx[p];
+      int py = y + dy[p];
+      long state;
+      if (px < 0 || px >= SIZE || py < 0 || py >= SIZE) {
+        state = EDGE;
+      } else if ((own[py] & 1 << px) != 0) {
+        state = OWN;
+      } else if ((other[py] & 1 << px) != 0) {
+        state = OTHER;
+      } else {
+        continue;
+      }
+      for (int s = 0; s < Zobrist.SYMMETRIES; s++) {
+        codes[s] |= state << SHIFTS[radius][s][p];
+      }
+    }
+    long min = Zobrist.canonical(codes);
+    return (long) radius << 56 | min;
+  }
+
+  /**
+   * @param code a code from {@link #code}
+   * @return 1 for a 3x3 window, 2 for 5x5.
+   */
+  public static int radius(long code) {
+    return (int) (code >>> 56);
+  }
+
+  /**
+   * Draw a shape, one row a line, with <code>X</code> for the player's
+   * stones, <code>O</code> for the opponent's, <code>#</code> off the board
+   * and <code>*</code> for the move.
+   *
+   * @param code a code from {@link #code}
+   * @return The drawing.
+   */
+  public static String toString(long code) {
+    int radius = radius(code);
+    int width = 2 * radius + 1;
+    StringBuilder sb = new StringBuilder();
+    int p = 0;
+    for (int row = 0; row < width; row++) {
+      for (int col = 0; col < width; col++) {
+        if (row == radius && col == radius) {
+          sb.append('*');
+          continue;
+        }
+        sb.append(".XO#".charAt((int) (code >>> 2 * p++) & 3));
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
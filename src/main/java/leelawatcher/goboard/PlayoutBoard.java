@@ -0,0 +1,401 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+/**
+ * A board for playing out games with random moves as fast as possible, as
+ * used to estimate who owns what in a position.
+ * <p>
+ * Unlike {@link Position}, which keeps one bitboard row per line, points
+ * here are indexes into flat arrays with a border of off-board points all
+ * round, so a neighbour is always one add away. Each group keeps its
+ * stones in a ring and a count of pseudo-liberties, the number of times an
+ * empty point touches one of its stones, which is zero exactly when the
+ * group has no liberties. Playing a move, merging groups and removing
+ * captures only touch the stones involved, and the empty points are kept
+ * in a list so a random one can be picked directly. Nothing is allocated
+ * after construction.
+ * <p>
+ * Only simple ko is prevented and suicide is never allowed. A board must
+ * only be used by one thread at a time.
+ */
+public final class PlayoutBoard {
+
+  /**
+   * Contents of a point.
+   */
+  public static final byte EMPTY = 0;
+  public static final byte BLACK = 1;
+  public static final byte WHITE = 2;
+  private static final byte OFF_BOARD = 3;
+
+  private static final int SIZE = Bitboard.SIZE;
+  private static final int STRIDE = SIZE + 2;
+  private static final int POINTS = STRIDE * STRIDE;
+  private static final int[] DIRS = {1, -1, STRIDE, -STRIDE};
+  private static final int[] DIAGONALS = {STRIDE + 1, STRIDE - 1, -STRIDE + 1, -STRIDE - 1};
+
+  private final byte[] color = new byte[POINTS];
+  private final int[] group = new int[POINTS];      // the head of the point's group
+  private final int[] nextStone = new int[POINTS];  // ring of stones in a group
+  private final int[] libs = new int[POINTS];       // pseudo-liberties, at the head
+  private final int[] stones = new int[POINTS];     // group size, at the head
+  private final int[] empties = new int[SIZE * SIZE];
+  private final int[] emptyIndex = new int[POINTS];
+  private int emptyCount;
+  private int koPoint;
+  private byte toMove;
+  private int passes;
+  private long random;
+
+  /**
+   * Create an empty board with black to move.
+   *
+   * @param seed seeds the choice of random moves
+   */
+  public PlayoutBoard(long seed) {
+    random = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    clear();
+  }
+
+  /**
+   * Empty the board, black to move.
+   */
+  public void clear() {
+    for (int p = 0; p < POINTS; p++) {
+      color[p] = OFF_BOARD;
+    }
+    emptyCount = 0;
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        int p = point(x, y);
+        color[p] = EMPTY;
+        emptyIndex[p] = emptyCount;
+        empties[emptyCount++] = p;
+      }
+    }
+    koPoint = 0;
+    toMove = BLACK;
+    passes = 0;
+  }
+
+  /**
+   * Set up a position. Groups without liberties are not expected, and any
+   * ko is forgotten.
+   *
+   * @param black      the black stones, as rows of a {@link Bitboard}
+   * @param white      the white stones
+   * @param blackToMove who plays next
+   */
+  public void setUp(int[] black, int[] white, boolean blackToMove) {
+    clear();
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        if ((black[y] & 1 << x) != 0) {
+          place(point(x, y), BLACK);
+        } else if ((white[y] & 1 << x) != 0) {
+          place(point(x, y), WHITE);
+        }
+      }
+    }
+    toMove = blackToMove ? BLACK : WHITE;
+  }
+
+  /**
+   * Copy another board, so one set up position can be played out many
+   * times.
+   *
+   * @param other the board to copy
+   */
+  public void copyFrom(PlayoutBoard other) {
+    System.arraycopy(other.color, 0, color, 0, POINTS);
+    System.arraycopy(other.group, 0, group, 0, POINTS);
+    System.arraycopy(other.nextStone, 0, nextStone, 0, POINTS);
+    System.arraycopy(other.libs, 0, libs, 0, POINTS);
+    System.arraycopy(other.stones, 0, stones, 0, POINTS);
+    System.arraycopy(other.empties, 0, empties, 0, other.emptyCount);
+    System.arraycopy(other.emptyIndex, 0, emptyIndex, 0, POINTS);
+    emptyCount = other.emptyCount;
+    koPoint = other.koPoint;
+    toMove = other.toMove;
+    passes = other.passes;
+  }
+
+  private static int point(int x, int y) {
+    return (y + 1) * STRIDE + x + 1;
+  }
+
+  /**
+   * Find out what is at a point.
+   *
+   * @return {@link #EMPTY}, {@link #BLACK} or {@link #WHITE}.
+   */
+  public byte colorAt(int x, int y) {
+    return color[point(x, y)];
+  }
+
+  /**
+   * Test if the player to move may play at a point.
+   *
+   * @return False if the point is taken, is the ko point, or would be
+   * suicide.
+   */
+  public boolean isLegal(int x, int y) {
+    return isLegal(point(x, y));
+  }
+
+  private boolean isLegal(int p) {
+    if (color[p] != EMPTY || p == koPoint) {
+      return false;
+    }
+    // a point with an empty neighbour always has a liberty
+    if (color[p + 1] == EMPTY || color[p - 1] == EMPTY
+        || color[p + STRIDE] == EMPTY || color[p - STRIDE] == EMPTY) {
+      return true;
+    }
+    // otherwise legal if it captures, or joins a group with another
+    // liberty. Neighbours are all stones or off the board here, and off
+    // board points share a dummy group, so the counts can be borrowed.
+    libs[group[p + 1]]--;
+    libs[group[p - 1]]--;
+    libs[group[p + STRIDE]]--;
+    libs[group[p - STRIDE]]--;
+    boolean legal = keepsLiberty(p + 1) || keepsLiberty(p - 1)
+        || keepsLiberty(p + STRIDE) || keepsLiberty(p - STRIDE);
+    libs[group[p + 1]]++;
+    libs[group[p - 1]]++;
+    libs[group[p + STRIDE]]++;
+    libs[group[p - STRIDE]]++;
+    return legal;
+  }
+
+  private boolean keepsLiberty(int n) {
+    byte c = color[n];
+    return c != OFF_BOARD && (libs[group[n]] == 0) != (c == toMove);
+  }
+
+  /**
+   * Test if a point is an eye of the player to move, which random play
+   * should not fill: every neighbour is their stone, and the opponent holds
+   * at most one diagonal, or none on the edge.
+   */
+  private boolean isOwnEye(int p) {
+    byte own = toMove;
+    if (!(isOwnOrEdge(p + 1, own) && isOwnOrEdge(p - 1, own)
+        && isOwnOrEdge(p + STRIDE, own) && isOwnOrEdge(p - STRIDE, own))) {
+      return false;
+    }
+    int enemy = 0;
+    int edge = 0;
+    for (int d : DIAGONALS) {
+      byte c = color[p + d];
+      if (c == OFF_BOARD) {
+        edge = 1;
+      } else if (c != own && c != EMPTY) {
+        enemy++;
+      }
+    }
+    return enemy + edge < 2;
+  }
+
+  private boolean isOwnOrEdge(int n, byte own) {
+    byte c = color[n];
+    return c == own || c == OFF_BOARD;
+  }
+
+  /**
+   * Play a move for the player to move. The move must be legal.
+   *
+   * @param x horizontal coordinate, or <code>Move.PASS</code>
+   * @param y vertical coordinate, or <code>Move.PASS</code>
+   */
+  public void play(int x, int y) {
+    if (x == Move.PASS) {
+      pass();
+    } else {
+      play(point(x, y));
+    }
+  }
+
+  private void pass() {
+    koPoint = 0;
+    passes++;
+    toMove = (byte) (BLACK + WHITE - toMove);
+  }
+
+  private void play(int p) {
+    byte enemy = (byte) (BLACK + WHITE - toMove);
+    place(p, toMove);
+    int captured = 0;
+    int capturedAt = 0;
+    for (int d : DIRS) {
+      int n = p + d;
+      if (color[n] == enemy && libs[group[n]] == 0) {
+        captured += stones[group[n]];
+        capturedAt = n;
+        remove(group[n]);
+      }
+    }
+    int head = group[p];
+    // a lone stone that took a lone stone and is left in atari makes a ko
+    koPoint = captured == 1 && stones[head] == 1 && libs[head] == 1 ? capturedAt : 0;
+    passes = 0;
+    toMove = enemy;
+  }
+
+  private void place(int p, byte c) {
+    int last = empties[--emptyCount];
+    empties[emptyIndex[p]] = last;
+    emptyIndex[last] = emptyIndex[p];
+    color[p] = c;
+    group[p] = p;
+    nextStone[p] = p;
+    stones[p] = 1;
+    libs[p] = 0;
+    for (int d : DIRS) {
+      int n = p + d;
+      byte nc = color[n];
+      if (nc == EMPTY) {
+        libs[p]++;
+      } else if (nc != OFF_BOARD) {
+        libs[group[n]]--;
+      }
+    }
+    for (int d : DIRS) {
+      int n = p + d;
+      if (color[n] == c && group[n] != group[p]) {
+        merge(group[p], group[n]);
+      }
+    }
+  }
+
+  private void merge(int a, int b) {
+    if (stones[a] < stones[b]) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    // relabel the smaller group and splice its ring into the larger one
+    int s = b;
+    do {
+      group[s] = a;
+      s = nextStone[s];
+    } while (s != b);
+    int t = nextStone[a];
+    nextStone[a] = nextStone[b];
+    nextStone[b] = t;
+    stones[a] += stones[b];
+    libs[a] += libs[b];
+  }
+
+  private void remove(int head) {
+    int s = head;
+    do {
+      color[s] = EMPTY;
+      emptyIndex[s] = emptyCount;
+      empties[emptyCount++] = s;
+      s = nextStone[s];
+    } while (s != head);
+    do {
+      for (int d : DIRS) {
+        int n = s + d;
+        byte c = color[n];
+        if (c == BLACK || c == WHITE) {
+          libs[group[n]]++;
+        }
+      }
+      s = nextStone[s];
+    } while (s != head);
+  }
+
+  /**
+   * Play random moves until both players pass, never filling an eye of
+   * the player moving.
+   *
+   * @param maxMoves give up after this many moves, in case of long ko
+   *                 fights
+   */
+  public void playOut(int maxMoves) {
+    for (int moves = 0; moves < maxMoves && passes < 2; moves++) {
+      int p = randomMove();
+      if (p == 0) {
+        pass();
+      } else {
+        play(p);
+      }
+    }
+  }
+
+  private int randomMove() {
+    int n = emptyCount;
+    if (n == 0) {
+      return 0;
+    }
+    int start = nextRandom(n);
+    for (int i = start; i < n; i++) {
+      int p = empties[i];
+      if (!isOwnEye(p) && isLegal(p)) {
+        return p;
+      }
+    }
+    for (int i = 0; i < start; i++) {
+      int p = empties[i];
+      if (!isOwnEye(p) && isLegal(p)) {
+        return p;
+      }
+    }
+    return 0;
+  }
+
+  private int nextRandom(int bound) {
+    // xorshift, much cheaper than a shared or thread local generator
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) (((random >>> 33) * bound) >>> 31);
+  }
+
+  /**
+   * Add who owns each point now, by Tromp-Taylor rules, to a running total.
+   * Stones belong to their owner and an empty point to the player whose
+   * stones surround it, which is all that is left after a playout.
+   *
+   * @param ownership one entry per point, <code>y * 19 + x</code>, that
+   *                  goes up by one for black and down by one for white
+   */
+  public void addOwnership(int[] ownership) {
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        int p = point(x, y);
+        byte c = color[p];
+        if (c == EMPTY) {
+          boolean black = false;
+          boolean white = false;
+          for (int d : DIRS) {
+            black |= color[p + d] == BLACK;
+            white |= color[p + d] == WHITE;
+          }
+          c = black == white ? EMPTY : black ? BLACK : WHITE;
+        }
+        if (c == BLACK) {
+          ownership[y * SIZE + x]++;
+        } else if (c == WHITE) {
+          ownership[y * SIZE + x]--;
+        }
+      }
+    }
+  }
+}
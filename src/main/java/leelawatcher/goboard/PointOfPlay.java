@@ -37,9 +37,6 @@ package leelawatcher.goboard;
 public class PointOfPlay implements Cloneable
 
 {
-  private static int numInstances = 0;
-  private int _numThis;
-
   private int _x;
   private int _y;
 
@@ -57,9 +54,6 @@ public class PointOfPlay implements Cloneable
    */
 
   public PointOfPlay(int xcoor, int ycoor) {
-    _numThis = numInstances;
-    numInstances++;
-
     if ((_x < 0) || (_y < 0)) {
       String msg = "Can't create negative Point of Play!";
       throw new IllegalArgumentException(msg);
@@ -160,7 +154,5 @@ public class PointOfPlay implements Cloneable
   public void dPrint() {
     System.out.println("_x=" + _x);
     System.out.println("_y=" + _y);
-    System.out.println("numInstances=" + numInstances);
-    System.out.println("_numThis=" + _numThis);
   }
 }
@@ -92,17 +92,17 @@ import java.util.stream.IntStream;
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class Position implements Cloneable {
   public final static int[] colMasks = new int[19];        // bit fields
-
-  private static int numInstances = 0;
-  private int numThis;
+  private final static int[] NEAR_X = {0, 1, 0, -1};       // neighbours
+  private final static int[] NEAR_Y = {1, 0, -1, 0};
 
   private int moveNum; // to associate this Position with a move in the game.
 
   private PointOfPlay lastMove;
 
   private boolean blackToMove;
-  private int[] posBlack = new int[19];  // the Position of black stones
-  private int[] posWhite = new int[19];  // the Position of white stones
+  private int[] posBlack;  // the Position of black stones
+  private int[] posWhite;  // the Position of white stones
+  private int koPoint = -1; // y * 19 + x of a point retaking a ko, see MoveResult
 
   static {                                                   // fill up colMasks
     for (int i = 0; i < colMasks.length; i++) {          // with bit fields
@@ -119,7 +119,8 @@ public class Position implements Cloneable {
    */
 
   public Position() {
-    numThis = numInstances++;
+    posBlack = new int[19];
+    posWhite = new int[19];
   }
 
   /**
@@ -133,11 +134,68 @@ public class Position implements Cloneable {
    *                new <code>Position</code>.
    */
   protected Position(Position basePos) {
-    numThis = numInstances++;
     moveNum = basePos.moveNum;
     posBlack = basePos.getArrayBlack();
     posWhite = basePos.getArrayWhite();
     blackToMove = basePos.blackToMove;
+    lastMove = basePos.lastMove;
+    koPoint = basePos.koPoint;
+  }
+
+  /**
+   * Create a <code>Position</code> by replaying a stone known to be legal on
+   * a previous <code>Position</code>.
+   * <p>
+   * <p> Unlike the constructor taking a {@link Move} this one also removes
+   * any stones captured by the move, using {@link Bitboard#play}, so that
+   * a sequence of positions can be recreated without a {@link Board}.
+   *
+   * @param prev    The <code>Position</code> the move is played on.
+   * @param x       The horizontal coordinate, or <code>Move.PASS</code>
+   * @param y       The vertical coordinate, or <code>Move.PASS</code>
+   * @param black   True if the stone is black.
+   * @param scratch A work array of 19 ints.
+   */
+  Position(Position prev, int x, int y, boolean black, int[] scratch) {
+    this(prev);
+    moveNum = prev.moveNum + 1;
+    blackToMove = !black;
+    lastMove = new PointOfPlay(x, y);
+    koPoint = -1;
+    if (x != Move.PASS) {
+      int[] own = black ? posBlack : posWhite;
+      int[] other = black ? posWhite : posBlack;
+      if (Bitboard.play(own, other, x, y, scratch) == 1) {
+        koPoint = koPointOf(own, other, x, y);
+      }
+    }
+  }
+
+  /**
+   * Find the ko point left by a stone that has just captured one stone, the
+   * same way {@link MoveResult} does: if the stone stands alone with a
+   * single liberty, that liberty is where the captured stone was.
+   */
+  private static int koPointOf(int[] own, int[] other, int x, int y) {
+    int liberty = -1;
+    for (int d = 0; d < 4; d++) {
+      int nx = x + NEAR_X[d];
+      int ny = y + NEAR_Y[d];
+      if (nx < 0 || ny < 0 || nx >= 19 || ny >= 19) {
+        continue;
+      }
+      int bit = 1 << nx;
+      if ((own[ny] & bit) != 0) {
+        return -1;
+      }
+      if ((other[ny] & bit) == 0) {
+        if (liberty != -1) {
+          return -1;
+        }
+        liberty = ny * 19 + nx;
+      }
+    }
+    return liberty;
   }
 
   /**
@@ -155,7 +213,6 @@ public class Position implements Cloneable {
    */
 
   public Position(Position prev, Move aMove) {
-    numThis = numInstances++;
 
     posBlack = prev.getArrayBlack(); // start with the last Position
     posWhite = prev.getArrayWhite();
@@ -196,6 +253,25 @@ public class Position implements Cloneable {
     }
   }
 
+  /**
+   * Create a <code>Position</code> by applying a move that has been
+   * {@link MoveResult#analyze analyzed}, so captures need not be found again.
+   *
+   * @param prev   The <code>Position</code> the move is played on.
+   * @param x      The horizontal coordinate of the stone.
+   * @param y      The vertical coordinate of the stone.
+   * @param black  True if the stone is black.
+   * @param result The analysis of that move on <code>prev</code>.
+   */
+  Position(Position prev, int x, int y, boolean black, MoveResult result) {
+    moveNum = prev.moveNum + 1;
+    blackToMove = !black;
+    lastMove = new PointOfPlay(x, y);
+    posBlack = result.blackAfter.clone();
+    posWhite = result.whiteAfter.clone();
+    koPoint = result.getKoPoint();
+  }
+
   public PointOfPlay getLastMove() {
     return lastMove;
   }
@@ -253,9 +329,16 @@ public class Position implements Cloneable {
 
   @Override
   public int hashCode() {
-    int result = (blackToMove ? 1 : 0);
-    result = 31 * result + Arrays.hashCode(posBlack);
-    result = 31 * result + Arrays.hashCode(posWhite);
+    return hashOf(posBlack, posWhite, blackToMove);
+  }
+
+  /**
+   * The {@link #hashCode() hash} a position with these stones would have.
+   */
+  static int hashOf(int[] black, int[] white, boolean blackMovesNext) {
+    int result = (blackMovesNext ? 1 : 0);
+    result = 31 * result + Arrays.hashCode(black);
+    result = 31 * result + Arrays.hashCode(white);
     return result;
   }
 
@@ -350,10 +433,41 @@ public class Position implements Cloneable {
     return moveNum;
   }
 
+  public boolean isBlackToMove() {
+    return blackToMove;
+  }
+
+  int getKoPoint() {
+    return koPoint;
+  }
+
+  void copyRows(int[] black, int[] white) {
+    System.arraycopy(posBlack, 0, black, 0, posBlack.length);
+    System.arraycopy(posWhite, 0, white, 0, posWhite.length);
+  }
+
+  boolean sameAs(int[] black, int[] white, boolean blackMovesNext) {
+    return blackToMove == blackMovesNext
+        && Arrays.equals(posBlack, black) && Arrays.equals(posWhite, white);
+  }
+
+  /**
+   * Count the stones of one color.
+   *
+   * @param black True to count black stones, false for white.
+   * @return The number of stones of that color on the board.
+   */
+  int countStones(boolean black) {
+    int[] stones = black ? posBlack : posWhite;
+    int count = 0;
+    for (int row : stones) {
+      count += Integer.bitCount(row);
+    }
+    return count;
+  }
+
   public void dPrint() {
     String tmp = this.toString();
-    tmp += "numInstances=" + numInstances + "\n";
-    tmp += "numThis=" + numThis + "\n";
     tmp += "blackToMove=" + blackToMove;
     System.out.println(tmp);
   }
@@ -0,0 +1,115 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.goboard;
+
+import java.util.Arrays;
+
+/**
+ * The win rate reported after each move of a game, kept in a growable
+ * <code>float[]</code> so no values are boxed.
+ * <p>
+ * One thread may append while any number of others read. Readers should
+ * call {@link #size()} first and only ask for values below it, those are
+ * guaranteed to be visible.
+ */
+public class WinRateSeries {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private volatile float[] values;
+  private volatile int size;
+
+  public WinRateSeries() {
+    values = new float[INITIAL_CAPACITY];
+  }
+
+  private WinRateSeries(float[] values, int size) {
+    this.values = values;
+    this.size = size;
+  }
+
+  /**
+   * Create a series holding a copy of some values.
+   *
+   * @param values the values, in move order
+   * @return A new series.
+   */
+  public static WinRateSeries of(float[] values) {
+    return new WinRateSeries(Arrays.copyOf(values, Math.max(values.length, INITIAL_CAPACITY)), values.length);
+  }
+
+  /**
+   * Append the win rate after the next move.
+   *
+   * @param winRate the reported win rate
+   */
+  public void add(float winRate) {
+    float[] v = values;
+    int n = size;
+    if (n == v.length) {
+      v = Arrays.copyOf(v, n * 2);
+      values = v;            // publish the bigger array before the new size
+    }
+    v[n] = winRate;
+    size = n + 1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove every value so the series can be reused for another game. The
+   * storage already allocated is kept.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Get the win rate after a move.
+   *
+   * @param index the index of the move, starting from 0
+   * @return The win rate reported after that move.
+   */
+  public float get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException(index + " >= " + size);
+    }
+    return values[index];
+  }
+
+  /**
+   * Get the most recent win rate.
+   *
+   * @return The last value added, or 0 if there are none.
+   */
+  public float last() {
+    int n = size;
+    return n == 0 ? 0 : values[n - 1];
+  }
+
+  /**
+   * Copy the series out.
+   *
+   * @return A new array with one value per move.
+   */
+  public float[] toArray() {
+    int n = size;
+    return Arrays.copyOf(values, n);
+  }
+}
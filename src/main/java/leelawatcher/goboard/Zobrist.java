@@ -0,0 +1,153 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashes of positions, the same for a position in any of the eight
+ * orientations of the board.
+ * <p>
+ * Each point has a random key for a black and a white stone, and a
+ * position's hash is the XOR of the keys of its stones, plus one more key
+ * if white is to move. A set of {@link #SYMMETRIES} hashes is kept, one
+ * for the position as seen through each rotation and reflection, and the
+ * smallest is the {@link #canonical canonical} hash. Since XOR undoes
+ * itself the set is kept up to date by {@link #toggle toggling} the
+ * stones that change, and {@link #update} finds those from the rows
+ * before and after a move. The keys are fixed, so hashes can be stored and
+ * compared between runs.
+ */
+public final class Zobrist {
+
+  /**
+   * The number of orientations of the board, and hashes in a set.
+   */
+  public static final int SYMMETRIES = 8;
+
+  private static final int SIZE = Bitboard.SIZE;
+  private static final long[] BLACK_KEYS = new long[SIZE * SIZE];
+  private static final long[] WHITE_KEYS = new long[SIZE * SIZE];
+  private static final long WHITE_TO_MOVE;
+
+  static {
+    SplittableRandom random = new SplittableRandom(0x1eE1a2017L);
+    for (int i = 0; i < SIZE * SIZE; i++) {
+      BLACK_KEYS[i] = random.nextLong();
+      WHITE_KEYS[i] = random.nextLong();
+    }
+    WHITE_TO_MOVE = random.nextLong();
+  }
+
+  private Zobrist() {
+  }
+
+  /**
+   * Find where a point goes under one of the orientations.
+   *
+   * @param symmetry from 0, the identity, to {@link #SYMMETRIES} - 1
+   * @return The index of the point it maps to, <code>y * 19 + x</code>.
+   */
+  public static int transform(int symmetry, int x, int y) {
+    if ((symmetry & 1) != 0) {
+      x = SIZE - 1 - x;
+    }
+    if ((symmetry & 2) != 0) {
+      y = SIZE - 1 - y;
+    }
+    if ((symmetry & 4) != 0) {
+      int t = x;
+      x = y;
+      y = t;
+    }
+    return y * SIZE + x;
+  }
+
+  /**
+   * Work out the hashes of a position from scratch.
+   *
+   * @param black       the black stones, as rows of a {@link Bitboard}
+   * @param white       the white stones
+   * @param blackToMove who plays next
+   * @param hashes      receives one hash per orientation
+   */
+  public static void hash(int[] black, int[] white, boolean blackToMove, long[] hashes) {
+    long start = blackToMove ? 0 : WHITE_TO_MOVE;
+    for (int s = 0; s < SYMMETRIES; s++) {
+      hashes[s] = start;
+    }
+    for (int y = 0; y < SIZE; y++) {
+      for (int bits = black[y]; bits != 0; bits &= bits - 1) {
+        toggle(hashes, Integer.numberOfTrailingZeros(bits), y, true);
+      }
+      for (int bits = white[y]; bits != 0; bits &= bits - 1) {
+        toggle(hashes, Integer.numberOfTrailingZeros(bits), y, false);
+      }
+    }
+  }
+
+  /**
+   * Add or remove a stone.
+   *
+   * @param hashes the hashes to change
+   * @param black  the color of the stone
+   */
+  public static void toggle(long[] hashes, int x, int y, boolean black) {
+    long[] keys = black ? BLACK_KEYS : WHITE_KEYS;
+    for (int s = 0; s < SYMMETRIES; s++) {
+      hashes[s] ^= keys[transform(s, x, y)];
+    }
+  }
+
+  /**
+   * Bring hashes up to date after a move, from how the stones changed.
+   * The player to move is switched.
+   *
+   * @param hashes      the hashes of the position before
+   * @param blackBefore the black stones before the move
+   * @param whiteBefore the white stones before the move
+   * @param black       the black stones after
+   * @param white       the white stones after
+   */
+  public static void update(long[] hashes, int[] blackBefore, int[] whiteBefore, int[] black, int[] white) {
+    for (int y = 0; y < SIZE; y++) {
+      for (int bits = blackBefore[y] ^ black[y]; bits != 0; bits &= bits - 1) {
+        toggle(hashes, Integer.numberOfTrailingZeros(bits), y, true);
+      }
+      for (int bits = whiteBefore[y] ^ white[y]; bits != 0; bits &= bits - 1) {
+        toggle(hashes, Integer.numberOfTrailingZeros(bits), y, false);
+      }
+    }
+    for (int s = 0; s < SYMMETRIES; s++) {
+      hashes[s] ^= WHITE_TO_MOVE;
+    }
+  }
+
+  /**
+   * Pick the hash that identifies a position whichever way round the board
+   * is.
+   *
+   * @param hashes a set of hashes
+   * @return The smallest of them.
+   */
+  public static long canonical(long[] hashes) {
+    long min = hashes[0];
+    for (int s = 1; s < SYMMETRIES; s++) {
+      min = Math.min(min, hashes[s]);
+    }
+    return min;
+  }
+}
@@ -22,55 +22,84 @@
 
 package leelawatcher.gui;
 
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameEventSink;
+import leelawatcher.event.GameRegistry;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.Message;
+import leelawatcher.event.MovePlayed;
 import leelawatcher.goboard.Board;
+import leelawatcher.goboard.BoardPool;
 import leelawatcher.goboard.IllegalMoveException;
 import leelawatcher.goboard.Move;
 import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.WinRateSeries;
+import leelawatcher.metrics.Metrics;
+import leelawatcher.scorer.OwnershipEstimator;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
 import java.lang.ref.WeakReference;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
  * @author Gus
  */
-public class BoardView extends javax.swing.JPanel {
-
-  public interface BoardViewDelegate {
-    void message(String str);
-  }
+public class BoardView extends javax.swing.JPanel implements GameEventSink {
 
   public interface SetGameInfo {
     void lam(String str);
   }
 
+  public interface ShowWinRates {
+    void lam(WinRateSeries series);
+  }
+
+  public interface ShowScrub {
+    void lam(int moveCount, int shownMove);
+  }
+
   private static final Dimension PREFERRED_SIZE = new Dimension(500, 500);
   public static int POST_ENDGAME_THRESHOLD = 300;
   public static int SIMUL_GAME_THRESHOLD = 10;
+  public static int HISTORY_LIMIT = 10000;
+  public static long HISTORY_MEMORY_BUDGET = 64L * 1024 * 1024;
+  public static int OWNERSHIP_PLAYOUTS = 4096;
 
-  public BoardViewDelegate delegate;
   public SetGameInfo setGameInfo;
+  public ShowWinRates showWinRates = series -> {
+  };
+  public ShowScrub showScrub = (moveCount, shownMove) -> {
+  };
 
-  private HashMap<String, BoardViewModel> boards;
-  private HashMap<String, BoardViewModel> finishedBoards;
-  private ArrayList<BoardViewModel> boardList;
+  private final GameRegistry<BoardViewModel> boards = new GameRegistry<>();
+  private final GameList boardList = new GameList();
   private BoardViewModel curBoard;
   private ImageMaker goImages = new ImageMaker();
+  private GameHistory history;
+  private final BoardPool pool = new BoardPool();
+  private final GameEventBus bus;
+  private final OwnershipEstimator ownershipEstimator = new OwnershipEstimator(ForkJoinPool.commonPool());
 
   /**
    * Creates new form boardView
+   *
+   * @param bus where to publish messages about the games shown
    */
-  BoardView() {
-    boardList = new ArrayList<>();
-    boards = new HashMap<>();
-    finishedBoards = new HashMap<>();
+  BoardView(GameEventBus bus) {
+    this.bus = bus;
+    history = new GameHistory(SIMUL_GAME_THRESHOLD, HISTORY_MEMORY_BUDGET, pool);
+    Metrics.REGISTRY.gauge("leelawatcher_games_in_progress", "Games started and not yet scored.", boards::size);
   }
 
   public void paint(java.awt.Graphics g) {
+    long start = System.nanoTime();
     // Find out how much space is available.
     super.paint(g);
 
@@ -80,9 +109,25 @@ public class BoardView extends javax.swing.JPanel {
       return;
     }
 
+    history.touch(curBoardVM);
     Board board = curBoardVM.getBoard();
 
-    setGameInfo.lam(gameNumStr(curBoardVM) + " " + curBoardVM.gameInfo());
+    int moveCount = board.getMoveCount();
+    int shown = curBoardVM.getShownMove();
+    Position position;
+    String scrubInfo = "";
+    if (shown < 0 || shown >= moveCount) {
+      shown = moveCount;
+      position = board.getCurrPos();
+    } else {
+      position = board.getPositionAt(shown);
+      scrubInfo = " (viewing " + shown + "/" + moveCount + ")";
+    }
+
+    setGameInfo.lam(gameNumStr(curBoardVM) + " " + curBoardVM.gameInfo() + scrubInfo
+        + "\nDisplay lag: " + Metrics.DISPLAY_LATENCY.recentSummary());
+    showWinRates.lam(board.getWinRates());
+    showScrub.lam(moveCount, shown);
 
     Container p = getParent();
     g.setColor(p.getBackground());
@@ -102,22 +147,70 @@ public class BoardView extends javax.swing.JPanel {
     // call to repaint() from placing a stone, and when the GUI got around to
     // calling paint() for example)
 
-    java.awt.image.BufferedImage boardImg = goImages.paintBoard(makeSize, lines, board.getCurrPos());
+    float[] ownership = shown == moveCount && curBoardVM.isResigned() ? ownership(curBoardVM, position) : null;
+    java.awt.image.BufferedImage boardImg = goImages.paintBoard(makeSize, lines, position, ownership);
 
     g.drawImage(boardImg, ((availW - makeSize) / 2), ((availH - makeSize) / 2), this);
+    Metrics.REPAINT.recordSince(start);
+    long readNanos = curBoardVM.painted();
+    if (readNanos != 0 && shown == moveCount) {
+      Metrics.DISPLAY_LATENCY.recordSince(readNanos);
+    }
+  }
+
+  /**
+   * Get who owns what at the end of a resigned game, starting the playouts
+   * to find out in the background the first time it is shown.
+   *
+   * @return The ownership, or null until it is ready.
+   */
+  private float[] ownership(BoardViewModel vm, Position position) {
+    if (vm.requestOwnership()) {
+      boolean blackToMove = !vm.getBoard().isWhiteMove();
+      ForkJoinPool.commonPool().execute(() -> {
+        vm.setOwnership(ownershipEstimator.estimate(position, blackToMove, OWNERSHIP_PLAYOUTS));
+        repaint();
+      });
+    }
+    return vm.getOwnership();
   }
 
   public void update(java.awt.Graphics g) {
     paint(g);
   }
 
-  public void move(PointOfPlay pop, String seed, int moveNum, float winRate) throws IllegalMoveException {
+  public void move(PointOfPlay pop, int gameId, int moveNum, float winRate) throws IllegalMoveException {
+    move(pop, gameId, moveNum, winRate, true);
+  }
+
+  /**
+   * Play a move on one of the games in progress.
+   *
+   * @param repaint false to leave the screen alone, for example while
+   *                catching up on a backlog of moves
+   */
+  public void move(PointOfPlay pop, int gameId, int moveNum, float winRate, boolean repaint)
+      throws IllegalMoveException {
+    move(pop, gameId, moveNum, winRate, repaint, System.nanoTime());
+  }
+
+  /**
+   * Play a move on one of the games in progress.
+   *
+   * @param repaint   false to leave the screen alone, for example while
+   *                  catching up on a backlog of moves
+   * @param readNanos when the move was read from autogtp, to measure how far
+   *                  behind it the display is
+   */
+  public void move(PointOfPlay pop, int gameId, int moveNum, float winRate, boolean repaint, long readNanos)
+      throws IllegalMoveException {
 
-    if (!boards.containsKey(seed)) {
+    BoardViewModel vm = boards.get(gameId);
+    if (vm == null) {
       return;
     }
 
-    Board board = boards.get(seed).getBoard();
+    Board board = vm.getBoard();
 
     if (pop != null) {
       board.doMove(pop.getX(), pop.getY());
@@ -128,8 +221,54 @@ public class BoardView extends javax.swing.JPanel {
 
     board.setMoveNum(moveNum);
     board.setWinRate(winRate);
+    if (vm == curBoard) {
+      vm.moveApplied(readNanos);
+    }
 
-    repaint();
+    if (repaint) {
+      repaint();
+    }
+  }
+
+  @Override
+  public void gameStarted(GameStarted event) {
+    addNewBoard(event.getGameId(), event.getSeed(), parseType(event.getGameType()));
+  }
+
+  @Override
+  public void movePlayed(MovePlayed event) {
+    try {
+      move(event.getPoint(), event.getGameId(), event.getMoveNum(), event.getWinRate(), !event.isBacklogged(),
+          event.getReadNanos());
+    } catch (IllegalMoveException e) {
+      bus.publish(new Message("Illegal move attempted:" + e.getProposedMove()
+          + "\nPosition:\n" + e.getPosition()));
+    }
+  }
+
+  @Override
+  public void gameScored(GameScored event) {
+    resultBoard(event.getGameId(), event.getScore());
+  }
+
+  @Override
+  public void autogtpError(AutogtpError event) {
+    for (int gameId : event.getGameIds()) {
+      BoardViewModel board = boards.remove(gameId);
+      if (board != null && board == curBoard) {
+        curBoard = null;
+      }
+    }
+  }
+
+  private static BoardViewModel.Type parseType(String typeStr) {
+    if ("selfplay".equals(typeStr)) {
+      return BoardViewModel.Type.selfplay;
+    } else if ("match".equals(typeStr)) {
+      return BoardViewModel.Type.match;
+    }
+
+    return null;
   }
 
   public void previousBoard() {
@@ -153,40 +292,126 @@ public class BoardView extends javax.swing.JPanel {
     repaint();
   }
 
-  public void addNewBoard(String seed, BoardViewModel.Type type) {
-    BoardViewModel newBoard = new BoardViewModel(seed, type);
+  /**
+   * Show the displayed game as it was after some number of moves. Asking for
+   * the latest move, or beyond it, goes back to following the game live.
+   *
+   * @param moveCount how many moves into the game to show
+   */
+  public void scrubTo(int moveCount) {
+    BoardViewModel vm = getBoardToDisplay();
+    if (vm == null) {
+      return;
+    }
+    int total = vm.getBoard().getMoveCount();
+    vm.setShownMove(moveCount >= total ? -1 : Math.max(0, moveCount));
+    repaint();
+  }
+
+  /**
+   * Step backwards or forwards through the moves of the displayed game.
+   *
+   * @param delta how many moves to step, negative to go back
+   */
+  public void stepMove(int delta) {
+    BoardViewModel vm = getBoardToDisplay();
+    if (vm == null) {
+      return;
+    }
+    int shown = vm.getShownMove();
+    int from = shown < 0 ? vm.getBoard().getMoveCount() : shown;
+    scrubTo(from + delta);
+  }
+
+  public void addNewBoard(int gameId, String seed, BoardViewModel.Type type) {
+    BoardViewModel newBoard = new BoardViewModel(seed, type, pool.acquire());
 
 //    System.out.println("Adding board: " + seed + "...");
 
-    boards.put(seed, newBoard);
+    boards.put(gameId, newBoard);
     addBoardToList(newBoard);
 
 //    System.out.println("Boards: " + boards.toString());
   }
 
-  public void resultBoard(String seed, String score) {
+  public void resultBoard(int gameId, String score) {
 
-    if(boards.containsKey(seed)) {
-      BoardViewModel board = boards.get(seed);
+    BoardViewModel board = boards.remove(gameId);
+    if(board != null) {
       board.setScore(score);
-      finishedBoards.put(seed, board);
-      boards.remove(seed);
+      history.finished(board);
     }
   }
 
   public void reset() {
     boards.clear();
-    finishedBoards.clear();
     curBoard = null;
 
 //    System.out.println("Resetting...\nBoards: " + boards.toString() + " finishedBoards: " + finishedBoards.toString() + " current seed: " + currentDisplaySeed);
   }
 
+  /**
+   * Get the games that have not yet been scored, in the order they started.
+   *
+   * @return a snapshot that is safe to use from any thread.
+   */
+  public List<BoardViewModel> activeBoards() {
+    return boards.values();
+  }
+
+  /**
+   * Get the position being displayed, which may be earlier in the game than
+   * the last move.
+   *
+   * @return The position, or null if no game is shown.
+   */
+  public Position shownPosition() {
+    return shownPosition(0);
+  }
+
+  /**
+   * Get a position before the one being displayed.
+   *
+   * @param back how many moves earlier
+   * @return The position, or null if no game is shown or it doesn't go
+   * back that far.
+   */
+  public Position shownPosition(int back) {
+    BoardViewModel vm = getBoardToDisplay();
+    if (vm == null) {
+      return null;
+    }
+    Board board = vm.getBoard();
+    int shown = vm.getShownMove();
+    if (shown < 0 || shown > board.getMoveCount()) {
+      shown = board.getMoveCount();
+    }
+    if (back == 0 && shown == board.getMoveCount()) {
+      return board.getCurrPos();
+    }
+    return shown - back < 0 ? null : board.getPositionAt(shown - back);
+  }
+
+  /**
+   * Display a particular game, for example one picked from the
+   * {@link MosaicView}.
+   *
+   * @param model the game to display
+   */
+  public void showBoard(BoardViewModel model) {
+    curBoard = model;
+    repaint();
+  }
+
   private void addBoardToList(BoardViewModel board) {
     boardList.add(board);
 
-    while(boardList.size() > SIMUL_GAME_THRESHOLD) {
-      boardList.remove(0);
+    while(boardList.size() > HISTORY_LIMIT) {
+      BoardViewModel old = boardList.removeFirst();
+      history.forget(old);
+      if (old.getScore() != null && old != curBoard) {
+        history.recycle(old.discard());
+      }
     }
 
     int index = boardList.indexOf(curBoard);
@@ -198,7 +423,7 @@ public class BoardView extends javax.swing.JPanel {
 
   private void printBoardList() {
     System.out.println("[");
-    for(BoardViewModel vm: boardList) {
+    for(BoardViewModel vm: boardList.toArray()) {
       System.out.println(vm.getSeed());
     }
     System.out.println("]");
@@ -206,17 +431,17 @@ public class BoardView extends javax.swing.JPanel {
 
   private BoardViewModel getBoardToDisplay() {
 
-    if (curBoard == null || !boardList.contains(curBoard)) {
-      curBoard = boardList.size() > 0 ? boardList.get(0) : null;
+    if (curBoard == null || (!boardList.contains(curBoard) && !boards.containsValue(curBoard))) {
+      // the most recently finished game, not the oldest one still remembered
+      curBoard = boardList.size() > 0 ? boardList.get(boardList.size() - 1) : null;
     }
 
     return curBoard;
   }
 
   private String gameNumStr(BoardViewModel model) {
-    if(boardList.contains(model)) {
-      int index = boardList.indexOf(model);
-
+    int index = boardList.indexOf(model);
+    if(index >= 0) {
       return (index+1) + "/" + boardList.size();
     }
     else {
@@ -229,28 +454,4 @@ public class BoardView extends javax.swing.JPanel {
     return PREFERRED_SIZE;
   }
 
-  void saveGames() {
-
-//    System.out.println("Finished boards: " + finishedBoards.toString());
-
-    for(Map.Entry<String, BoardViewModel> entry: finishedBoards.entrySet()) {
-      BoardViewModel boardVM = entry.getValue();
-
-//      System.out.println("Got game: " + seed);
-
-      String format = DateTimeFormatter.ISO_INSTANT
-              .format(new Date().toInstant()).replaceAll(":", "_");
-      format += "_" + boardVM.getSeed();
-      File file = new File(format + ".sgf");
-//      System.out.println("Saving as:" + file);
-      boardVM.getBoard().saveGame(file.getPath());
-    }
-
-//    System.out.println("Clearing finished boards...");
-
-    finishedBoards.clear();
-
-//    System.out.println("Finished boards: " + finishedBoards.toString());
-  }
-
 }
@@ -1,6 +1,14 @@
 package leelawatcher.gui;
 
 import leelawatcher.goboard.Board;
+import leelawatcher.goboard.BoardPool;
+import leelawatcher.goboard.GameRecord;
+import leelawatcher.scorer.AreaScorer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BoardViewModel {
 
@@ -24,10 +32,39 @@ public class BoardViewModel {
     private Board board;
     private String score;
 
+    // Finished games that have not been looked at in a while give up their
+    // board. See GameHistory for when that happens.
+    private GameRecord record;
+    private GameHistory.SpillFile spillFile;
+    private long spillOffset = -1;
+
+    // How many moves into the game to show, or -1 to follow the latest move.
+    private volatile int shownMove = -1;
+
+    // When the oldest move not yet painted was read, or 0 if all have been.
+    private final AtomicLong unpaintedSince = new AtomicLong();
+
+    // Who owns what at the end of a resigned game, once estimated.
+    private volatile float[] ownership;
+    private final AtomicBoolean ownershipRequested = new AtomicBoolean();
+
+    // Where this game was added to the browsable games, see GameList.
+    long listSeq = -1;
+
     BoardViewModel(String seed, Type type) {
+        this(seed, type, new Board());
+    }
+
+    /**
+     * @param board an empty board to play the game on, for example one from
+     *              a {@link BoardPool}
+     */
+    BoardViewModel(String seed, Type type, Board board) {
         this.type = type;
         this.seed = seed;
-        this.board = new Board();
+        this.board = board;
+        // autogtp only plays legal moves, a MoveVerifier keeps it honest
+        this.board.setTrusted(true);
     }
 
     public Type getType() {
@@ -38,10 +75,147 @@ public class BoardViewModel {
         return seed;
     }
 
-    public Board getBoard() {
+    /**
+     * Get the board for this game, rebuilding it from its compact or spilled
+     * form if it has been demoted.
+     */
+    public synchronized Board getBoard() {
+        if (board == null) {
+            board = getRecord().toBoard();
+            record = null;
+            spillFile = null;
+            spillOffset = -1;
+        }
         return board;
     }
 
+    /**
+     * Replace the board with its compact move only form.
+     *
+     * @return the board given up, or null if there was none. It may still be
+     * being painted, see {@link GameHistory#recycle}.
+     */
+    synchronized Board demote() {
+        Board old = board;
+        if (old != null) {
+            record = GameRecord.of(old);
+            board = null;
+        }
+        return old;
+    }
+
+    /**
+     * Move the compact form of a demoted game out to disk.
+     *
+     * @param file where to write it
+     * @return the approximate number of heap bytes released.
+     */
+    synchronized long spill(GameHistory.SpillFile file) throws IOException {
+        if (board != null || record == null) {
+            return 0;
+        }
+        long freed = record.estimatedBytes();
+        spillOffset = file.write(record);
+        spillFile = file;
+        record = null;
+        return freed;
+    }
+
+    /**
+     * Give up everything kept for a finished game that can no longer be
+     * browsed. The model must not be used afterwards.
+     *
+     * @return the board given up, or null if there was none. It may still be
+     * being painted, see {@link GameHistory#recycle}.
+     */
+    synchronized Board discard() {
+        Board old = board;
+        board = null;
+        record = null;
+        spillFile = null;
+        return old;
+    }
+
+    /**
+     * @return the approximate size of the compact form, 0 if there is none.
+     */
+    synchronized long compactBytes() {
+        return record == null ? 0 : record.estimatedBytes();
+    }
+
+    synchronized boolean isHot() {
+        return board != null;
+    }
+
+    private GameRecord getRecord() {
+        if (record != null) {
+            return record;
+        }
+        try {
+            return spillFile.read(spillOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reload game " + seed, e);
+        }
+    }
+
+    /**
+     * @return how many moves into the game the view is scrubbed to, or -1 if
+     * it shows the latest move.
+     */
+    public int getShownMove() {
+        return shownMove;
+    }
+
+    public void setShownMove(int shownMove) {
+        this.shownMove = shownMove;
+    }
+
+    /**
+     * Note that a move has been played that is not on screen yet.
+     *
+     * @param readNanos when the move was read from autogtp
+     */
+    void moveApplied(long readNanos) {
+        unpaintedSince.compareAndSet(0, readNanos);
+    }
+
+    /**
+     * Note that the game has been painted as it is now.
+     *
+     * @return When the oldest move not painted before was read, or 0 if
+     * there was none.
+     */
+    long painted() {
+        return unpaintedSince.getAndSet(0);
+    }
+
+    /**
+     * Find out if this game ended without being counted, so the final
+     * position says little about the result.
+     */
+    public boolean isResigned() {
+        return score != null && Float.isNaN(AreaScorer.margin(score));
+    }
+
+    /**
+     * @return Who owns each point at the end of the game, or null if that
+     * has not been estimated.
+     */
+    float[] getOwnership() {
+        return ownership;
+    }
+
+    void setOwnership(float[] ownership) {
+        this.ownership = ownership;
+    }
+
+    /**
+     * @return True only the first time it is called, for whoever should
+     * estimate the ownership.
+     */
+    boolean requestOwnership() {
+        return ownershipRequested.compareAndSet(false, true);
+    }
 
     public String getScore() {
         return score;
@@ -52,6 +226,7 @@ public class BoardViewModel {
     }
 
     public String gameInfo() {
+        Board board = getBoard();
         String resp = type.getStr() + " M: " + board.getMoveNum() + " WR: " + board.getWinRate() + "\nSeed: " + seed;
         if(score != null) {
             resp +=  "\nResult: " + score;
@@ -0,0 +1,187 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.BoardPool;
+import leelawatcher.goboard.GameRecord;
+
+import javax.swing.*;
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Decides how much of each finished game is kept on the heap.
+ * <p>
+ * The most recently finished or viewed games stay hot, with their complete
+ * {@link leelawatcher.goboard.Board}. Once there are more than
+ * <code>hotLimit</code> of those the least recently used is demoted to a
+ * {@link GameRecord}, which holds only its moves. When the demoted games
+ * together exceed <code>memoryBudget</code> bytes the oldest are appended to
+ * a temporary spill file and only their offset is kept. A demoted or spilled
+ * game is rebuilt when someone asks its {@link BoardViewModel} for its board
+ * and becomes hot again when {@link #touch} is called for it.
+ * <p>
+ * Games still in progress are never demoted. The boards of demoted games
+ * are returned to a {@link BoardPool} for new games to reuse, on the event
+ * dispatch thread, so a paint that got the board before it was demoted is
+ * over before the board is reset for another game.
+ */
+class GameHistory {
+
+  private final int hotLimit;
+  private final long memoryBudget;
+  private final BoardPool pool;
+
+  // access ordered, so the eldest entry is the least recently used
+  private final LinkedHashMap<BoardViewModel, Boolean> hot = new LinkedHashMap<>(16, 0.75f, true);
+  private final ArrayDeque<BoardViewModel> warm = new ArrayDeque<>();
+  private long warmBytes;
+  private SpillFile spillFile;
+
+  /**
+   * @param hotLimit     the number of finished games kept with full boards
+   * @param memoryBudget the number of bytes demoted games may occupy before
+   *                     they are spilled to disk
+   */
+  GameHistory(int hotLimit, long memoryBudget) {
+    this(hotLimit, memoryBudget, null);
+  }
+
+  /**
+   * @param pool where boards of demoted games go, or null to let them be
+   *             collected
+   */
+  GameHistory(int hotLimit, long memoryBudget, BoardPool pool) {
+    this.hotLimit = hotLimit;
+    this.memoryBudget = memoryBudget;
+    this.pool = pool;
+  }
+
+  /**
+   * Record that a game has ended, it becomes the most recently used.
+   *
+   * @param vm the game that finished
+   */
+  synchronized void finished(BoardViewModel vm) {
+    hot.put(vm, Boolean.TRUE);
+    enforce();
+  }
+
+  /**
+   * Record that a finished game is being looked at. This makes it hot again
+   * if it had been demoted or spilled.
+   *
+   * @param vm the game being displayed
+   */
+  synchronized void touch(BoardViewModel vm) {
+    if (hot.get(vm) != null) {
+      return; // get() has refreshed the access order
+    }
+    if (warm.remove(vm)) {
+      warmBytes -= vm.compactBytes();
+    } else if (vm.isHot()) {
+      return; // still in progress, not ours to manage yet
+    }
+    vm.getBoard();
+    hot.put(vm, Boolean.TRUE);
+    enforce();
+  }
+
+  /**
+   * Stop tracking a game that is no longer browsable.
+   *
+   * @param vm the game to drop
+   */
+  synchronized void forget(BoardViewModel vm) {
+    hot.remove(vm);
+    if (warm.remove(vm)) {
+      warmBytes -= vm.compactBytes();
+    }
+  }
+
+  private void enforce() {
+    Iterator<BoardViewModel> lru = hot.keySet().iterator();
+    while (hot.size() > hotLimit && lru.hasNext()) {
+      BoardViewModel eldest = lru.next();
+      lru.remove();
+      recycle(eldest.demote());
+      warmBytes += eldest.compactBytes();
+      warm.addLast(eldest);
+    }
+    while (warmBytes > memoryBudget && !warm.isEmpty()) {
+      BoardViewModel oldest = warm.removeFirst();
+      try {
+        warmBytes -= oldest.spill(spillFile());
+      } catch (IOException e) {
+        // keep it in memory, better than losing it
+        warm.addFirst(oldest);
+        System.out.println("Could not spill game " + oldest.getSeed() + ": " + e);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Return a board that no model holds any more to the pool. The Swing
+   * thread may have got it from its model just before and still be painting
+   * it, so it is only released once the Swing thread is done with that.
+   *
+   * @param board the board, or null for nothing to do
+   */
+  void recycle(Board board) {
+    if (board != null && pool != null) {
+      SwingUtilities.invokeLater(() -> pool.release(board));
+    }
+  }
+
+  private SpillFile spillFile() throws IOException {
+    if (spillFile == null) {
+      spillFile = new SpillFile();
+    }
+    return spillFile;
+  }
+
+  /**
+   * An append only file of {@link GameRecord}s, removed when the program exits.
+   */
+  static class SpillFile {
+    private final RandomAccessFile raf;
+
+    SpillFile() throws IOException {
+      File file = File.createTempFile("leelawatcher-history", ".bin");
+      file.deleteOnExit();
+      raf = new RandomAccessFile(file, "rw");
+    }
+
+    synchronized long write(GameRecord record) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      record.writeTo(new DataOutputStream(bytes));
+      long offset = raf.length();
+      raf.seek(offset);
+      raf.write(bytes.toByteArray());
+      return offset;
+    }
+
+    synchronized GameRecord read(long offset) throws IOException {
+      raf.seek(offset);
+      return GameRecord.readFrom(raf);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+/**
+ * The games that can be browsed, oldest first.
+ * <p>
+ * Games are only ever added at the end and dropped from the front, so each
+ * {@link BoardViewModel} remembers the sequence number it was added with and
+ * its index is that number less the number of games dropped so far. Finding
+ * where a game is, or whether it is still here, therefore takes constant
+ * time however long the history grows.
+ */
+class GameList {
+
+  private BoardViewModel[] games = new BoardViewModel[64];
+  private int first;     // slot of the oldest game
+  private int size;
+  private long firstSeq; // sequence number of the oldest game
+
+  synchronized void add(BoardViewModel vm) {
+    if (size == games.length) {
+      BoardViewModel[] bigger = new BoardViewModel[games.length * 2];
+      for (int i = 0; i < size; i++) {
+        bigger[i] = games[(first + i) % games.length];
+      }
+      games = bigger;
+      first = 0;
+    }
+    games[(first + size) % games.length] = vm;
+    vm.listSeq = firstSeq + size;
+    size++;
+  }
+
+  /**
+   * Drop the oldest game.
+   *
+   * @return The game dropped.
+   */
+  synchronized BoardViewModel removeFirst() {
+    if (size == 0) {
+      throw new IllegalStateException("no games");
+    }
+    BoardViewModel vm = games[first];
+    games[first] = null;
+    first = (first + 1) % games.length;
+    firstSeq++;
+    size--;
+    vm.listSeq = -1;
+    return vm;
+  }
+
+  synchronized BoardViewModel get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index + " of " + size);
+    }
+    return games[(first + index) % games.length];
+  }
+
+  /**
+   * @return where a game is, or -1 if it is not here.
+   */
+  synchronized int indexOf(BoardViewModel vm) {
+    if (vm == null || vm.listSeq < firstSeq) {
+      return -1;
+    }
+    long index = vm.listSeq - firstSeq;
+    return index < size && games[(int) ((first + index) % games.length)] == vm ? (int) index : -1;
+  }
+
+  boolean contains(BoardViewModel vm) {
+    return indexOf(vm) >= 0;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized BoardViewModel[] toArray() {
+    BoardViewModel[] result = new BoardViewModel[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = games[(first + i) % games.length];
+    }
+    return result;
+  }
+}
@@ -20,6 +20,8 @@ import leelawatcher.TsbConstants;
 import leelawatcher.goboard.Move;
 import leelawatcher.goboard.Position;
 import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.jfr.Jfr;
+import leelawatcher.jfr.RenderEvent;
 
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
@@ -144,8 +146,22 @@ public class ImageMaker implements TsbConstants {
   }
 
   public BufferedImage paintBoard(int pixAvail, int size, Position pos) {
+    return paintBoard(pixAvail, size, pos, null);
+  }
+
+  /**
+   * Paint a board, shading each point by who is expected to own it.
+   *
+   * @param ownership from 1 for black to -1 for white for each point,
+   *                  <code>y * size + x</code>, or null for no shading
+   */
+  public BufferedImage paintBoard(int pixAvail, int size, Position pos, float[] ownership) {
     // PixAvail is the number of pixels (square) we have to draw the board.
     // Size is the number of lines we need to draw.
+    RenderEvent event = Jfr.isRecording() ? new RenderEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
 
     int makeSize = pixAvail;
     makeSize = Math.max(21, makeSize); // but not too small...
@@ -279,6 +295,10 @@ public class ImageMaker implements TsbConstants {
                      (pos.blackAt(x, y)) ? Color.black : Color.white,
                      stnSize, BGraphs);
 
+    if (ownership != null) {
+      paintOwnership(ownership, size, lineSp, BGraphs);
+    }
+
     // mark last move
     PointOfPlay lastMove = pos.getLastMove();
 
@@ -291,6 +311,29 @@ public class ImageMaker implements TsbConstants {
                          stnSize/(int)(lastPlayedDotScaledDownFactor/2));
     }
 
+    if (event != null) {
+      event.finish(makeSize);
+    }
     return BoardImg;
   }
+
+  // a square on each point, as dark or light and as solid as the owner is
+  // certain, so stones likely to be dead stand out against their color
+
+  private void paintOwnership(float[] ownership, int size, float lineSp, Graphics2D g) {
+    int square = Math.max(2, Math.round(lineSp / 2));
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        float own = ownership[y * size + x];
+        int alpha = Math.round(Math.min(1, Math.abs(own)) * 200);
+        if (alpha < 20) {
+          continue;
+        }
+        g.setColor(own > 0 ? new Color(0, 0, 0, alpha) : new Color(255, 255, 255, alpha));
+        g.fillRect(Math.round(lineSp + x * lineSp - square / 2f),
+            Math.round(lineSp + ((size - 1) - y) * lineSp - square / 2f),
+            square, square);
+      }
+    }
+  }
 }
@@ -18,43 +18,109 @@ package leelawatcher.gui;
 import com.google.common.io.Resources;
 import com.intellij.uiDesigner.core.GridConstraints;
 import com.intellij.uiDesigner.core.GridLayoutManager;
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameEventSink;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.Message;
+import leelawatcher.event.MoveVerifier;
+import leelawatcher.event.ScoreVerifier;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Patterns;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.index.GameIndex;
+import leelawatcher.index.PatternIndex;
+import leelawatcher.index.PositionHit;
+import leelawatcher.index.PositionIndex;
+import leelawatcher.jfr.Jfr;
+import leelawatcher.metrics.Metrics;
+import leelawatcher.metrics.MetricsExporter;
+import leelawatcher.openings.OpeningTree;
+import leelawatcher.openings.OpeningTreeSink;
 import leelawatcher.parser.AutoGtpOutputParser;
+import leelawatcher.parser.FollowInputStream;
+import leelawatcher.parser.OverflowPolicy;
+import leelawatcher.parser.ReplayInputStream;
+import leelawatcher.parser.SyntheticInputStream;
+import leelawatcher.scorer.AreaScorer;
+import leelawatcher.sgf.SgfWriterSink;
 import org.docopt.Docopt;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LeelaWatcher {
-  private AutoGtpOutputParser parser;
+  private final GameEventBus bus = new GameEventBus(AutoGtpOutputParser.QUEUE_CAPACITY);
+  private final List<AutoGtpOutputParser> parsers = new ArrayList<>();
+  private final AtomicInteger gameIds = new AtomicInteger();
+  private final OpeningTree openingTree = new OpeningTree(openingDepth, openingsDir != null);
 
   private JTextArea leelaOutputTextArea;
   private JPanel top;
+  private JPanel boardPanel;
   private BoardView boardView;
+  private WinRateChart winRateChart;
+  private JPanel scrubPanel;
+  private JSlider scrubSlider;
+  private boolean scrubUpdating;
   private JScrollPane textScrollPane;
   private JSplitPane splitPane;
   private JButton previousButton;
   private JButton nextButton;
+  private JToggleButton gridButton;
+  private MosaicView mosaicView;
+  private JToggleButton openingsButton;
+  private OpeningView openingView;
   private JTextArea gameInfo;
   private static Process proc;
 
   // flags
   private static boolean dontSaveGames;
   private static boolean hideOutputWindow;
+  private static String verify;
+  private static boolean flightRecording;
+  private static int openingDepth = OpeningTree.DEFAULT_DEPTH;
+  private static String openingsDir;
+  private static PositionIndex positionIndex;
+  private static PatternIndex patternIndex;
+  private static final int FIND_LIMIT = 50;
 
   private void createUIComponents() {
-    boardView = new BoardView();
+    boardView = new BoardView(bus);
     boardView.setGameInfo = str -> {
       gameInfo.setText(str);
     };
+    winRateChart = new WinRateChart();
+    boardView.showWinRates = series -> winRateChart.show(series);
+    boardView.showScrub = (moveCount, shownMove) -> {
+      scrubUpdating = true;
+      scrubSlider.setMaximum(moveCount);
+      scrubSlider.setValue(shownMove);
+      scrubUpdating = false;
+    };
+    mosaicView = new MosaicView(boardView::activeBoards);
+    openingView = new OpeningView(openingTree);
   }
 
   private void setupListeners() {
@@ -65,6 +131,224 @@ public class LeelaWatcher {
     nextButton.addActionListener(e -> {
       boardView.nextBoard();
     });
+
+    gridButton.addActionListener(e -> {
+      openingsButton.setSelected(false);
+      showGrid(gridButton.isSelected());
+    });
+
+    openingsButton.addActionListener(e -> {
+      gridButton.setSelected(false);
+      showLeft(openingsButton.isSelected() ? openingView : boardPanel);
+    });
+
+    scrubSlider.addChangeListener(e -> {
+      if (!scrubUpdating) {
+        boardView.scrubTo(scrubSlider.getValue());
+      }
+    });
+    // clicking the board gives it the keys below, without taking them from the output text
+    boardView.setFocusable(true);
+    boardView.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        boardView.requestFocusInWindow();
+      }
+    });
+    bindKey(KeyEvent.VK_LEFT, "stepBack", () -> boardView.stepMove(-1));
+    bindKey(KeyEvent.VK_RIGHT, "stepForward", () -> boardView.stepMove(1));
+    bindKey(KeyEvent.VK_HOME, "firstMove", () -> boardView.scrubTo(0));
+    bindKey(KeyEvent.VK_END, "latestMove", () -> boardView.scrubTo(Integer.MAX_VALUE));
+
+    mosaicView.setOnSelect(vm -> {
+      boardView.showBoard(vm);
+      gridButton.setSelected(false);
+      showGrid(false);
+    });
+
+    JPopupMenu menu = new JPopupMenu();
+    if (positionIndex != null) {
+      JMenuItem find = new JMenuItem("Find saved games through this position");
+      find.addActionListener(e -> findGames(boardView.shownPosition()));
+      menu.add(find);
+    }
+    if (patternIndex != null) {
+      JMenuItem shape = new JMenuItem("Count the shape of this move");
+      shape.addActionListener(e -> countShape(boardView.shownPosition(1), boardView.shownPosition()));
+      menu.add(shape);
+    }
+    if (menu.getComponentCount() > 0) {
+      boardView.setComponentPopupMenu(menu);
+    }
+  }
+
+  /**
+   * List the saved games that went through a position in the output window,
+   * looking them up in the background.
+   */
+  private void findGames(Position position) {
+    if (position == null) {
+      return;
+    }
+    ForkJoinPool.commonPool().execute(() -> {
+      List<PositionHit> hits = positionIndex.find(position.getArrayBlack(), position.getArrayWhite(),
+          position.isBlackToMove(), FIND_LIMIT);
+      StringBuilder sb = new StringBuilder();
+      sb.append(hits.size() == FIND_LIMIT ? "The first " : "").append(hits.size())
+          .append(" saved games through this position:");
+      for (PositionHit hit : hits) {
+        sb.append("\n  ").append(hit);
+      }
+      say(sb.toString());
+    });
+  }
+
+  private void bindKey(int keyCode, String name, Runnable action) {
+    boardPanel.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT)
+        .put(KeyStroke.getKeyStroke(keyCode, 0), name);
+    boardPanel.getActionMap().put(name, new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        action.run();
+      }
+    });
+  }
+
+  private void showGrid(boolean grid) {
+    showLeft(grid ? mosaicView : boardPanel);
+  }
+
+  private void showLeft(JComponent view) {
+    int divider = splitPane.getDividerLocation();
+    splitPane.setLeftComponent(view);
+    splitPane.setDividerLocation(divider);
+    previousButton.setEnabled(view == boardPanel);
+    nextButton.setEnabled(view == boardPanel);
+  }
+
+  /**
+   * Count the openings of saved games in the background, alongside those of
+   * games still being played.
+   */
+  private void loadOpenings(Path dir) {
+    new Thread(() -> {
+      try {
+        long games = openingTree.load(dir);
+        say("Loaded the openings of " + games + " games from " + dir);
+      } catch (IOException e) {
+        say("Could not load openings from " + dir + ": " + e);
+      }
+    }, "opening-loader").start();
+  }
+
+  /**
+   * Parse autogtp output from a stream onto the event bus. Each stream gets
+   * its own parser, so several can be watched at once.
+   */
+  private void watch(InputStream input) {
+    AutoGtpOutputParser parser = new AutoGtpOutputParser(bus, gameIds::getAndIncrement);
+    parser.start(new BufferedInputStream(input));
+    parsers.add(parser);
+  }
+
+  /**
+   * Say in the output window how often the shapes of a move have been
+   * played in saved games, and when.
+   */
+  private void countShape(Position before, Position after) {
+    PointOfPlay point = after == null ? null : after.getLastMove();
+    if (before == null || point == null || point.getX() == Move.PASS) {
+      return;
+    }
+    boolean black = before.isBlackToMove();
+    int[] own = black ? before.getArrayBlack() : before.getArrayWhite();
+    int[] other = black ? before.getArrayWhite() : before.getArrayBlack();
+    ForkJoinPool.commonPool().execute(() -> {
+      for (int radius = 1; radius <= Patterns.MAX_RADIUS; radius++) {
+        long code = Patterns.code(own, other, point.getX(), point.getY(), radius);
+        int[] when = patternIndex.whenPlayed(code, 50);
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < when.length; b++) {
+          if (when[b] > 0) {
+            sb.append(' ').append(b * 50 + 1).append('-').append(b * 50 + 50).append(": ").append(when[b]);
+          }
+        }
+        say(Patterns.toString(code) + "played " + patternIndex.count(code)
+            + " times in saved games, by move:" + sb);
+      }
+    });
+  }
+
+  /**
+   * Publish a message for the output window.
+   */
+  private void say(String text) {
+    bus.publish(new Message(text));
+  }
+
+  private void showOutput(String str) {
+    JTextArea ta = leelaOutputTextArea;
+    ta.append(str + "\n");
+    JScrollBar vertical = textScrollPane.getVerticalScrollBar();
+    vertical.setValue(vertical.getMaximum());
+  }
+
+  private void subscribeSinks() {
+    bus.subscribe("output", new GameEventSink() {
+      @Override
+      public void gameScored(GameScored event) {
+        showOutput("Result: " + event.getScore() + " for game: " + event.getSeed());
+      }
+
+      @Override
+      public void autogtpError(AutogtpError event) {
+        showOutput("*ERROR*: " + event.getMessage());
+      }
+
+      @Override
+      public void message(Message event) {
+        showOutput(event.getText());
+      }
+    }, SwingUtilities::invokeLater);
+    bus.subscribe("board", boardView);
+    if (verify != null) {
+      MoveVerifier verifier = MoveVerifier.parse(verify, this::say);
+      if (verifier.isActive()) {
+        bus.subscribe("verify", verifier);
+      }
+    }
+    // one board per game, scored and then saved
+    ScoreVerifier records = new ScoreVerifier(AreaScorer.LEELA_ZERO_KOMI, this::say);
+    if (!dontSaveGames) {
+      List<GameIndex> indexes = new ArrayList<>();
+      if (positionIndex != null) {
+        indexes.add(positionIndex);
+      }
+      if (patternIndex != null) {
+        indexes.add(patternIndex);
+      }
+      records.share(new SgfWriterSink(new File("."), indexes));
+    }
+    bus.subscribe("records", records);
+    bus.subscribe("openings", new OpeningTreeSink(openingTree));
+    if (flightRecording) {
+      bus.subscribe("jfr", new GameEventSink() {
+        @Override
+        public void autogtpError(AutogtpError event) {
+          Jfr.dump("autogtp-error");
+        }
+      });
+    }
+  }
+
+  private static void closeOnExit(Closeable index, String what) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        index.close();
+      } catch (IOException e) {
+        System.err.println("Couldn't write the " + what + ": " + e);
+      }
+    }, "index-flush"));
   }
 
   public static void main(String[] args) throws IOException {
@@ -82,6 +366,59 @@ public class LeelaWatcher {
     if (optMap.get("-t") != null) {
       BoardView.POST_ENDGAME_THRESHOLD = Integer.parseInt((String) optMap.get("-t"));
     }
+    if (optMap.get("--hot") != null) {
+      BoardView.SIMUL_GAME_THRESHOLD = Integer.parseInt((String) optMap.get("--hot"));
+    }
+    if (optMap.get("--keep") != null) {
+      BoardView.HISTORY_LIMIT = Integer.parseInt((String) optMap.get("--keep"));
+    }
+    if (optMap.get("--history-mb") != null) {
+      BoardView.HISTORY_MEMORY_BUDGET = Long.parseLong((String) optMap.get("--history-mb")) * 1024 * 1024;
+    }
+    if (optMap.get("--overflow") != null) {
+      String policy = ((String) optMap.get("--overflow")).toUpperCase().replace('-', '_');
+      AutoGtpOutputParser.OVERFLOW_POLICY = OverflowPolicy.valueOf(policy);
+    }
+    if (optMap.get("--verify") != null) {
+      verify = (String) optMap.get("--verify");
+    }
+    if (optMap.get("--queue") != null) {
+      AutoGtpOutputParser.QUEUE_CAPACITY = Integer.parseInt((String) optMap.get("--queue"));
+    }
+    Metrics.REGISTRY.registerMBeans();
+    if (optMap.get("--metrics-port") != null) {
+      MetricsExporter.serve(Metrics.REGISTRY, Integer.parseInt((String) optMap.get("--metrics-port")));
+    }
+    if (optMap.get("--metrics-file") != null) {
+      MetricsExporter.writeEvery(Metrics.REGISTRY, Paths.get((String) optMap.get("--metrics-file")), 10);
+    }
+    if (optMap.get("--opening-moves") != null) {
+      openingDepth = Integer.parseInt((String) optMap.get("--opening-moves"));
+    }
+    if (optMap.get("--openings") != null) {
+      openingsDir = (String) optMap.get("--openings");
+    }
+    if (optMap.get("--index") != null) {
+      positionIndex = new PositionIndex(Paths.get((String) optMap.get("--index")));
+      closeOnExit(positionIndex, "position index");
+    }
+    if (optMap.get("--patterns") != null) {
+      patternIndex = new PatternIndex(Paths.get((String) optMap.get("--patterns")));
+      closeOnExit(patternIndex, "pattern index");
+    }
+    if ((boolean) optMap.get("--jfr") && Jfr.start(Paths.get("."))) {
+      flightRecording = true;
+      Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+      Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
+        Jfr.dump("uncaught");
+        if (previous != null) {
+          previous.uncaughtException(t, e);
+        } else {
+          System.err.print("Exception in thread \"" + t.getName() + "\" ");
+          e.printStackTrace();
+        }
+      });
+    }
 
 
     LeelaWatcher leelaWatcher = new LeelaWatcher();
@@ -92,11 +429,17 @@ public class LeelaWatcher {
     frame.addWindowListener(new WindowAdapter() {
       @Override
       public void windowClosing(WindowEvent e) {
-        proc.destroyForcibly();
+        if (proc != null) {
+          proc.destroyForcibly();
+        }
         super.windowClosing(e);
       }
     });
     leelaWatcher.setupListeners();
+    leelaWatcher.subscribeSinks();
+    if (openingsDir != null) {
+      leelaWatcher.loadOpenings(Paths.get(openingsDir));
+    }
 
     if (hideOutputWindow) {
       leelaWatcher.leelaOutputTextArea.setRows(0);
@@ -109,40 +452,37 @@ public class LeelaWatcher {
     frame.setVisible(true);
     SwingUtilities.invokeLater(() -> {
       try {
-        //noinspection SpellCheckingInspection
-        String cmd;
-        Object cmdObj = optMap.get("<cmd>");
-        if (cmdObj != null) {
-          cmd = String.valueOf(cmdObj);
-        } else {
-          cmd = "./autogtp";
-        }
-        System.out.println("cmd is " + cmd);
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.directory(new File(String.valueOf(optMap.get("<dir>"))));
-        pb.redirectErrorStream(true);
-        proc = pb.start();
-        leelaWatcher.parser = new AutoGtpOutputParser(leelaWatcher.boardView);
-        leelaWatcher.parser.addPropertyChangeListener(evt -> {
-          if ("message".equals(evt.getPropertyName())) {
-            JTextArea ta = leelaWatcher.leelaOutputTextArea;
-            ta.setText(ta.getText() + evt.getNewValue());
-            JScrollBar vertical = leelaWatcher.textScrollPane.getVerticalScrollBar();
-            vertical.setValue(vertical.getMaximum());
+        if ((boolean) optMap.get("--follow")) {
+          for (Object file : (List<?>) optMap.get("<file>")) {
+            leelaWatcher.watch(new FollowInputStream(Paths.get(String.valueOf(file))));
           }
-//          System.out.println("evt property name: " + evt.getPropertyName());
-          if ("inProgress".equals(evt.getPropertyName())) {
-//            System.out.println("evt new value: " + evt.getNewValue());
-            if (Objects.equals(evt.getNewValue(), false)) {
-//              System.out.println("dontSaveGames: " + dontSaveGames);
-              if (!dontSaveGames) {
-//                System.out.println("Saving finished games...");
-                leelaWatcher.boardView.saveGames();
-              }
-            }
+          return;
+        }
+        InputStream input;
+        if (optMap.get("--synthetic") != null) {
+          int inFlight = Integer.parseInt(String.valueOf(optMap.get("--synthetic")));
+          double rate = ReplayInputStream.parseSpeed(String.valueOf(optMap.get("--rate")));
+          input = new SyntheticInputStream(inFlight, rate, 0, System.nanoTime());
+        } else if (optMap.get("--replay") != null) {
+          double speed = ReplayInputStream.parseSpeed(String.valueOf(optMap.get("--speed")));
+          input = new ReplayInputStream(Paths.get(String.valueOf(optMap.get("--replay"))), speed);
+        } else {
+          //noinspection SpellCheckingInspection
+          String cmd;
+          Object cmdObj = optMap.get("<cmd>");
+          if (cmdObj != null) {
+            cmd = String.valueOf(cmdObj);
+          } else {
+            cmd = "./autogtp";
           }
-        });
-        leelaWatcher.parser.start(new BufferedInputStream(proc.getInputStream()));
+          System.out.println("cmd is " + cmd);
+          ProcessBuilder pb = new ProcessBuilder(cmd);
+          pb.directory(new File(String.valueOf(optMap.get("<dir>"))));
+          pb.redirectErrorStream(true);
+          proc = pb.start();
+          input = proc.getInputStream();
+        }
+        leelaWatcher.watch(input);
       } catch (IOException e) {
         e.printStackTrace();
       }
@@ -171,7 +511,19 @@ public class LeelaWatcher {
     splitPane.setEnabled(true);
     splitPane.setOrientation(0);
     top.add(splitPane, BorderLayout.CENTER);
-    splitPane.setLeftComponent(boardView);
+    boardPanel = new JPanel();
+    boardPanel.setLayout(new BorderLayout(0, 0));
+    splitPane.setLeftComponent(boardPanel);
+    boardPanel.add(boardView, BorderLayout.CENTER);
+    scrubPanel = new JPanel();
+    scrubPanel.setLayout(new BorderLayout(0, 0));
+    boardPanel.add(scrubPanel, BorderLayout.SOUTH);
+    scrubPanel.add(winRateChart, BorderLayout.CENTER);
+    scrubSlider = new JSlider();
+    scrubSlider.setMaximum(0);
+    scrubSlider.setValue(0);
+    scrubSlider.setToolTipText("Scrub through the moves of this game (Left/Right, Home/End)");
+    scrubPanel.add(scrubSlider, BorderLayout.SOUTH);
     textScrollPane = new JScrollPane();
     splitPane.setRightComponent(textScrollPane);
     leelaOutputTextArea = new JTextArea();
@@ -179,7 +531,7 @@ public class LeelaWatcher {
     leelaOutputTextArea.setText("");
     textScrollPane.setViewportView(leelaOutputTextArea);
     final JPanel panel1 = new JPanel();
-    panel1.setLayout(new GridLayoutManager(1, 3, new Insets(0, 0, 0, 0), -1, -1));
+    panel1.setLayout(new GridLayoutManager(1, 5, new Insets(0, 0, 0, 0), -1, -1));
     top.add(panel1, BorderLayout.NORTH);
     previousButton = new JButton();
     previousButton.setText("Prev");
@@ -187,11 +539,17 @@ public class LeelaWatcher {
     nextButton = new JButton();
     nextButton.setText("Next");
     panel1.add(nextButton, new GridConstraints(0, 1, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+    gridButton = new JToggleButton();
+    gridButton.setText("Grid");
+    panel1.add(gridButton, new GridConstraints(0, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+    openingsButton = new JToggleButton();
+    openingsButton.setText("Openings");
+    panel1.add(openingsButton, new GridConstraints(0, 3, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
     gameInfo = new JTextArea();
     gameInfo.setEditable(false);
     gameInfo.setLineWrap(true);
     gameInfo.setRows(0);
-    panel1.add(gameInfo, new GridConstraints(0, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_WANT_GROW, null, new Dimension(150, 50), null, 0, false));
+    panel1.add(gameInfo, new GridConstraints(0, 4, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_WANT_GROW, null, new Dimension(150, 50), null, 0, false));
   }
 
   /**
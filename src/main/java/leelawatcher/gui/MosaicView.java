@@ -0,0 +1,227 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Position;
+
+import javax.swing.*;
+import javax.swing.Timer;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Shows every active game at once as a grid of live thumbnails.
+ * <p>
+ * A swing timer checks the boards a few times a second. Only boards whose
+ * {@link Board#getVersion() version} changed since they were last drawn (or
+ * whose tile changed size) are handed to a pool of worker threads that draw
+ * them with a {@link ThumbnailRenderer}. Each tile keeps two images, the
+ * worker draws into the back one and swaps it to the front when done, so
+ * the event dispatch thread never waits on rendering and never sees a half
+ * drawn board.
+ * <p>
+ * The timer and the worker threads only exist while the view is in a
+ * window, they are started by {@link #addNotify()} and stopped by
+ * {@link #removeNotify()}.
+ */
+public class MosaicView extends JPanel {
+
+  private static final int FRAME_MILLIS = 100;
+  private static final int GAP = 4;
+  private static final int LABEL_HEIGHT = 14;
+  private static final int LINES = 19;
+
+  private final Supplier<List<BoardViewModel>> source;
+  private final ThumbnailRenderer renderer = new ThumbnailRenderer();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> frame());
+
+  // only touched on the event dispatch thread
+  private ExecutorService renderPool;
+  private final Map<BoardViewModel, Tile> tiles = new IdentityHashMap<>();
+  private List<BoardViewModel> shown = Collections.emptyList();
+  private int columns = 1;
+  private int tileSize;
+
+  private Consumer<BoardViewModel> onSelect = vm -> {
+  };
+
+  private static class Tile {
+    volatile BufferedImage front;
+    BufferedImage back;
+    volatile int renderedVersion = -1;
+    volatile int renderedSize = -1;
+    final AtomicBoolean busy = new AtomicBoolean();
+  }
+
+  /**
+   * Create a mosaic of the boards supplied.
+   *
+   * @param source supplies a snapshot of the boards to show, called on the
+   *               event dispatch thread once per frame.
+   */
+  MosaicView(Supplier<List<BoardViewModel>> source) {
+    this.source = source;
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        BoardViewModel vm = boardAt(e.getX(), e.getY());
+        if (vm != null) {
+          onSelect.accept(vm);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    renderPool = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "thumbnail-renderer");
+      t.setDaemon(true);
+      return t;
+    });
+    timer.start();
+  }
+
+  @Override
+  public void removeNotify() {
+    timer.stop();
+    renderPool.shutdown(); // renders under way finish on their own
+    renderPool = null;
+    tiles.clear();
+    shown = Collections.emptyList();
+    super.removeNotify();
+  }
+
+  /**
+   * Set the action taken when the user clicks on one of the thumbnails.
+   *
+   * @param onSelect receives the model of the board that was clicked.
+   */
+  void setOnSelect(Consumer<BoardViewModel> onSelect) {
+    this.onSelect = onSelect;
+  }
+
+  private void frame() {
+    if (renderPool == null || !isShowing()) {
+      return;
+    }
+    shown = source.get();
+    Set<BoardViewModel> live = Collections.newSetFromMap(new IdentityHashMap<>());
+    live.addAll(shown);
+    tiles.keySet().retainAll(live);
+    layoutTiles();
+    boolean changed = false;
+    for (BoardViewModel vm : shown) {
+      Tile tile = tiles.computeIfAbsent(vm, k -> new Tile());
+      Board board = vm.getBoard();
+      int version = board.getVersion();
+      if ((version != tile.renderedVersion || tileSize != tile.renderedSize)
+          && tile.busy.compareAndSet(false, true)) {
+        submit(tile, board.getCurrPos(), version, tileSize);
+        changed = true;
+      }
+    }
+    if (!changed) {
+      repaint(); // labels (move numbers, results) may still have changed
+    }
+  }
+
+  private void submit(Tile tile, Position pos, int version, int size) {
+    renderPool.submit(() -> {
+      try {
+        if (tile.back == null || tile.back.getWidth() != size) {
+          tile.back = ThumbnailRenderer.createImage(size);
+        }
+        renderer.render(pos, LINES, tile.back);
+        BufferedImage done = tile.back;
+        tile.back = tile.front;
+        tile.front = done;
+        tile.renderedVersion = version;
+        tile.renderedSize = size;
+      } finally {
+        tile.busy.set(false);
+      }
+      repaint();
+    });
+  }
+
+  private void layoutTiles() {
+    int n = Math.max(1, shown.size());
+    int w = Math.max(1, getWidth());
+    int h = Math.max(1, getHeight());
+    // choose the column count that gives the largest tiles
+    int best = 1;
+    int bestSize = 0;
+    for (int cols = 1; cols <= n; cols++) {
+      int rows = (n + cols - 1) / cols;
+      int size = Math.min(w / cols, h / rows - LABEL_HEIGHT) - GAP;
+      if (size > bestSize) {
+        bestSize = size;
+        best = cols;
+      }
+    }
+    columns = best;
+    tileSize = Math.max(LINES + 2, bestSize);
+  }
+
+  private BoardViewModel boardAt(int x, int y) {
+    int col = x / (tileSize + GAP);
+    int row = y / (tileSize + GAP + LABEL_HEIGHT);
+    int index = row * columns + col;
+    if (col >= columns || index < 0 || index >= shown.size()) {
+      return null;
+    }
+    return shown.get(index);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    g.setFont(g.getFont().deriveFont(10f));
+    for (int i = 0; i < shown.size(); i++) {
+      BoardViewModel vm = shown.get(i);
+      Tile tile = tiles.get(vm);
+      int x = (i % columns) * (tileSize + GAP);
+      int y = (i / columns) * (tileSize + GAP + LABEL_HEIGHT);
+      BufferedImage img = tile == null ? null : tile.front;
+      if (img != null) {
+        g.drawImage(img, x, y, this);
+      }
+      String label = vm.getSeed() + " M:" + vm.getBoard().getMoveNum()
+          + (vm.getScore() != null ? " " + vm.getScore() : "");
+      g.setColor(getForeground());
+      g.drawString(label, x, y + tileSize + LABEL_HEIGHT - 3);
+    }
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    return new Dimension(500, 500);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.openings.OpeningStats;
+import leelawatcher.openings.OpeningTree;
+
+import javax.swing.*;
+import javax.swing.Timer;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows how often each move was played from a position in the
+ * {@link OpeningTree}, starting from the empty board. Each move played is
+ * marked with the share of games that chose it, shaded from white to
+ * black by how often black went on to win. Clicking a marked move follows
+ * it, and right clicking goes back one move.
+ */
+public class OpeningView extends JPanel {
+
+  private static final int REFRESH_MILLIS = 1000;
+  private static final int INFO_HEIGHT = 16;
+  private static final int LINES = 19;
+
+  private final OpeningTree tree;
+  private final ImageMaker goImages = new ImageMaker();
+  private final List<PointOfPlay> path = new ArrayList<>();
+  private Board board = new Board();
+
+  // where the board was last drawn, for mapping clicks to points
+  private int boardX;
+  private int boardY;
+  private float lineSp = 1;
+
+  OpeningView(OpeningTree tree) {
+    this.tree = tree;
+    new Timer(REFRESH_MILLIS, e -> {
+      if (isShowing()) {
+        repaint(); // more games may have finished
+      }
+    }).start();
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        if (SwingUtilities.isRightMouseButton(e)) {
+          back();
+        } else {
+          follow(Math.round((e.getX() - boardX) / lineSp) - 1, LINES - Math.round((e.getY() - boardY) / lineSp));
+        }
+      }
+    });
+  }
+
+  private void follow(int x, int y) {
+    if (x < 0 || y < 0 || x >= LINES || y >= LINES) {
+      return;
+    }
+    Position pos = board.getCurrPos();
+    OpeningStats[] next = tree.continuations(pos.getArrayBlack(), pos.getArrayWhite(), !board.isWhiteMove());
+    if (next[y * LINES + x] == null) {
+      return;
+    }
+    try {
+      board.doMove(x, y);
+      path.add(new PointOfPlay(x, y));
+    } catch (IllegalMoveException e) {
+      return;
+    }
+    repaint();
+  }
+
+  private void back() {
+    if (path.isEmpty()) {
+      return;
+    }
+    path.remove(path.size() - 1);
+    board = new Board();
+    for (PointOfPlay p : path) {
+      try {
+        board.doMove(p.getX(), p.getY());
+      } catch (IllegalMoveException e) {
+        throw new IllegalStateException("replayed a legal opening", e);
+      }
+    }
+    repaint();
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    Position pos = board.getCurrPos();
+    int[] black = pos.getArrayBlack();
+    int[] white = pos.getArrayWhite();
+    boolean blackToMove = !board.isWhiteMove();
+    OpeningStats here = tree.get(black, white, blackToMove);
+    OpeningStats[] next = tree.continuations(black, white, blackToMove);
+
+    g.setColor(getForeground());
+    g.drawString("Move " + (path.size() + 1) + ": "
+        + (here == null ? "no games" : here + String.format(", black wins %.0f%%", here.getBlackWinRate() * 100))
+        + " (" + tree.size() + " positions)", 4, INFO_HEIGHT - 4);
+
+    int availW = getWidth();
+    int availH = getHeight() - INFO_HEIGHT;
+    int makeSize = Math.max(21, Math.min(availW, availH));
+    boardX = (availW - makeSize) / 2;
+    boardY = INFO_HEIGHT + (availH - makeSize) / 2;
+    lineSp = makeSize / (float) (LINES + 1);
+    g.drawImage(goImages.paintBoard(makeSize, LINES, pos), boardX, boardY, this);
+
+    int visits = here == null ? 0 : here.getVisits();
+    int mark = Math.max(4, Math.round(lineSp * 0.8f));
+    g.setFont(g.getFont().deriveFont(Math.max(7f, lineSp / 2.8f)));
+    FontMetrics fm = g.getFontMetrics();
+    for (int y = 0; y < LINES; y++) {
+      for (int x = 0; x < LINES; x++) {
+        OpeningStats s = next[y * LINES + x];
+        if (s == null || visits == 0) {
+          continue;
+        }
+        int cx = boardX + Math.round(lineSp * (x + 1));
+        int cy = boardY + Math.round(lineSp * (LINES - y));
+        int shade = (int) Math.round(255 * (1 - s.getBlackWinRate()));
+        g.setColor(new Color(shade, shade, shade, 220));
+        g.fillOval(cx - mark / 2, cy - mark / 2, mark, mark);
+        g.setColor(shade < 128 ? Color.white : Color.black);
+        String share = Math.round(100.0 * s.getVisits() / visits) + "%";
+        g.drawString(share, cx - fm.stringWidth(share) / 2, cy + fm.getAscent() / 2 - 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Draws small boards straight into the pixel array of an image.
+ * <p>
+ * {@link ImageMaker} produces a nice looking board with textures, shadows and
+ * antialiasing, but at thumbnail size none of that is visible and going
+ * through Graphics2D for dozens of boards a frame is too slow. This class
+ * writes solid colors into the <code>int[]</code> raster of a
+ * <code>TYPE_INT_RGB</code> image instead. It holds no state so a single
+ * instance may be shared by any number of rendering threads, as long as
+ * each thread renders into its own image.
+ */
+class ThumbnailRenderer {
+
+  private static final int BOARD_RGB = 0xDCB35C;
+  private static final int LINE_RGB = 0x5A4A28;
+  private static final int BLACK_RGB = 0x101010;
+  private static final int WHITE_RGB = 0xF4F4F4;
+  private static final int OUTLINE_RGB = 0x404040;
+
+  /**
+   * Create an image suitable for passing to {@link #render}.
+   *
+   * @param pixels the width and height of the (square) thumbnail
+   * @return A new image backed by an int raster.
+   */
+  static BufferedImage createImage(int pixels) {
+    return new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * Draw a position into an image previously obtained from
+   * {@link #createImage(int)}.
+   *
+   * @param pos  the position to draw
+   * @param size the number of lines on the board
+   * @param img  the image to overwrite completely
+   */
+  void render(Position pos, int size, BufferedImage img) {
+    int px = img.getWidth();
+    int[] raster = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+
+    java.util.Arrays.fill(raster, 0, px * px, BOARD_RGB);
+
+    float lineSp = px / (float) (size + 1);
+    int first = Math.round(lineSp);
+    int last = Math.round(lineSp * size);
+    for (int line = 1; line <= size; line++) {
+      int at = Math.round(lineSp * line);
+      for (int i = first; i <= last; i++) {
+        raster[at * px + i] = LINE_RGB;   // horizontal
+        raster[i * px + at] = LINE_RGB;   // vertical
+      }
+    }
+
+    if (size == 19) {
+      for (int hx = 3; hx < 19; hx += 6) {
+        for (int hy = 3; hy < 19; hy += 6) {
+          fillSquare(raster, px, Math.round(lineSp * (hx + 1)), Math.round(lineSp * (hy + 1)), 1, LINE_RGB);
+        }
+      }
+    }
+
+    int diameter = Math.max(1, Math.round(lineSp - 1));
+    boolean[] disc = discMask(diameter);
+    int half = diameter / 2;
+
+    for (int y = 0; y < size; y++) {
+      int cy = Math.round(lineSp * (size - y));
+      for (int x = 0; x < size; x++) {
+        if (pos.stoneAt(x, y)) {
+          int cx = Math.round(lineSp * (x + 1));
+          boolean black = pos.blackAt(x, y);
+          fillDisc(raster, px, cx - half, cy - half, diameter, disc,
+              black ? BLACK_RGB : WHITE_RGB, black ? BLACK_RGB : OUTLINE_RGB);
+        }
+      }
+    }
+
+    PointOfPlay lastMove = pos.getLastMove();
+    if (lastMove != null && !Move.isPass(lastMove.getX(), lastMove.getY())) {
+      int cx = Math.round(lineSp * (lastMove.getX() + 1));
+      int cy = Math.round(lineSp * (size - lastMove.getY()));
+      int mark = pos.blackAt(lastMove.getX(), lastMove.getY()) ? WHITE_RGB : BLACK_RGB;
+      fillSquare(raster, px, cx, cy, Math.max(1, diameter / 6), mark);
+    }
+  }
+
+  // A diameter x diameter mask of the pixels that lie inside a stone.
+  private static boolean[] discMask(int diameter) {
+    boolean[] mask = new boolean[diameter * diameter];
+    float r = diameter / 2f;
+    for (int j = 0; j < diameter; j++) {
+      for (int i = 0; i < diameter; i++) {
+        float dx = i + 0.5f - r;
+        float dy = j + 0.5f - r;
+        mask[j * diameter + i] = dx * dx + dy * dy <= r * r;
+      }
+    }
+    return mask;
+  }
+
+  private static void fillDisc(int[] raster, int px, int left, int top, int diameter,
+                               boolean[] mask, int fill, int outline) {
+    for (int j = 0; j < diameter; j++) {
+      int row = top + j;
+      if (row < 0 || row >= px) {
+        continue;
+      }
+      for (int i = 0; i < diameter; i++) {
+        int col = left + i;
+        if (col < 0 || col >= px || !mask[j * diameter + i]) {
+          continue;
+        }
+        boolean edge = i == 0 || j == 0 || i == diameter - 1 || j == diameter - 1
+            || !mask[j * diameter + i - 1] || !mask[j * diameter + i + 1]
+            || !mask[(j - 1) * diameter + i] || !mask[(j + 1) * diameter + i];
+        raster[row * px + col] = edge ? outline : fill;
+      }
+    }
+  }
+
+  private static void fillSquare(int[] raster, int px, int cx, int cy, int radius, int rgb) {
+    for (int row = Math.max(0, cy - radius); row <= Math.min(px - 1, cy + radius); row++) {
+      for (int col = Math.max(0, cx - radius); col <= Math.min(px - 1, cx + radius); col++) {
+        raster[row * px + col] = rgb;
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.gui;
+
+import leelawatcher.goboard.WinRateSeries;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Plots the win rate of the displayed game, one point per move.
+ * <p>
+ * The plot is kept in an off screen image. When the same game gets more
+ * moves only the new segments are drawn onto that image. The whole series
+ * is replotted only when a different game is shown, the panel is resized or
+ * the game outgrows the horizontal scale (which then doubles, so that
+ * happens rarely).
+ */
+public class WinRateChart extends JPanel {
+
+  private static final int INITIAL_MOVES = 256;
+  private static final Color LINE = new Color(30, 90, 200);
+  private static final Color MIDLINE = new Color(0, 0, 0, 60);
+
+  private WinRateSeries series;
+  private BufferedImage plot;
+  private int plotted;      // how many points are already on the plot
+  private int movesAcross = INITIAL_MOVES;
+
+  WinRateChart() {
+    setPreferredSize(new Dimension(500, 60));
+  }
+
+  /**
+   * Show a series. Calling this again with the same series after moves are
+   * added draws just the new moves.
+   *
+   * @param series the win rates to show, or null to show none
+   */
+  void show(WinRateSeries series) {
+    if (series != this.series) {
+      this.series = series;
+      plot = null;
+      movesAcross = INITIAL_MOVES;
+    }
+    if (plot == null || series == null || series.size() != plotted) {
+      repaint();
+    }
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    int w = getWidth();
+    int h = getHeight();
+    if (w <= 0 || h <= 0) {
+      return;
+    }
+    int n = series == null ? 0 : series.size();
+    while (n > movesAcross) {
+      movesAcross *= 2;
+      plot = null;
+    }
+    if (plot == null || plot.getWidth() != w || plot.getHeight() != h) {
+      plot = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+      plotted = 0;
+      Graphics2D pg = plot.createGraphics();
+      pg.setColor(MIDLINE);
+      pg.drawLine(0, h / 2, w, h / 2);
+      pg.dispose();
+    }
+    if (n > plotted) {
+      Graphics2D pg = plot.createGraphics();
+      pg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      pg.setColor(LINE);
+      for (int i = Math.max(1, plotted); i < n; i++) {
+        pg.drawLine(x(i - 1, w), y(series.get(i - 1), h), x(i, w), y(series.get(i), h));
+      }
+      pg.dispose();
+      plotted = n;
+    }
+    g.drawImage(plot, 0, 0, this);
+  }
+
+  private int x(int move, int w) {
+    return (int) ((long) move * (w - 1) / movesAcross);
+  }
+
+  private static int y(float winRate, int h) {
+    float fraction = winRate > 1f ? winRate / 100f : winRate; // some versions print percent
+    float clamped = Math.max(0f, Math.min(1f, fraction));
+    return Math.round((1f - clamped) * (h - 1));
+  }
+}
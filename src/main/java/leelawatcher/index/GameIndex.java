@@ -0,0 +1,123 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Board;
+import leelawatcher.sgf.SgfReader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An index of saved games, added to as each game is saved and from
+ * archives of SGF files. Games are given ids in the order they are added.
+ */
+public interface GameIndex extends Closeable {
+
+  /**
+   * Add a game.
+   *
+   * @param name  what to call the game, usually its file
+   * @param board the game
+   * @return The id given to the game.
+   * @throws IOException if what was collected in memory had to be written
+   *                     and couldn't be
+   */
+  int addGame(String name, Board board) throws IOException;
+
+  /**
+   * Add a game. Black is assumed to move first, and the players to take
+   * turns.
+   *
+   * @param name  what to call the game, usually its file
+   * @param moves the moves from the start, <code>x &lt;&lt; 16 | y</code>
+   *              or <code>Move.PASS</code> for both
+   * @param count how many of the moves to use
+   * @return The id given to the game.
+   * @throws IOException if what was collected in memory had to be written
+   *                     and couldn't be
+   */
+  int addGame(String name, int[] moves, int count) throws IOException;
+
+  /**
+   * Add every game in an SGF file. Games in a file holding several are
+   * named after the file and their place in it.
+   *
+   * @param file the file, <code>.gz</code> files are uncompressed as they
+   *             are read
+   * @return The number of games added.
+   * @throws IOException if the file can't be read or the index written
+   */
+  default long addGames(Path file) throws IOException {
+    long added = 0;
+    int[] moves = new int[64];
+    try (InputStream raw = Files.newInputStream(file);
+         InputStream is = file.toString().endsWith(".gz") ? new GZIPInputStream(raw, 65536) : raw;
+         SgfReader reader = new SgfReader(new BufferedReader(
+             new InputStreamReader(is, StandardCharsets.ISO_8859_1), 65536))) {
+      for (int n = 1; reader.next(); n++) {
+        if (reader.getSize() != Bitboard.SIZE || reader.hasSetup()) {
+          continue;
+        }
+        if (moves.length < reader.getMoveCount()) {
+          moves = new int[reader.getMoveCount()];
+        }
+        for (int i = 0; i < reader.getMoveCount(); i++) {
+          moves[i] = reader.getX(i) << 16 | reader.getY(i);
+        }
+        addGame(n == 1 ? file.toString() : file + "#" + n, moves, reader.getMoveCount());
+        added++;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Find the SGF files under some directories.
+   *
+   * @param paths files or directories, searched recursively
+   * @return The files ending in .sgf, .sgf.gz or .sgfs, sorted in each
+   * directory given.
+   * @throws IOException if a directory can't be read
+   */
+  static List<Path> findSgfFiles(List<String> paths) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String path : paths) {
+      try (Stream<Path> found = Files.walk(Paths.get(path))) {
+        found.filter(Files::isRegularFile).filter(file -> {
+          String name = file.getFileName().toString().toLowerCase();
+          return name.endsWith(".sgf") || name.endsWith(".sgf.gz") || name.endsWith(".sgfs");
+        }).sorted().forEach(files::add);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+    return files;
+  }
+}
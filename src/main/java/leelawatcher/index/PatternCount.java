@@ -0,0 +1,48 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import leelawatcher.goboard.Patterns;
+
+/**
+ * How often a shape was played, from a {@link PatternIndex}.
+ */
+public final class PatternCount {
+
+  private final long code;
+  private final int count;
+
+  PatternCount(long code, int count) {
+    this.code = code;
+    this.count = count;
+  }
+
+  /**
+   * @return the shape, as made by {@link Patterns#code}.
+   */
+  public long getCode() {
+    return code;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return count + " times\n" + Patterns.toString(code);
+  }
+}
@@ -0,0 +1,271 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Patterns;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the shapes moves are played into, and finds the games and moves
+ * where a shape was played.
+ * <p>
+ * Each move is coded by {@link Patterns} as the 3x3 and the 5x5 shape
+ * around it, and the index maps each code to the games and move counts it
+ * was played at, kept in a {@link PostingStore} that also holds a count
+ * per code. The codes of a game are worked out before the index is
+ * locked, so games from several threads are added in parallel but for the
+ * final append. Passes have no shape and are left out.
+ * <p>
+ * Run with a directory for the index and the SGF files or directories to
+ * add, which are read several files at a time, to add them and list the
+ * most common shapes:
+ * <pre>
+ *   java -cp LeelaWatcher.jar leelawatcher.index.PatternIndex patterns/ games/
+ * </pre>
+ */
+public class PatternIndex implements GameIndex {
+
+  /**
+   * How many codes are collected in memory before they are written, two
+   * for each move.
+   */
+  public static final int FLUSH_CODES = 1 << 21;
+
+  private static final int SIZE = Bitboard.SIZE;
+
+  private final PostingStore store;
+
+  /**
+   * Open an index, creating it if the directory holds none.
+   *
+   * @param dir the directory the segment files are kept in
+   * @throws IOException if the directory or its segments can't be read
+   */
+  public PatternIndex(Path dir) throws IOException {
+    this(dir, FLUSH_CODES);
+  }
+
+  PatternIndex(Path dir, int flushCodes) throws IOException {
+    store = new PostingStore(dir, flushCodes);
+  }
+
+  @Override
+  public int addGame(String name, Board board) throws IOException {
+    long[] codes = new long[2 * board.getMoveCount()];
+    Position before = board.getPositionAt(0);
+    for (int i = 0; i < board.getMoveCount(); i++) {
+      Position after = board.getPositionAt(i + 1);
+      PointOfPlay point = after.getLastMove();
+      if (point != null && point.getX() != Move.PASS) {
+        int[] black = before.getArrayBlack();
+        int[] white = before.getArrayWhite();
+        boolean blackMoved = before.isBlackToMove();
+        setCodes(codes, i, blackMoved ? black : white, blackMoved ? white : black, point.getX(), point.getY());
+      }
+      before = after;
+    }
+    return add(name, codes);
+  }
+
+  @Override
+  public int addGame(String name, int[] moves, int count) throws IOException {
+    long[] codes = new long[2 * count];
+    int[] black = new int[SIZE];
+    int[] white = new int[SIZE];
+    int[] scratch = new int[SIZE];
+    for (int i = 0; i < count; i++) {
+      int x = moves[i] >> 16;
+      int y = moves[i] & 0xffff;
+      if (x == Move.PASS) {
+        continue;
+      }
+      if (i % 2 == 0) {
+        setCodes(codes, i, black, white, x, y);
+        Bitboard.play(black, white, x, y, scratch);
+      } else {
+        setCodes(codes, i, white, black, x, y);
+        Bitboard.play(white, black, x, y, scratch);
+      }
+    }
+    return add(name, codes);
+  }
+
+  private static void setCodes(long[] codes, int move, int[] own, int[] other, int x, int y) {
+    codes[2 * move] = Patterns.code(own, other, x, y, 1);
+    codes[2 * move + 1] = Patterns.code(own, other, x, y, 2);
+  }
+
+  /**
+   * Add the codes of a game, two for each move, with 0 for passes.
+   */
+  private synchronized int add(String name, long[] codes) throws IOException {
+    int game = store.startGame(name);
+    for (int i = 0; i < codes.length; i++) {
+      if (codes[i] != 0) {
+        store.add(codes[i], game, i / 2 + 1);
+      }
+    }
+    store.endGame();
+    return game;
+  }
+
+  /**
+   * @param code a shape, as made by {@link Patterns#code}
+   * @return how many times it has been played.
+   */
+  public synchronized int count(long code) {
+    return store.count(code);
+  }
+
+  /**
+   * Find where a shape was played.
+   *
+   * @param code  a shape, as made by {@link Patterns#code}
+   * @param limit the most moves to return
+   * @return The moves played into the shape, in the order their games were
+   * added, with the move count after each.
+   */
+  public synchronized List<PositionHit> find(long code, int limit) {
+    Postings postings = new Postings();
+    store.find(code, postings);
+    List<PositionHit> hits = new ArrayList<>();
+    for (int i = 0; i < Math.min(limit, postings.size); i++) {
+      hits.add(new PositionHit(postings.games[i], store.getGame(postings.games[i]), postings.moves[i]));
+    }
+    return hits;
+  }
+
+  /**
+   * Find out when in their games a shape tends to be played.
+   *
+   * @param code   a shape, as made by {@link Patterns#code}
+   * @param bucket how many moves to count together
+   * @return How often it was played, by move count divided by the bucket.
+   */
+  public synchronized int[] whenPlayed(long code, int bucket) {
+    Postings postings = new Postings();
+    store.find(code, postings);
+    int[] histogram = new int[0];
+    for (int i = 0; i < postings.size; i++) {
+      int b = (postings.moves[i] - 1) / bucket;
+      if (b >= histogram.length) {
+        histogram = Arrays.copyOf(histogram, b + 1);
+      }
+      histogram[b]++;
+    }
+    return histogram;
+  }
+
+  /**
+   * Find the shapes played most often.
+   *
+   * @param radius 1 for 3x3 shapes, 2 for 5x5
+   * @param n      how many to list
+   * @return The shapes, most played first.
+   */
+  public synchronized List<PatternCount> top(int radius, int n) {
+    PriorityQueue<PatternCount> best = new PriorityQueue<>(Comparator.comparingInt(PatternCount::getCount));
+    store.forEachCount((code, count) -> {
+      if (Patterns.radius(code) == radius && (best.size() < n || count > best.peek().getCount())) {
+        best.add(new PatternCount(code, count));
+        if (best.size() > n) {
+          best.poll();
+        }
+      }
+    });
+    List<PatternCount> result = new ArrayList<>(best);
+    result.sort(Comparator.comparingInt(PatternCount::getCount).reversed());
+    return result;
+  }
+
+  /**
+   * @param id the id a game was given when it was added
+   * @return The name it was added under.
+   */
+  public synchronized String getGame(int id) {
+    return store.getGame(id);
+  }
+
+  /**
+   * @return how many games have been added.
+   */
+  public synchronized int getGameCount() {
+    return store.getGameCount();
+  }
+
+  /**
+   * Write out the games collected in memory.
+   *
+   * @throws IOException if they can't be written
+   */
+  public synchronized void flush() throws IOException {
+    store.flush();
+  }
+
+  /**
+   * Write out the games collected in memory. Shapes can still be looked
+   * up, and games added, afterwards.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    store.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: PatternIndex <index dir> [<sgf file or dir>...]");
+      System.exit(1);
+    }
+    long start = System.nanoTime();
+    LongAdder added = new LongAdder();
+    try (PatternIndex index = new PatternIndex(Paths.get(args[0]))) {
+      List<Path> files = GameIndex.findSgfFiles(Arrays.asList(args).subList(1, args.length));
+      try {
+        files.parallelStream().forEach(file -> {
+          try {
+            added.add(index.addGames(file));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d games added, %.0f games/s%n", added.sum(), added.sum() / seconds);
+      for (int radius = 1; radius <= Patterns.MAX_RADIUS; radius++) {
+        for (PatternCount shape : index.top(radius, 10)) {
+          System.out.println(shape);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+/**
+ * A saved game that passed through a position looked up in a
+ * {@link PositionIndex}.
+ */
+public final class PositionHit {
+
+  private final int gameId;
+  private final String game;
+  private final int moveCount;
+
+  PositionHit(int gameId, String game, int moveCount) {
+    this.gameId = gameId;
+    this.game = game;
+    this.moveCount = moveCount;
+  }
+
+  /**
+   * @return the number the index gave the game, in the order games were
+   * added.
+   */
+  public int getGameId() {
+    return gameId;
+  }
+
+  /**
+   * @return the name the game was added under, usually its file.
+   */
+  public String getGame() {
+    return game;
+  }
+
+  /**
+   * @return how many moves had been played when the position came up.
+   */
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  @Override
+  public String toString() {
+    return game + " after move " + moveCount;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.Zobrist;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the saved games that passed through a position, in any of the eight
+ * orientations of the board.
+ * <p>
+ * Every position of every game added is keyed by its canonical
+ * {@link Zobrist} hash, and the index maps each key to the list of games
+ * and move counts it came up at. These are kept in a {@link PostingStore},
+ * so looking a position up is a binary search in each of a few
+ * memory-mapped segment files.
+ * <p>
+ * The starting position is not indexed, every game goes through it. Games
+ * still in memory are written by {@link #flush()} or {@link #close()}, and
+ * are lost if the program is killed first.
+ * <p>
+ * Run with a directory for the index and the SGF files or directories to
+ * add, <code>.gz</code> files are uncompressed as they are read:
+ * <pre>
+ *   java -cp LeelaWatcher.jar leelawatcher.index.PositionIndex index/ games/
+ * </pre>
+ */
+public class PositionIndex implements GameIndex {
+
+  /**
+   * How many positions are collected in memory before they are written.
+   */
+  public static final int FLUSH_POSITIONS = 1 << 20;
+
+  private static final int SIZE = Bitboard.SIZE;
+
+  private final PostingStore store;
+
+  // scratch for adding games, guarded by this
+  private final int[] black = new int[SIZE];
+  private final int[] white = new int[SIZE];
+  private final int[] blackBefore = new int[SIZE];
+  private final int[] whiteBefore = new int[SIZE];
+  private final int[] scratch = new int[SIZE];
+  private final long[] hashes = new long[Zobrist.SYMMETRIES];
+
+  /**
+   * Open an index, creating it if the directory holds none.
+   *
+   * @param dir the directory the segment files are kept in
+   * @throws IOException if the directory or its segments can't be read
+   */
+  public PositionIndex(Path dir) throws IOException {
+    this(dir, FLUSH_POSITIONS);
+  }
+
+  PositionIndex(Path dir, int flushPositions) throws IOException {
+    store = new PostingStore(dir, flushPositions);
+  }
+
+  @Override
+  public synchronized int addGame(String name, Board board) throws IOException {
+    int game = store.startGame(name);
+    Arrays.fill(blackBefore, 0);
+    Arrays.fill(whiteBefore, 0);
+    Zobrist.hash(blackBefore, whiteBefore, true, hashes);
+    for (int i = 1; i <= board.getMoveCount(); i++) {
+      Position position = board.getPositionAt(i);
+      int[] b = position.getArrayBlack();
+      int[] w = position.getArrayWhite();
+      Zobrist.update(hashes, blackBefore, whiteBefore, b, w);
+      store.add(Zobrist.canonical(hashes), game, i);
+      System.arraycopy(b, 0, blackBefore, 0, SIZE);
+      System.arraycopy(w, 0, whiteBefore, 0, SIZE);
+    }
+    store.endGame();
+    return game;
+  }
+
+  @Override
+  public synchronized int addGame(String name, int[] moves, int count) throws IOException {
+    int game = store.startGame(name);
+    Arrays.fill(black, 0);
+    Arrays.fill(white, 0);
+    Zobrist.hash(black, white, true, hashes);
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(black, 0, blackBefore, 0, SIZE);
+      System.arraycopy(white, 0, whiteBefore, 0, SIZE);
+      int x = moves[i] >> 16;
+      if (x != Move.PASS) {
+        if (i % 2 == 0) {
+          Bitboard.play(black, white, x, moves[i] & 0xffff, scratch);
+        } else {
+          Bitboard.play(white, black, x, moves[i] & 0xffff, scratch);
+        }
+      }
+      Zobrist.update(hashes, blackBefore, whiteBefore, black, white);
+      store.add(Zobrist.canonical(hashes), game, i + 1);
+    }
+    store.endGame();
+    return game;
+  }
+
+  /**
+   * Find the games that passed through a position, or one of its
+   * rotations or reflections.
+   *
+   * @param black       the black stones, as rows of a {@link Bitboard}
+   * @param white       the white stones
+   * @param blackToMove who plays next
+   * @param limit       the most games to return
+   * @return The games in the order they were added, one entry each time
+   * the position came up.
+   */
+  public synchronized List<PositionHit> find(int[] black, int[] white, boolean blackToMove, int limit) {
+    long[] h = new long[Zobrist.SYMMETRIES];
+    Zobrist.hash(black, white, blackToMove, h);
+    Postings postings = new Postings();
+    store.find(Zobrist.canonical(h), postings);
+    List<PositionHit> hits = new ArrayList<>();
+    for (int i = 0; i < Math.min(limit, postings.size); i++) {
+      hits.add(new PositionHit(postings.games[i], store.getGame(postings.games[i]), postings.moves[i]));
+    }
+    return hits;
+  }
+
+  /**
+   * @param id the id a game was given when it was added
+   * @return The name it was added under.
+   */
+  public synchronized String getGame(int id) {
+    return store.getGame(id);
+  }
+
+  /**
+   * @return how many games have been added.
+   */
+  public synchronized int getGameCount() {
+    return store.getGameCount();
+  }
+
+  synchronized int getSegmentCount() {
+    return store.getSegmentCount();
+  }
+
+  /**
+   * Write out the games collected in memory.
+   *
+   * @throws IOException if they can't be written
+   */
+  public synchronized void flush() throws IOException {
+    store.flush();
+  }
+
+  /**
+   * Write out the games collected in memory. Positions can still be looked
+   * up, and games added, afterwards.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    store.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: PositionIndex <index dir> <sgf file or dir>...");
+      System.exit(1);
+    }
+    long start = System.nanoTime();
+    long added = 0;
+    try (PositionIndex index = new PositionIndex(Paths.get(args[0]))) {
+      for (Path file : GameIndex.findSgfFiles(Arrays.asList(args).subList(1, args.length))) {
+        added += index.addGames(file);
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d games added, %.0f games/s%n", added, added / seconds);
+  }
+}
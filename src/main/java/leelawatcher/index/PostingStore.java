@@ -0,0 +1,366 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The storage behind {@link PositionIndex} and {@link PatternIndex}: a map
+ * from long keys to lists of (game, move count) postings, kept on disk as
+ * memory-mapped {@link Segment segments}.
+ * <p>
+ * Games are collected in memory and written out as a sorted segment once
+ * enough postings have built up. Whenever the newest {@value #MERGE_FANIN}
+ * segments are the same size they are merged into one, which keeps the
+ * number of segments logarithmic in the number of postings while every
+ * segment stays small enough to map. Not thread safe, the indexes guard
+ * their store.
+ */
+final class PostingStore {
+
+  interface KeyCount {
+    void lam(long key, int count);
+  }
+
+  private static final int MERGE_FANIN = 4;
+  private static final int MAX_LEVEL = 3; // about 64 million postings a segment
+
+  private final Path dir;
+  private final int flushPostings;
+  private final List<Segment> segments = new ArrayList<>();
+
+  // games not yet written, the first with id firstPending
+  private final List<String> pendingNames = new ArrayList<>();
+  private long[] keys = new long[1024];
+  private int[] games = new int[1024];
+  private int[] moves = new int[1024];
+  private int pending;
+  private int firstPending;
+
+  private final Postings postings = new Postings();
+
+  /**
+   * Open a store, creating it if the directory holds none.
+   *
+   * @param dir           the directory the segment files are kept in
+   * @param flushPostings how many postings to collect in memory before
+   *                      writing them
+   * @throws IOException if the directory or its segments can't be read
+   */
+  PostingStore(Path dir, int flushPostings) throws IOException {
+    this.dir = dir;
+    this.flushPostings = flushPostings;
+    Files.createDirectories(dir);
+    List<Segment> found = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          Files.delete(file); // left by a write that didn't finish
+        } else if (name.endsWith(".seg")) {
+          found.add(Segment.open(file));
+        }
+      }
+    }
+    // a merge that finished but didn't get to delete what it merged leaves
+    // segments covered by the merged one
+    found.sort(Comparator.comparingInt(Segment::getFirstGame)
+        .thenComparing(Comparator.comparingInt(Segment::getLevel).reversed()));
+    for (Segment segment : found) {
+      if (segment.getFirstGame() < firstPending) {
+        delete(segment);
+      } else {
+        segments.add(segment);
+        firstPending = segment.getFirstGame() + segment.getGameCount();
+      }
+    }
+  }
+
+  /**
+   * Start adding a game.
+   *
+   * @param name what to call it
+   * @return The id given to it.
+   */
+  int startGame(String name) {
+    pendingNames.add(name);
+    return firstPending + pendingNames.size() - 1;
+  }
+
+  void add(long key, int game, int move) {
+    if (pending == keys.length) {
+      keys = Arrays.copyOf(keys, pending * 2);
+      games = Arrays.copyOf(games, pending * 2);
+      moves = Arrays.copyOf(moves, pending * 2);
+    }
+    keys[pending] = key;
+    games[pending] = game;
+    moves[pending++] = move;
+  }
+
+  /**
+   * Finish adding a game, writing out what's in memory if there's enough.
+   *
+   * @throws IOException if it had to be written and couldn't be
+   */
+  void endGame() throws IOException {
+    if (pending >= flushPostings) {
+      flush();
+    }
+  }
+
+  /**
+   * Find the postings of a key.
+   *
+   * @param key the key
+   * @param out receives the postings, in the order their games were added
+   */
+  void find(long key, Postings out) {
+    for (Segment segment : segments) {
+      int i = segment.find(key);
+      if (i >= 0) {
+        segment.readPostings(i, out);
+      }
+    }
+    for (int i = 0; i < pending; i++) {
+      if (keys[i] == key) {
+        out.add(games[i], moves[i]);
+      }
+    }
+  }
+
+  /**
+   * Count the postings of a key, without reading them.
+   */
+  int count(long key) {
+    int count = 0;
+    for (Segment segment : segments) {
+      int i = segment.find(key);
+      if (i >= 0) {
+        count += segment.countAt(i);
+      }
+    }
+    for (int i = 0; i < pending; i++) {
+      if (keys[i] == key) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Go through every key, in increasing order, with its number of postings.
+   */
+  void forEachCount(KeyCount action) {
+    sortPending();
+    int[] at = new int[segments.size()];
+    int p = 0;
+    while (true) {
+      boolean any = p < pending;
+      long min = any ? keys[p] : 0;
+      for (int s = 0; s < segments.size(); s++) {
+        if (at[s] < segments.get(s).getKeyCount()) {
+          long key = segments.get(s).keyAt(at[s]);
+          if (!any || key < min) {
+            min = key;
+            any = true;
+          }
+        }
+      }
+      if (!any) {
+        return;
+      }
+      int count = 0;
+      for (int s = 0; s < segments.size(); s++) {
+        Segment segment = segments.get(s);
+        if (at[s] < segment.getKeyCount() && segment.keyAt(at[s]) == min) {
+          count += segment.countAt(at[s]++);
+        }
+      }
+      for (; p < pending && keys[p] == min; p++) {
+        count++;
+      }
+      action.lam(min, count);
+    }
+  }
+
+  /**
+   * @param id the id a game was given when it was added
+   * @return The name it was added under.
+   */
+  String getGame(int id) {
+    if (id >= firstPending) {
+      return pendingNames.get(id - firstPending);
+    }
+    for (Segment segment : segments) {
+      if (id < segment.getFirstGame() + segment.getGameCount()) {
+        return segment.getName(id);
+      }
+    }
+    throw new IllegalArgumentException("No game " + id);
+  }
+
+  int getGameCount() {
+    return firstPending + pendingNames.size();
+  }
+
+  int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Write out the games collected in memory, merging segments if that
+   * makes enough of the same size.
+   *
+   * @throws IOException if they can't be written
+   */
+  void flush() throws IOException {
+    if (pendingNames.isEmpty()) {
+      return;
+    }
+    sortPending();
+    Path file = segmentFile(firstPending, 0);
+    try (SegmentWriter writer = new SegmentWriter(file, 0, firstPending)) {
+      for (int i = 0; i < pending; ) {
+        long key = keys[i];
+        postings.clear();
+        for (; i < pending && keys[i] == key; i++) {
+          postings.add(games[i], moves[i]);
+        }
+        writer.add(key, postings);
+      }
+      writer.finish(pendingNames);
+    }
+    segments.add(Segment.open(file));
+    firstPending += pendingNames.size();
+    pendingNames.clear();
+    pending = 0;
+    while (segments.size() >= MERGE_FANIN) {
+      List<Segment> tail = segments.subList(segments.size() - MERGE_FANIN, segments.size());
+      int level = tail.get(0).getLevel();
+      if (level >= MAX_LEVEL || tail.stream().anyMatch(s -> s.getLevel() != level)) {
+        break;
+      }
+      Segment merged = merge(tail, level + 1);
+      List<Segment> old = new ArrayList<>(tail);
+      tail.clear();
+      segments.add(merged);
+      for (Segment segment : old) {
+        delete(segment);
+      }
+    }
+  }
+
+  /**
+   * Sort what's in memory by key with a radix sort, which being stable
+   * leaves each key's postings in the order they were added.
+   */
+  private void sortPending() {
+    long[] k2 = new long[pending];
+    int[] g2 = new int[pending];
+    int[] m2 = new int[pending];
+    int[] counts = new int[1 << 16];
+    for (int shift = 0; shift < 64; shift += 16) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < pending; i++) {
+        counts[digit(keys[i], shift)]++;
+      }
+      for (int d = 0, sum = 0; d < counts.length; d++) {
+        int c = counts[d];
+        counts[d] = sum;
+        sum += c;
+      }
+      for (int i = 0; i < pending; i++) {
+        int to = counts[digit(keys[i], shift)]++;
+        k2[to] = keys[i];
+        g2[to] = games[i];
+        m2[to] = moves[i];
+      }
+      System.arraycopy(k2, 0, keys, 0, pending);
+      System.arraycopy(g2, 0, games, 0, pending);
+      System.arraycopy(m2, 0, moves, 0, pending);
+    }
+  }
+
+  private static int digit(long key, int shift) {
+    // flipping the sign bit sorts the unsigned digits in signed order
+    return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xffff;
+  }
+
+  /**
+   * Merge consecutive segments into one, key by key.
+   */
+  private Segment merge(List<Segment> parts, int level) throws IOException {
+    int firstGame = parts.get(0).getFirstGame();
+    Path file = segmentFile(firstGame, level);
+    List<String> names = new ArrayList<>();
+    for (Segment part : parts) {
+      for (int g = 0; g < part.getGameCount(); g++) {
+        names.add(part.getName(part.getFirstGame() + g));
+      }
+    }
+    int[] at = new int[parts.size()];
+    try (SegmentWriter writer = new SegmentWriter(file, level, firstGame)) {
+      while (true) {
+        boolean any = false;
+        long min = 0;
+        for (int p = 0; p < parts.size(); p++) {
+          if (at[p] < parts.get(p).getKeyCount()) {
+            long key = parts.get(p).keyAt(at[p]);
+            if (!any || key < min) {
+              min = key;
+              any = true;
+            }
+          }
+        }
+        if (!any) {
+          break;
+        }
+        // the parts are in order of game, so their postings stay in order
+        postings.clear();
+        for (int p = 0; p < parts.size(); p++) {
+          Segment part = parts.get(p);
+          if (at[p] < part.getKeyCount() && part.keyAt(at[p]) == min) {
+            part.readPostings(at[p]++, postings);
+          }
+        }
+        writer.add(min, postings);
+      }
+      writer.finish(names);
+    }
+    return Segment.open(file);
+  }
+
+  private Path segmentFile(int firstGame, int level) {
+    return dir.resolve(String.format("%010d-%d.seg", firstGame, level));
+  }
+
+  private static void delete(Segment segment) {
+    try {
+      Files.deleteIfExists(segment.getFile());
+    } catch (IOException e) {
+      // still mapped on some platforms, it is dropped next time instead
+      System.err.println("Could not delete " + segment.getFile() + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of (game, move) pairs, the postings of one position.
+ */
+final class Postings {
+
+  int[] games = new int[16];
+  int[] moves = new int[16];
+  int size;
+
+  void clear() {
+    size = 0;
+  }
+
+  void add(int game, int move) {
+    if (size == games.length) {
+      games = Arrays.copyOf(games, size * 2);
+      moves = Arrays.copyOf(moves, size * 2);
+    }
+    games[size] = game;
+    moves[size++] = move;
+  }
+}
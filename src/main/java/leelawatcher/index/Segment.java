@@ -0,0 +1,198 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One immutable, memory-mapped file of a {@link PostingStore}, holding the
+ * postings of a run of consecutive games.
+ * <p>
+ * The file holds, in order: the posting lists, the sorted keys as longs, an
+ * int offset per key into the posting lists plus one for the end, an int
+ * count of postings per key, the game names as a length and UTF-8 bytes
+ * each, and a fixed size footer. Each
+ * posting is two varints, the game id less that of the posting before (or
+ * of the segment's first game) and the move count. Everything is big endian,
+ * as written by a {@link java.io.DataOutputStream}.
+ */
+final class Segment {
+
+  static final int MAGIC = 0x4c575049; // "LWPI"
+  static final int VERSION = 1;
+  static final int FOOTER_BYTES = 32;
+
+  private final Path file;
+  private final ByteBuffer buf;
+  private final int level;
+  private final int firstGame;
+  private final int gameCount;
+  private final int keyCount;
+  private final int keysAt;
+  private final int offsetsAt;
+  private final int countsAt;
+  private final int[] nameOffsets;
+
+  private Segment(Path file, ByteBuffer buf) throws IOException {
+    this.file = file;
+    this.buf = buf;
+    int footer = buf.capacity() - FOOTER_BYTES;
+    if (footer < 0 || buf.getInt(footer) != MAGIC || buf.getInt(footer + 4) != VERSION) {
+      throw new IOException(file + " is not a position index segment");
+    }
+    level = buf.getInt(footer + 8);
+    firstGame = buf.getInt(footer + 12);
+    gameCount = buf.getInt(footer + 16);
+    keyCount = buf.getInt(footer + 20);
+    int postingBytes = buf.getInt(footer + 24);
+    int namesBytes = buf.getInt(footer + 28);
+    keysAt = postingBytes;
+    offsetsAt = keysAt + 8 * keyCount;
+    countsAt = offsetsAt + 4 * (keyCount + 1);
+    int namesAt = countsAt + 4 * keyCount;
+    if (namesAt + namesBytes != footer) {
+      throw new IOException(file + " is truncated or corrupt");
+    }
+    nameOffsets = new int[gameCount + 1];
+    int at = namesAt;
+    for (int g = 0; g < gameCount; g++) {
+      nameOffsets[g] = at;
+      at += 4 + buf.getInt(at);
+    }
+    nameOffsets[gameCount] = at;
+  }
+
+  /**
+   * Map a segment file. The file need not stay open.
+   *
+   * @param file the file
+   * @return The segment.
+   * @throws IOException if the file can't be read or isn't a segment
+   */
+  static Segment open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to be a position index segment");
+      }
+      return new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  int getFirstGame() {
+    return firstGame;
+  }
+
+  int getGameCount() {
+    return gameCount;
+  }
+
+  int getKeyCount() {
+    return keyCount;
+  }
+
+  long keyAt(int i) {
+    return buf.getLong(keysAt + 8 * i);
+  }
+
+  /**
+   * Binary search for a key.
+   *
+   * @return The index of the key, or -1 if it isn't here.
+   */
+  int find(long key) {
+    int lo = 0;
+    int hi = keyCount - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      long k = keyAt(mid);
+      if (k < key) {
+        lo = mid + 1;
+      } else if (k > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param i the index of a key
+   * @return How many postings it has.
+   */
+  int countAt(int i) {
+    return buf.getInt(countsAt + 4 * i);
+  }
+
+  /**
+   * Decode the postings of a key, adding them to a list.
+   *
+   * @param i   the index of the key
+   * @param out receives the postings, in the order of the games
+   */
+  void readPostings(int i, Postings out) {
+    int p = buf.getInt(offsetsAt + 4 * i);
+    int end = buf.getInt(offsetsAt + 4 * (i + 1));
+    int game = firstGame;
+    while (p < end) {
+      int delta = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buf.get(p++);
+        delta |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      int move = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buf.get(p++);
+        move |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      game += delta;
+      out.add(game, move);
+    }
+  }
+
+  /**
+   * @param game a game id from this segment
+   * @return The name it was added under.
+   */
+  String getName(int game) {
+    int at = nameOffsets[game - firstGame];
+    byte[] bytes = new byte[buf.getInt(at)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buf.get(at + 4 + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
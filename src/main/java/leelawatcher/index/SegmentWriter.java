@@ -0,0 +1,161 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Writes a {@link Segment} one key at a time, in increasing key order, so
+ * that segments much larger than memory can be merged. The keys, offsets
+ * and counts go to temporary files until the postings are all written, and
+ * the segment only appears under its own name once it is complete.
+ */
+final class SegmentWriter implements Closeable {
+
+  private final Path file;
+  private final Path tmp;
+  private final Path keysTmp;
+  private final Path offsetsTmp;
+  private final Path countsTmp;
+  private final int level;
+  private final int firstGame;
+  private final DataOutputStream out;
+  private final DataOutputStream keys;
+  private final DataOutputStream offsets;
+  private final DataOutputStream counts;
+  private long postingBytes;
+  private int keyCount;
+  private boolean finished;
+
+  /**
+   * @param file      where the segment should end up
+   * @param level     how many rounds of merging it has been through
+   * @param firstGame the id of its first game
+   * @throws IOException if the files can't be created
+   */
+  SegmentWriter(Path file, int level, int firstGame) throws IOException {
+    this.file = file;
+    this.level = level;
+    this.firstGame = firstGame;
+    tmp = Paths.get(file + ".tmp");
+    keysTmp = Paths.get(file + ".keys.tmp");
+    offsetsTmp = Paths.get(file + ".offsets.tmp");
+    countsTmp = Paths.get(file + ".counts.tmp");
+    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 65536));
+    keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysTmp), 65536));
+    offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsTmp), 65536));
+    counts = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(countsTmp), 65536));
+  }
+
+  /**
+   * Write the postings of a key.
+   *
+   * @param key      greater than any key written before
+   * @param postings the games, in increasing order of id, none before the
+   *                 segment's first game
+   * @throws IOException if the postings can't be written
+   */
+  void add(long key, Postings postings) throws IOException {
+    keys.writeLong(key);
+    offsets.writeInt((int) postingBytes);
+    counts.writeInt(postings.size);
+    int game = firstGame;
+    for (int i = 0; i < postings.size; i++) {
+      writeVarint(postings.games[i] - game);
+      writeVarint(postings.moves[i]);
+      game = postings.games[i];
+    }
+    if (postingBytes > Integer.MAX_VALUE) {
+      throw new IOException(file + " would be too large to map");
+    }
+    keyCount++;
+  }
+
+  private void writeVarint(int v) throws IOException {
+    while ((v & ~0x7f) != 0) {
+      out.write(v & 0x7f | 0x80);
+      v >>>= 7;
+      postingBytes++;
+    }
+    out.write(v);
+    postingBytes++;
+  }
+
+  /**
+   * Complete the segment and move it into place.
+   *
+   * @param names the names of its games, in order of id
+   * @throws IOException if it can't be written
+   */
+  void finish(List<String> names) throws IOException {
+    offsets.writeInt((int) postingBytes);
+    keys.close();
+    offsets.close();
+    counts.close();
+    Files.copy(keysTmp, out);
+    Files.copy(offsetsTmp, out);
+    Files.copy(countsTmp, out);
+    long namesBytes = 0;
+    for (String name : names) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      namesBytes += 4 + bytes.length;
+    }
+    long total = postingBytes + 16L * keyCount + 4 + namesBytes + Segment.FOOTER_BYTES;
+    if (total > Integer.MAX_VALUE) {
+      throw new IOException(file + " would be too large to map");
+    }
+    out.writeInt(Segment.MAGIC);
+    out.writeInt(Segment.VERSION);
+    out.writeInt(level);
+    out.writeInt(firstGame);
+    out.writeInt(names.size());
+    out.writeInt(keyCount);
+    out.writeInt((int) postingBytes);
+    out.writeInt((int) namesBytes);
+    out.close();
+    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    finished = true;
+  }
+
+  /**
+   * Clean up the temporary files, and the segment too unless it was
+   * finished.
+   */
+  @Override
+  public void close() throws IOException {
+    out.close();
+    keys.close();
+    offsets.close();
+    counts.close();
+    Files.deleteIfExists(keysTmp);
+    Files.deleteIfExists(offsetsTmp);
+    Files.deleteIfExists(countsTmp);
+    if (!finished) {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.jfr;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Connects the watcher to Java Flight Recorder.
+ * <p>
+ * The watcher's events are disabled unless a recording asks for them, and
+ * the code that emits them first checks {@link #isRecording()}, a single
+ * volatile read, so nothing is even allocated while no recording runs.
+ * That covers recordings started any way, including one already running
+ * when this class is loaded, as with <code>-XX:StartFlightRecording</code>.
+ * <p>
+ * The event classes are used directly by the code they time, so the
+ * watcher needs a JVM with the <code>jdk.jfr</code> module, JDK 11 or
+ * 8u262 and later. If the flight recorder is disabled nothing is recorded.
+ * <p>
+ * {@link #start(Path)} starts the continuous recording behind the
+ * <code>--jfr</code> option: the last few minutes are kept in memory and
+ * written to a file when {@link #dump(String)} is called because something
+ * went wrong.
+ */
+public final class Jfr {
+
+  private static final Duration MAX_AGE = Duration.ofMinutes(10);
+  private static final long MAX_SIZE = 64L * 1024 * 1024;
+  private static final String[] EVENTS = {
+      ParseEvent.NAME, LegalityCheckEvent.NAME, RenderEvent.NAME, SgfWriteEvent.NAME,
+  };
+
+  private static volatile boolean recording;
+  private static Recording continuous;
+  private static Path dumpDir;
+
+  static {
+    try {
+      FlightRecorder.addListener(new FlightRecorderListener() {
+        @Override
+        public void recorderInitialized(FlightRecorder recorder) {
+          update(recorder);
+        }
+
+        @Override
+        public void recordingStateChanged(Recording changed) {
+          update(FlightRecorder.getFlightRecorder());
+        }
+      });
+      // a recording started before this class was loaded changes no state
+      // we would hear about
+      if (FlightRecorder.isInitialized()) {
+        update(FlightRecorder.getFlightRecorder());
+      }
+    } catch (IllegalStateException | SecurityException e) {
+      // flight recorder disabled or not allowed, so never recording
+    }
+  }
+
+  private static void update(FlightRecorder recorder) {
+    recording = recorder.getRecordings().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING);
+  }
+
+  private Jfr() {
+  }
+
+  /**
+   * @return True if any flight recording is running, so the watcher's
+   * events might be wanted.
+   */
+  public static boolean isRecording() {
+    return recording;
+  }
+
+  /**
+   * Start recording the watcher's events, along with the JDK's default
+   * ones such as GC and I/O, keeping the last ten minutes in memory.
+   *
+   * @param dir where to write dumps
+   * @return False if this JVM cannot record.
+   */
+  public static synchronized boolean start(Path dir) {
+    if (continuous != null) {
+      return true;
+    }
+    try {
+      Recording r = new Recording(jdk.jfr.Configuration.getConfiguration("default"));
+      for (String event : EVENTS) {
+        r.enable(event);
+      }
+      r.setName("leelawatcher");
+      r.setMaxAge(MAX_AGE);
+      r.setMaxSize(MAX_SIZE);
+      r.setToDisk(true);
+      r.start();
+      continuous = r;
+      dumpDir = dir;
+      return true;
+    } catch (IllegalStateException | SecurityException | IOException
+        | java.text.ParseException e) {
+      System.err.println("Could not start a flight recording: " + e);
+      return false;
+    }
+  }
+
+  /**
+   * Write what the continuous recording holds to a new file, if it was
+   * started.
+   *
+   * @param reason a word or two to put in the file name
+   * @return The file written, or null if there is no recording.
+   */
+  public static synchronized Path dump(String reason) {
+    if (continuous == null) {
+      return null;
+    }
+    String time = DateTimeFormatter.ISO_INSTANT.format(Instant.now()).replaceAll(":", "_");
+    Path file = dumpDir.resolve("leelawatcher_" + time + "_" + reason.replaceAll("\\W+", "-") + ".jfr");
+    try {
+      continuous.dump(file);
+      System.err.println("Flight recording written to " + file);
+      return file;
+    } catch (IOException e) {
+      System.err.println("Could not write flight recording: " + e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A move checked against the rules.
+ */
+@Name(LegalityCheckEvent.NAME)
+@Label("Legality Check")
+@Category("LeelaWatcher")
+@Enabled(false)
+@StackTrace(false)
+public class LegalityCheckEvent extends Event {
+
+  static final String NAME = "leelawatcher.LegalityCheck";
+
+  @Label("X")
+  public int x;
+
+  @Label("Y")
+  public int y;
+
+  @Label("History Size")
+  public int historySize;
+
+  @Label("Legal")
+  public boolean legal;
+
+  /**
+   * End the event and record it if the recording wants it.
+   */
+  public void finish(int x, int y, int historySize, boolean legal) {
+    end();
+    if (shouldCommit()) {
+      this.x = x;
+      this.y = y;
+      this.historySize = historySize;
+      this.legal = legal;
+      commit();
+    }
+  }
+}
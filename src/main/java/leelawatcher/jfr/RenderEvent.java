@@ -0,0 +1,50 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A board image painted.
+ */
+@Name(RenderEvent.NAME)
+@Label("Render Board")
+@Category("LeelaWatcher")
+@Enabled(false)
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+  static final String NAME = "leelawatcher.Render";
+
+  @Label("Pixels")
+  public int pixels;
+
+  /**
+   * End the event and record it if the recording wants it.
+   */
+  public void finish(int pixels) {
+    end();
+    if (shouldCommit()) {
+      this.pixels = pixels;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A game saved as an SGF file.
+ */
+@Name(SgfWriteEvent.NAME)
+@Label("Write SGF")
+@Category("LeelaWatcher")
+@Enabled(false)
+public class SgfWriteEvent extends Event {
+
+  static final String NAME = "leelawatcher.SgfWrite";
+
+  @Label("File")
+  public String file;
+
+  @Label("Moves")
+  public int moves;
+
+  /**
+   * End the event and record it if the recording wants it.
+   */
+  public void finish(String file, int moves) {
+    end();
+    if (shouldCommit()) {
+      this.file = file;
+      this.moves = moves;
+      commit();
+    }
+  }
+}
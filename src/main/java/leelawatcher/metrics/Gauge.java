@@ -0,0 +1,51 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value that can go up and down, read from its owner whenever it is
+ * exported.
+ */
+public final class Gauge extends Metric implements GaugeMBean {
+
+  private volatile LongSupplier value;
+
+  Gauge(String name, String help, LongSupplier value) {
+    super(name, help);
+    this.value = value;
+  }
+
+  void setSupplier(LongSupplier value) {
+    this.value = value;
+  }
+
+  @Override
+  public long getValue() {
+    return value.getAsLong();
+  }
+
+  @Override
+  String type() {
+    return "gauge";
+  }
+
+  @Override
+  void writeSamples(StringBuilder out) {
+    out.append(getName()).append(' ').append(getValue()).append('\n');
+  }
+}
@@ -0,0 +1,250 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long something took in fixed buckets, from 50 microseconds to
+ * 10 seconds, plus one for anything slower. Fixed buckets keep recording to
+ * a search and an add, and histograms from different runs comparable.
+ * <p>
+ * Besides the counts since startup that are exported, the last one to two
+ * minutes are counted on their own for a {@link #recentSummary() summary}
+ * that follows how things are going now. Two windows take turns: the older
+ * one is emptied and reused every minute.
+ */
+public final class LatencyHistogram extends Metric implements LatencyHistogramMBean {
+
+  private static final long[] BOUNDS_NANOS = {
+      50_000, 100_000, 250_000, 500_000,
+      1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+      100_000_000, 250_000_000, 500_000_000,
+      1_000_000_000, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L,
+  };
+
+  // the last bucket counts everything over the largest bound
+  private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private final LongAdder[][] windows = new LongAdder[2][BOUNDS_NANOS.length + 1];
+  private final LongAccumulator[] windowMax = new LongAccumulator[2];
+  private volatile int window;
+  private volatile long windowStart = System.nanoTime();
+
+  LatencyHistogram(String name, String help) {
+    super(name, help);
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+      windows[0][i] = new LongAdder();
+      windows[1][i] = new LongAdder();
+    }
+    windowMax[0] = new LongAccumulator(Math::max, 0);
+    windowMax[1] = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Record how long something took.
+   *
+   * @param nanos the time taken
+   */
+  public void record(long nanos) {
+    int lo = 0;
+    int hi = BOUNDS_NANOS.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (BOUNDS_NANOS[mid] < nanos) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    buckets[lo].increment();
+    count.increment();
+    sumNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+    int w = currentWindow();
+    windows[w][lo].increment();
+    windowMax[w].accumulate(nanos);
+  }
+
+  /**
+   * @return The window being recorded into, after moving on to the other
+   * one if a minute has passed.
+   */
+  private int currentWindow() {
+    long now = System.nanoTime();
+    if (now - windowStart >= WINDOW_NANOS) {
+      synchronized (windows) {
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+          int next = window ^ 1;
+          clearWindow(next);
+          if (elapsed >= 2 * WINDOW_NANOS) {
+            clearWindow(window); // nothing recorded for a while, none of it is recent
+          }
+          window = next;
+          windowStart = now;
+        }
+      }
+    }
+    return window;
+  }
+
+  private void clearWindow(int w) {
+    for (LongAdder bucket : windows[w]) {
+      bucket.reset();
+    }
+    windowMax[w].reset();
+  }
+
+  /**
+   * Record the time since something started.
+   *
+   * @param startNanos when it started, from {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public long getSumNanos() {
+    return sumNanos.sum();
+  }
+
+  @Override
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * Estimate a quantile of the times recorded, by interpolating within the
+   * bucket it falls in. The answer is never more than the slowest time
+   * recorded.
+   *
+   * @param q the quantile wanted, for example 0.99
+   * @return The estimate, or 0 if nothing has been recorded.
+   */
+  public long quantileNanos(double q) {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return quantile(counts, getMaxNanos(), q);
+  }
+
+  private static long quantile(long[] counts, long max, double q) {
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    double rank = q * total;
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0 && cumulative + counts[i] >= rank) {
+        long lower = i == 0 ? 0 : BOUNDS_NANOS[i - 1];
+        long upper = i == BOUNDS_NANOS.length ? max : BOUNDS_NANOS[i];
+        long estimate = lower + (long) ((upper - lower) * ((rank - cumulative) / counts[i]));
+        return Math.min(estimate, max);
+      }
+      cumulative += counts[i];
+    }
+    return max;
+  }
+
+  @Override
+  public long getP50Nanos() {
+    return quantileNanos(0.5);
+  }
+
+  @Override
+  public long getP99Nanos() {
+    return quantileNanos(0.99);
+  }
+
+  /**
+   * Describe the times recorded in a few words.
+   *
+   * @return The median, 99th percentile and slowest time in milliseconds.
+   */
+  public String summary() {
+    return summary(getP50Nanos(), getP99Nanos(), getMaxNanos());
+  }
+
+  /**
+   * Describe the times recorded in the last one to two minutes, so that a
+   * slow start does not show for the rest of the run.
+   *
+   * @return The median, 99th percentile and slowest time in milliseconds.
+   */
+  public String recentSummary() {
+    currentWindow(); // drop a window that is too old even if nothing was recorded
+    long[] counts = new long[buckets.length];
+    for (LongAdder[] w : windows) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += w[i].sum();
+      }
+    }
+    long max = Math.max(windowMax[0].get(), windowMax[1].get());
+    return summary(quantile(counts, max, 0.5), quantile(counts, max, 0.99), max);
+  }
+
+  private static String summary(long p50, long p99, long max) {
+    return String.format(Locale.ROOT, "p50 %.1fms p99 %.1fms max %.1fms",
+        millis(p50), millis(p99), millis(max));
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  String type() {
+    return "histogram";
+  }
+
+  @Override
+  void writeSamples(StringBuilder out) {
+    long cumulative = 0;
+    for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+      cumulative += buckets[i].sum();
+      out.append(getName()).append("_bucket{le=\"").append(seconds(BOUNDS_NANOS[i])).append("\"} ")
+          .append(cumulative).append('\n');
+    }
+    cumulative += buckets[BOUNDS_NANOS.length].sum();
+    out.append(getName()).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+    out.append(getName()).append("_sum ").append(seconds(getSumNanos())).append('\n');
+    out.append(getName()).append("_count ").append(cumulative).append('\n');
+  }
+
+  private static double seconds(long nanos) {
+    return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+}
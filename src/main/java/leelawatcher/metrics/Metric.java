@@ -0,0 +1,54 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+/**
+ * Something measured about the watcher while it runs, with a name and a
+ * line of help as Prometheus expects.
+ */
+public abstract class Metric {
+
+  private final String name;
+  private final String help;
+
+  Metric(String name, String help) {
+    if (!name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) {
+      throw new IllegalArgumentException("not a valid metric name: " + name);
+    }
+    this.name = name;
+    this.help = help;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHelp() {
+    return help;
+  }
+
+  /**
+   * @return The Prometheus type of this metric.
+   */
+  abstract String type();
+
+  /**
+   * Append the samples of this metric, without the HELP and TYPE lines.
+   *
+   * @param out where to write
+   */
+  abstract void writeSamples(StringBuilder out);
+}
@@ -0,0 +1,70 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The registry the watcher reports to, and the metrics that are counted in
+ * more than one place. Metrics owned by a single class are registered
+ * there.
+ */
+public final class Metrics {
+
+  public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+  public static final Counter LINES_PARSED = REGISTRY.counter("leelawatcher_lines_parsed_total",
+      "Lines of autogtp output parsed.");
+  public static final Counter LINES_DROPPED = REGISTRY.counter("leelawatcher_lines_dropped_total",
+      "Lines of autogtp output thrown away while parsing was behind.");
+  public static final Counter LINES_SPILLED = REGISTRY.counter("leelawatcher_lines_spilled_total",
+      "Lines of autogtp output written to disk while parsing was behind.");
+  public static final Counter MOVES_PARSED = REGISTRY.counter("leelawatcher_moves_parsed_total",
+      "Moves autogtp played, counted once however many boards replay them.");
+  public static final Counter GAMES_STARTED = REGISTRY.counter("leelawatcher_games_started_total",
+      "Games autogtp started.");
+  public static final Counter GAMES_FINISHED = REGISTRY.counter("leelawatcher_games_finished_total",
+      "Games autogtp scored.");
+  public static final LatencyHistogram SGF_WRITE = REGISTRY.histogram("leelawatcher_sgf_write_seconds",
+      "Time to write a finished game to an SGF file.");
+  public static final LatencyHistogram REPAINT = REGISTRY.histogram("leelawatcher_repaint_seconds",
+      "Time to paint the board view.");
+  public static final LatencyHistogram DISPLAY_LATENCY = REGISTRY.histogram("leelawatcher_display_latency_seconds",
+      "Time from reading a move from autogtp to painting it, for the oldest move in each frame.");
+  public static final LatencyHistogram SGF_LATENCY = REGISTRY.histogram("leelawatcher_sgf_latency_seconds",
+      "Time from reading a game's result from autogtp to its SGF file being written.");
+
+  static {
+    quantileGauges(DISPLAY_LATENCY, "leelawatcher_display_latency");
+    quantileGauges(SGF_LATENCY, "leelawatcher_sgf_latency");
+  }
+
+  private Metrics() {
+  }
+
+  /**
+   * Export the median, 99th percentile and slowest time of a histogram as
+   * gauges, for dashboards that cannot compute quantiles from buckets.
+   */
+  private static void quantileGauges(LatencyHistogram histogram, String prefix) {
+    REGISTRY.gauge(prefix + "_p50_microseconds", "Median of " + histogram.getName() + ".",
+        () -> TimeUnit.NANOSECONDS.toMicros(histogram.getP50Nanos()));
+    REGISTRY.gauge(prefix + "_p99_microseconds", "99th percentile of " + histogram.getName() + ".",
+        () -> TimeUnit.NANOSECONDS.toMicros(histogram.getP99Nanos()));
+    REGISTRY.gauge(prefix + "_max_microseconds", "Slowest of " + histogram.getName() + ".",
+        () -> TimeUnit.NANOSECONDS.toMicros(histogram.getMaxNanos()));
+  }
+}
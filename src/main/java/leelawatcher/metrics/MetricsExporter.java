@@ -0,0 +1,98 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes a registry's {@link MetricsRegistry#scrape() Prometheus text}
+ * available outside the watcher, over HTTP or in a file.
+ */
+public final class MetricsExporter {
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private MetricsExporter() {
+  }
+
+  /**
+   * Serve the metrics at <code>/metrics</code> with the JDK's built in HTTP
+   * server, on a daemon thread of its own.
+   *
+   * @param registry the metrics to serve
+   * @param port     the port to listen on, 0 for any free port
+   * @return The running server.
+   * @throws IOException if the port cannot be bound
+   */
+  public static HttpServer serve(MetricsRegistry registry, int port) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "metrics-http");
+      t.setDaemon(true);
+      return t;
+    }));
+    server.start();
+    return server;
+  }
+
+  /**
+   * Rewrite a file with the metrics every so often, for example for the
+   * Prometheus node exporter's text file collector. Each version is written
+   * beside the file and moved over it, so readers never see half of one.
+   *
+   * @param registry the metrics to write
+   * @param file     where to write them
+   * @param seconds  how often
+   * @return The executor doing the writing, to shut down when done.
+   */
+  public static ScheduledExecutorService writeEvery(MetricsRegistry registry, Path file, long seconds) {
+    ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "metrics-file");
+      t.setDaemon(true);
+      return t;
+    });
+    Path abs = file.toAbsolutePath();
+    Path tmp = abs.resolveSibling(abs.getFileName() + ".tmp");
+    writer.scheduleWithFixedDelay(() -> {
+      try {
+        Files.write(tmp, registry.scrape().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, abs, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        System.err.println("Could not write metrics to " + file + ": " + e);
+      }
+    }, 0, seconds, TimeUnit.SECONDS);
+    return writer;
+  }
+}
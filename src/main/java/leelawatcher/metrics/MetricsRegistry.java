@@ -0,0 +1,132 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of one watcher, by name. Asking for a metric that already
+ * exists returns it, so code that is run more than once (a view that is
+ * recreated for example) does not need to hold on to its metrics.
+ * <p>
+ * Metrics are exported in the order they were first registered, as
+ * Prometheus text by {@link #scrape()} and, once
+ * {@link #registerMBeans()} has been called, as one MBean each under
+ * <code>leelawatcher:type=&lt;kind&gt;,name=&lt;name&gt;</code>.
+ */
+public class MetricsRegistry {
+
+  private final Map<String, Metric> metrics = new LinkedHashMap<>();
+  private MBeanServer mbeans;
+
+  public synchronized Counter counter(String name, String help) {
+    return register(name, Counter.class, () -> new Counter(name, help));
+  }
+
+  /**
+   * Get a gauge, pointing an existing one at a new value.
+   *
+   * @param name  the metric name
+   * @param help  what it measures
+   * @param value where to read it from
+   * @return The gauge.
+   */
+  public synchronized Gauge gauge(String name, String help, LongSupplier value) {
+    Gauge gauge = register(name, Gauge.class, () -> new Gauge(name, help, value));
+    gauge.setSupplier(value);
+    return gauge;
+  }
+
+  public synchronized LatencyHistogram histogram(String name, String help) {
+    return register(name, LatencyHistogram.class, () -> new LatencyHistogram(name, help));
+  }
+
+  private interface Factory<M extends Metric> {
+    M lam();
+  }
+
+  private <M extends Metric> M register(String name, Class<M> kind, Factory<M> factory) {
+    Metric existing = metrics.get(name);
+    if (existing != null) {
+      if (!kind.isInstance(existing)) {
+        throw new IllegalArgumentException(name + " is already a " + existing.type());
+      }
+      return kind.cast(existing);
+    }
+    M metric = factory.lam();
+    metrics.put(name, metric);
+    if (mbeans != null) {
+      registerMBean(metric);
+    }
+    return metric;
+  }
+
+  /**
+   * Publish every metric, including those registered later, on the platform
+   * MBean server.
+   */
+  public synchronized void registerMBeans() {
+    if (mbeans != null) {
+      return;
+    }
+    mbeans = ManagementFactory.getPlatformMBeanServer();
+    for (Metric metric : metrics.values()) {
+      registerMBean(metric);
+    }
+  }
+
+  private void registerMBean(Metric metric) {
+    try {
+      ObjectName name = new ObjectName("leelawatcher:type=" + metric.getClass().getSimpleName()
+          + ",name=" + metric.getName());
+      if (!mbeans.isRegistered(name)) {
+        mbeans.registerMBean(metric, name);
+      }
+    } catch (JMException e) {
+      System.err.println("Could not publish " + metric.getName() + " over JMX: " + e);
+    }
+  }
+
+  /**
+   * @return Every metric, in the order registered.
+   */
+  public synchronized List<Metric> getMetrics() {
+    return new ArrayList<>(metrics.values());
+  }
+
+  /**
+   * Write every metric in the Prometheus text exposition format.
+   *
+   * @return HELP, TYPE and sample lines for each metric.
+   */
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    for (Metric metric : getMetrics()) {
+      out.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+      out.append("# TYPE ").append(metric.getName()).append(' ').append(metric.type()).append('\n');
+      metric.writeSamples(out);
+    }
+    return out.toString();
+  }
+}
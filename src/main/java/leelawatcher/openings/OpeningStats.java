@@ -0,0 +1,61 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.openings;
+
+/**
+ * How often a position came up in the games seen, and who won them.
+ */
+public final class OpeningStats {
+
+  private final int visits;
+  private final int blackWins;
+  private final int whiteWins;
+
+  OpeningStats(int visits, int blackWins, int whiteWins) {
+    this.visits = visits;
+    this.blackWins = blackWins;
+    this.whiteWins = whiteWins;
+  }
+
+  /**
+   * @return how many games reached the position.
+   */
+  public int getVisits() {
+    return visits;
+  }
+
+  public int getBlackWins() {
+    return blackWins;
+  }
+
+  public int getWhiteWins() {
+    return whiteWins;
+  }
+
+  /**
+   * @return The fraction of decided games black won, or 0.5 if none were
+   * decided.
+   */
+  public double getBlackWinRate() {
+    int decided = blackWins + whiteWins;
+    return decided == 0 ? 0.5 : blackWins / (double) decided;
+  }
+
+  @Override
+  public String toString() {
+    return visits + " games, B " + blackWins + " W " + whiteWins;
+  }
+}
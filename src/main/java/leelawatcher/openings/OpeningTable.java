@@ -0,0 +1,148 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.openings;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An open addressing hash table from position hashes to how many games
+ * reached the position and how many of those each player won. Slots are
+ * laid out in a single {@link ByteBuffer}, with no object per entry, so
+ * the buffer can live outside the Java heap when there are tens of
+ * millions of positions.
+ * <p>
+ * A key of 0 marks an empty slot, so a hash of 0 is stored as 1. Not
+ * thread safe.
+ */
+class OpeningTable {
+
+  private static final int SLOT_BYTES = 24;
+  private static final int VISITS = 8;
+  private static final int BLACK_WINS = 12;
+  private static final int WHITE_WINS = 16;
+  private static final int MAX_CAPACITY = 1 << 26; // keeps the buffer under 2GB
+
+  private final boolean direct;
+  private ByteBuffer slots;
+  private int mask;
+  private int size;
+
+  /**
+   * @param capacity the number of positions to make room for at first
+   * @param direct   true to keep the table outside the Java heap
+   */
+  OpeningTable(int capacity, boolean direct) {
+    this.direct = direct;
+    int slotCount = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1);
+    slots = allocate(slotCount);
+    mask = slotCount - 1;
+  }
+
+  private ByteBuffer allocate(int slotCount) {
+    return direct
+        ? ByteBuffer.allocateDirect(slotCount * SLOT_BYTES)
+        : ByteBuffer.allocate(slotCount * SLOT_BYTES);
+  }
+
+  /**
+   * Count a visit to a position.
+   *
+   * @param key       the position's hash
+   * @param blackWins 1 if black went on to win
+   * @param whiteWins 1 if white went on to win
+   */
+  void add(long key, int blackWins, int whiteWins) {
+    int slot = find(key);
+    int at = slot * SLOT_BYTES;
+    if (slots.getLong(at) == 0) {
+      if (size + 1 > (mask + 1) / 2) {
+        grow();
+        add(key, blackWins, whiteWins);
+        return;
+      }
+      slots.putLong(at, key == 0 ? 1 : key);
+      size++;
+    }
+    slots.putInt(at + VISITS, slots.getInt(at + VISITS) + 1);
+    slots.putInt(at + BLACK_WINS, slots.getInt(at + BLACK_WINS) + blackWins);
+    slots.putInt(at + WHITE_WINS, slots.getInt(at + WHITE_WINS) + whiteWins);
+  }
+
+  /**
+   * Look a position up.
+   *
+   * @param key the position's hash
+   * @return What is known, or null if no game reached it.
+   */
+  OpeningStats get(long key) {
+    int at = find(key) * SLOT_BYTES;
+    if (slots.getLong(at) == 0) {
+      return null;
+    }
+    return new OpeningStats(slots.getInt(at + VISITS), slots.getInt(at + BLACK_WINS),
+        slots.getInt(at + WHITE_WINS));
+  }
+
+  /**
+   * @return The slot holding the key, or the empty one where it would go.
+   */
+  private int find(long key) {
+    if (key == 0) {
+      key = 1;
+    }
+    int slot = (int) (key ^ key >>> 32) & mask;
+    long k;
+    while ((k = slots.getLong(slot * SLOT_BYTES)) != 0 && k != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    int slotCount = (mask + 1) * 2;
+    if (slotCount > MAX_CAPACITY) {
+      throw new IllegalStateException("opening table is full at " + size + " positions");
+    }
+    ByteBuffer old = slots;
+    int oldCount = mask + 1;
+    slots = allocate(slotCount);
+    mask = slotCount - 1;
+    for (int i = 0; i < oldCount; i++) {
+      int from = i * SLOT_BYTES;
+      long key = old.getLong(from);
+      if (key != 0) {
+        int to = find(key) * SLOT_BYTES;
+        for (int b = 0; b < SLOT_BYTES; b += 4) {
+          slots.putInt(to + b, old.getInt(from + b));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return how many positions are stored.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return how many bytes the table occupies.
+   */
+  long bytes() {
+    return (long) slots.capacity();
+  }
+}
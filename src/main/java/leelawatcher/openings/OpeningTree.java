@@ -0,0 +1,247 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.openings;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Zobrist;
+import leelawatcher.sgf.SgfReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Counts the positions reached in the first moves of every game seen, and
+ * who won from them, so the openings the networks prefer can be followed
+ * over time.
+ * <p>
+ * Positions are keyed by their {@link Zobrist#canonical canonical} hash,
+ * so the same opening played in another corner, or reached by moves in
+ * another order, is counted together. The moves played from a position
+ * are not stored, they are found by looking up each position one move on,
+ * see {@link #continuations}.
+ * <p>
+ * All methods may be called from any thread.
+ */
+public class OpeningTree {
+
+  /**
+   * How many moves of each game are counted unless told otherwise.
+   */
+  public static final int DEFAULT_DEPTH = 30;
+
+  private static final int SIZE = Bitboard.SIZE;
+
+  private final OpeningTable table;
+  private final int depth;
+
+  // scratch for replaying games, guarded by this
+  private final int[] black = new int[SIZE];
+  private final int[] white = new int[SIZE];
+  private final int[] blackBefore = new int[SIZE];
+  private final int[] whiteBefore = new int[SIZE];
+  private final int[] scratch = new int[SIZE];
+  private final long[] hashes = new long[Zobrist.SYMMETRIES];
+
+  /**
+   * @param depth   how many moves of each game to count
+   * @param offHeap true to keep the counts outside the Java heap, for large
+   *                collections of games
+   */
+  public OpeningTree(int depth, boolean offHeap) {
+    this.depth = depth;
+    this.table = new OpeningTable(1 << 16, offHeap);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Count the opening of a game. Black is assumed to move first, and the
+   * players to take turns.
+   *
+   * @param moves  the moves from the start, <code>x &lt;&lt; 16 | y</code>
+   *               or <code>Move.PASS</code> for both
+   * @param count  how many of the moves to use, any beyond the depth are
+   *               ignored
+   * @param winner {@link Move#MOVE_BLACK}, {@link Move#MOVE_WHITE}, or
+   *               anything else if not known
+   */
+  public synchronized void addGame(int[] moves, int count, char winner) {
+    int blackWins = winner == Move.MOVE_BLACK ? 1 : 0;
+    int whiteWins = winner == Move.MOVE_WHITE ? 1 : 0;
+    for (int r = 0; r < SIZE; r++) {
+      black[r] = 0;
+      white[r] = 0;
+    }
+    Zobrist.hash(black, white, true, hashes);
+    table.add(Zobrist.canonical(hashes), blackWins, whiteWins);
+    for (int i = 0; i < Math.min(count, depth); i++) {
+      System.arraycopy(black, 0, blackBefore, 0, SIZE);
+      System.arraycopy(white, 0, whiteBefore, 0, SIZE);
+      int x = moves[i] >> 16;
+      int y = moves[i] & 0xffff;
+      if (x != Move.PASS) {
+        if (i % 2 == 0) {
+          Bitboard.play(black, white, x, y, scratch);
+        } else {
+          Bitboard.play(white, black, x, y, scratch);
+        }
+      }
+      Zobrist.update(hashes, blackBefore, whiteBefore, black, white);
+      table.add(Zobrist.canonical(hashes), blackWins, whiteWins);
+    }
+  }
+
+  /**
+   * Look up a position.
+   *
+   * @param black       the black stones, as rows of a {@link Bitboard}
+   * @param white       the white stones
+   * @param blackToMove who plays next
+   * @return How often it came up, or null if it never did.
+   */
+  public OpeningStats get(int[] black, int[] white, boolean blackToMove) {
+    long[] h = new long[Zobrist.SYMMETRIES];
+    Zobrist.hash(black, white, blackToMove, h);
+    synchronized (this) {
+      return table.get(Zobrist.canonical(h));
+    }
+  }
+
+  /**
+   * Find the moves played from a position, by looking up the position each
+   * empty point would lead to. A position reached by several routes counts
+   * the games of all of them.
+   *
+   * @param black       the black stones, as rows of a {@link Bitboard}
+   * @param white       the white stones
+   * @param blackToMove who plays next
+   * @return One entry per point, <code>y * 19 + x</code>, null where no
+   * game went.
+   */
+  public OpeningStats[] continuations(int[] black, int[] white, boolean blackToMove) {
+    OpeningStats[] result = new OpeningStats[SIZE * SIZE];
+    long[] before = new long[Zobrist.SYMMETRIES];
+    long[] after = new long[Zobrist.SYMMETRIES];
+    int[] b = new int[SIZE];
+    int[] w = new int[SIZE];
+    int[] group = new int[SIZE];
+    Zobrist.hash(black, white, blackToMove, before);
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        if (((black[y] | white[y]) & 1 << x) != 0) {
+          continue;
+        }
+        System.arraycopy(black, 0, b, 0, SIZE);
+        System.arraycopy(white, 0, w, 0, SIZE);
+        if (blackToMove) {
+          Bitboard.play(b, w, x, y, group);
+        } else {
+          Bitboard.play(w, b, x, y, group);
+        }
+        System.arraycopy(before, 0, after, 0, Zobrist.SYMMETRIES);
+        Zobrist.update(after, black, white, b, w);
+        synchronized (this) {
+          result[y * SIZE + x] = table.get(Zobrist.canonical(after));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Count the openings of every game in the SGF files under a directory.
+   * Files ending in <code>.gz</code> are uncompressed as they are read.
+   *
+   * @param dir the directory, or a single file
+   * @return The number of games counted.
+   * @throws IOException if a file can't be read
+   */
+  public long load(Path dir) throws IOException {
+    long games = 0;
+    int[] moves = new int[depth];
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Iterator<Path> it = files.filter(Files::isRegularFile).iterator(); it.hasNext(); ) {
+        Path file = it.next();
+        String name = file.getFileName().toString().toLowerCase();
+        if (!name.endsWith(".sgf") && !name.endsWith(".sgf.gz") && !name.endsWith(".sgfs")) {
+          continue;
+        }
+        try (InputStream raw = Files.newInputStream(file);
+             InputStream is = name.endsWith(".gz") ? new GZIPInputStream(raw, 65536) : raw;
+             SgfReader reader = new SgfReader(new BufferedReader(
+                 new InputStreamReader(is, StandardCharsets.ISO_8859_1), 65536))) {
+          while (reader.next()) {
+            if (reader.getSize() != SIZE || reader.hasSetup()) {
+              continue;
+            }
+            int count = Math.min(depth, reader.getMoveCount());
+            for (int i = 0; i < count; i++) {
+              moves[i] = reader.getX(i) << 16 | reader.getY(i);
+            }
+            addGame(moves, count, winner(reader.getResult()));
+            games++;
+          }
+        }
+      }
+    }
+    return games;
+  }
+
+  /**
+   * Work out who won from a result such as autogtp prints.
+   *
+   * @param result for example "B+R" or "W+3.5", may be null
+   * @return {@link Move#MOVE_BLACK}, {@link Move#MOVE_WHITE}, or
+   * {@link Move#EMPTY} if the result does not say.
+   */
+  public static char winner(String result) {
+    if (result != null && result.length() > 1 && result.charAt(1) == '+') {
+      switch (Character.toUpperCase(result.charAt(0))) {
+        case 'B':
+          return Move.MOVE_BLACK;
+        case 'W':
+          return Move.MOVE_WHITE;
+        default:
+      }
+    }
+    return Move.EMPTY;
+  }
+
+  /**
+   * @return how many distinct positions have been counted.
+   */
+  public synchronized int size() {
+    return table.size();
+  }
+
+  /**
+   * @return how many bytes the counts occupy.
+   */
+  public synchronized long bytes() {
+    return table.bytes();
+  }
+}
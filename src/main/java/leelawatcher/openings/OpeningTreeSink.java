@@ -0,0 +1,83 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.openings;
+
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameEventSink;
+import leelawatcher.event.GameRegistry;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.MovePlayed;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+
+/**
+ * Adds the opening of each game autogtp finishes to an {@link OpeningTree}.
+ * Only the first moves of each game in progress are remembered, and
+ * subscribed to a {@link GameEventBus} this runs on its own thread.
+ */
+public class OpeningTreeSink implements GameEventSink {
+
+  private static final class Opening {
+    final int[] moves;
+    int size;
+
+    Opening(int depth) {
+      moves = new int[depth];
+    }
+  }
+
+  private final OpeningTree tree;
+  private final GameRegistry<Opening> games = new GameRegistry<>();
+
+  /**
+   * @param tree where to count the openings
+   */
+  public OpeningTreeSink(OpeningTree tree) {
+    this.tree = tree;
+  }
+
+  @Override
+  public void gameStarted(GameStarted event) {
+    games.put(event.getGameId(), new Opening(tree.getDepth()));
+  }
+
+  @Override
+  public void movePlayed(MovePlayed event) {
+    Opening game = games.get(event.getGameId());
+    if (game == null || game.size == game.moves.length) {
+      return;
+    }
+    PointOfPlay point = event.getPoint();
+    game.moves[game.size++] = point == null ? Move.PASS << 16 | Move.PASS : point.getX() << 16 | point.getY();
+  }
+
+  @Override
+  public void gameScored(GameScored event) {
+    Opening game = games.remove(event.getGameId());
+    if (game != null) {
+      tree.addGame(game.moves, game.size, OpeningTree.winner(event.getScore()));
+    }
+  }
+
+  @Override
+  public void autogtpError(AutogtpError event) {
+    for (int gameId : event.getGameIds()) {
+      games.remove(gameId);
+    }
+  }
+}
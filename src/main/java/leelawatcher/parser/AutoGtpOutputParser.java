@@ -15,20 +15,28 @@
  */
 package leelawatcher.parser;
 
-import leelawatcher.goboard.Board;
-import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.MovePlayed;
 import leelawatcher.goboard.PointOfPlay;
-import leelawatcher.gui.BoardView;
-import leelawatcher.gui.BoardViewModel;
+import leelawatcher.jfr.Jfr;
+import leelawatcher.jfr.ParseEvent;
+import leelawatcher.metrics.Metrics;
 
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Executors;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.IntSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class AutoGtpOutputParser implements BoardView.BoardViewDelegate {
+public class AutoGtpOutputParser {
 
   /*
    * This pattern is meant to report a match for one of 3 groups:
@@ -47,164 +55,328 @@ public class AutoGtpOutputParser implements BoardView.BoardViewDelegate {
 
   private static final Pattern MOVE = Pattern.compile("(?:(.)(\\d+))|(pass)|(resign)");
 
-  private BoardView boardView;
-  private boolean inProgress = false;
-
-  private BoardViewModel.Type upcomingGameType = null;
-
-  @SuppressWarnings("unused")
-  public String getMessage() {
-    return message;
-  }
+  /**
+   * What to do when autogtp writes faster than we can parse.
+   */
+  public static OverflowPolicy OVERFLOW_POLICY = OverflowPolicy.BLOCK;
 
-  private void setMessage(String message) {
-    String old = this.message;
-    this.message = message;
-    support.firePropertyChange("message", old, message);
+  /**
+   * How many lines may be waiting to be parsed.
+   */
+  public static int QUEUE_CAPACITY = 4096;
+
+  // real lines always end in a new line, so this can't be one
+  private static final String END_OF_INPUT = "";
+
+  // the parsers still running and the deepest queue of those that are done,
+  // for the line queue gauges
+  private static final Set<AutoGtpOutputParser> RUNNING = ConcurrentHashMap.newKeySet();
+  private static final LongAccumulator FINISHED_MAX_DEPTH = new LongAccumulator(Math::max, 0);
+
+  static {
+    Metrics.REGISTRY.gauge("leelawatcher_line_queue_depth",
+        "Lines read from autogtp and not yet parsed, over every stream.",
+        () -> RUNNING.stream().mapToLong(p -> p.lines.size()).sum());
+    Metrics.REGISTRY.gauge("leelawatcher_line_queue_max_depth",
+        "The most lines any one stream has had waiting to be parsed.",
+        () -> Math.max(FINISHED_MAX_DEPTH.get(),
+            RUNNING.stream().mapToLong(p -> p.lines.highWaterMark()).max().orElse(0)));
   }
 
-  private String message;
+  private final SpscRingBuffer<String> lines = new SpscRingBuffer<>(QUEUE_CAPACITY);
+  private OverflowPolicy overflow = OVERFLOW_POLICY;
+  private LineSpill spill;
+  private boolean spillFailed; // only used by the reader
+  private volatile long droppedLines;
 
-  private PropertyChangeSupport support = new PropertyChangeSupport(this);
+  private final GameEventBus bus;
+  private final SeedInterner seeds;
 
+  private String upcomingGameType = null;
+  private long lineReadNanos; // when the line being parsed was read
 
   /**
    * Dead simple parser for the standard output from leela autogtp
    *
-   * @param boardView the view on which to reflect the output.
+   * @param bus where to publish what happens, may be null if only
+   *            {@link #parseMove(String)} will be used.
+   */
+  public AutoGtpOutputParser(GameEventBus bus) {
+    this(bus, null);
+  }
+
+  /**
+   * Create a parser that shares game ids with others.
+   *
+   * @param bus     where to publish what happens
+   * @param gameIds where to get the id of each new game, shared by every
+   *                parser publishing to the same sinks so ids never
+   *                collide, or null to number games from 0
    */
-  public AutoGtpOutputParser(BoardView boardView) {
-    this.boardView = boardView;
-    if(this.boardView != null)
-      this.boardView.delegate = this;
+  public AutoGtpOutputParser(GameEventBus bus, IntSupplier gameIds) {
+    this.bus = bus;
+    this.seeds = gameIds == null ? new SeedInterner() : new SeedInterner(gameIds);
   }
 
+  /**
+   * Start parsing a stream of autogtp output.
+   * <p>
+   * The work is split over two threads connected by a
+   * {@link SpscRingBuffer ring buffer}: one only reads and splits lines, so
+   * the pipe from autogtp keeps draining, and one matches lines against the
+   * patterns above and publishes events to the bus, whose sinks each run on
+   * their own executor. What the reader does when the parser falls behind
+   * is set by {@link #OVERFLOW_POLICY}.
+   *
+   * @param is autogtp's standard output
+   */
   public void start(InputStream is) {
-    Executors.newSingleThreadExecutor().submit(() -> {
-      StringBuffer buffer = new StringBuffer();
-      int next;
+    if (overflow == OverflowPolicy.SPILL) {
       try {
-        //noinspection InfiniteLoopStatement
-        while ((next = is.read()) != -1) {
-          buffer.append((char) next);
-           System.out.print("" + (char) next);
-          String event = nextLine(buffer);
-          if (event == null) {
-            continue;
-          }
-
-          Matcher moveMatcher = MOVE_EVENT.matcher(event);
-          Matcher gameStartMatcher = GAMESTART_EVENT.matcher(event);
-          Matcher errorMatcher = ERROR_EVENT.matcher(event);
-          Matcher scoreMatcher = SCORE_EVENT.matcher(event);
-
-          if (gameStartMatcher.matches()) {
-
-//            System.out.println("EVENT: Game start");
-
-            String gameType = gameStartMatcher.group(1);
-            int gamePriority = priority(gameType);
-
-//            System.out.println("Type: " + gameType + " Priority: " + gamePriority);
+        spill = new LineSpill();
+      } catch (IOException e) {
+        System.err.println("Cannot spill, blocking instead: " + e);
+        overflow = OverflowPolicy.BLOCK;
+      }
+    }
+    RUNNING.add(this);
+    new Thread(() -> readLines(is), "autogtp-reader").start();
+    new Thread(this::parseLines, "autogtp-parser").start();
+  }
 
-            upcomingGameType = parseType(gameType);
+  private void readLines(InputStream is) {
+    byte[] buf = new byte[8192];
+    byte[] line = new byte[256];
+    int len = 0;
+    try {
+      try {
+        int n;
+        while ((n = is.read(buf)) != -1) {
+          for (int i = 0; i < n; i++) {
+            if (len == line.length) {
+              line = Arrays.copyOf(line, len * 2);
+            }
+            line[len++] = buf[i];
+            if (buf[i] == '\n') {
+              enqueue(new String(line, 0, len, StandardCharsets.ISO_8859_1));
+              len = 0;
+            }
           }
-          else if (moveMatcher.matches()) {
-
-//            System.out.println("EVENT: Move");
-
-            String seed = moveMatcher.group(1);
-            int moveNum = Integer.parseInt(moveMatcher.group(2));
-            String mv = moveMatcher.group(3);
-            float winRate = Float.parseFloat(moveMatcher.group(4));
-//            float winRate = 0;
-
-//            System.out.println("Move Number: " + moveNum + " Location: " + mv + " Seed: " + seed);
+        }
+      } catch (IOException e) {
+        System.err.println("Stopped reading autogtp output: " + e);
+      }
+      enqueue(END_OF_INPUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-            if(moveNum == 1) {
-              boardView.addNewBoard(seed, upcomingGameType);
+  private void enqueue(String line) throws InterruptedException {
+    switch (overflow) {
+      case SPILL:
+        // once spilling, everything goes to the spill until it is drained,
+        // so lines stay in order
+        if (!spill.isEmpty() || !lines.offer(line)) {
+          try {
+            spill.add(line, System.nanoTime());
+            Metrics.LINES_SPILLED.increment();
+            lines.signal();
+          } catch (IOException e) {
+            // the disk is full or gone: rather than stop reading, block
+            // until the parser is through the spill and queue in memory
+            if (!spillFailed) {
+              spillFailed = true;
+              System.err.println("Could not spill autogtp output, blocking instead: " + e);
             }
+            while (!spill.isEmpty()) {
+              Thread.sleep(1);
+            }
+            lines.put(line);
+          }
+        }
+        break;
+      case DROP_RENDER_UPDATES:
+        if (!lines.offer(line)) {
+          if (!line.isEmpty() && !carriesState(line)) {
+            droppedLines++;
+            Metrics.LINES_DROPPED.increment();
+          } else {
+            lines.put(line);
+          }
+        }
+        break;
+      default:
+        lines.put(line);
+    }
+  }
 
-            setInProgress(true);
-//            message("Playing move " + moveNum + " " + mv + " seed: " + seed);
-            PointOfPlay pop = parseMove(mv);
-            boardView.move(pop, seed, moveNum, winRate);
-
-            // we got a move
-          } else if (scoreMatcher.matches()) {
-//            System.out.println("EVENT: Score");
-
-            String seed = scoreMatcher.group(1);
-            String score = scoreMatcher.group(2);
-
-            message("Result: " + score + " for game: " + seed);
-
-            boardView.resultBoard(seed, score);
-            setInProgress(false);
-          } else if (errorMatcher.matches()) {
-
-//            System.out.println("EVENT: ERROR");
+  private String nextLine() throws InterruptedException, IOException {
+    if (spill == null) {
+      String line = lines.take();
+      lineReadNanos = lines.lastTakenStamp();
+      return line;
+    }
+    while (true) {
+      String line = lines.poll();
+      if (line != null) {
+        lineReadNanos = lines.lastTakenStamp();
+      } else {
+        line = spill.poll();
+        lineReadNanos = spill.lastPolledStamp();
+      }
+      if (line != null) {
+        return line;
+      }
+      lines.await(() -> lines.size() > 0 || !spill.isEmpty());
+    }
+  }
 
-            boardView.reset();
-            setInProgress(false);
+  private void parseLines() {
+    boolean dumped = false;
+    try {
+      String line;
+      while (!(line = nextLine()).isEmpty()) {
+        boolean backlogged = overflow == OverflowPolicy.DROP_RENDER_UPDATES
+            && lines.size() >= lines.capacity() / 2;
+        try {
+          handleLine(line, backlogged);
+        } catch (RuntimeException e) {
+          // one bad line must not stop the parser, or the reader would
+          // block on the full queue and autogtp on its full pipe
+          System.err.println("Could not parse autogtp output: " + line.trim());
+          e.printStackTrace();
+          if (!dumped) {
+            dumped = Jfr.dump("parser") != null;
           }
         }
-      } catch (IllegalMoveException e) {
-        message("Illegal move attempted:" + e.getProposedMove());
-        message("Position:");
-        message(e.getPosition().toString());
-      } catch (Exception e) {
-        message("oh noes!!!");
-        e.printStackTrace();
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      System.err.println("Could not read spilled autogtp output: " + e);
+    } finally {
+      FINISHED_MAX_DEPTH.accumulate(lines.highWaterMark());
+      RUNNING.remove(this);
+    }
+  }
 
-    });
+  /**
+   * Parse a single line of output on the calling thread and publish what it
+   * means, as the pipeline started by {@link #start(InputStream)} would.
+   *
+   * @param line a line of autogtp output
+   */
+  void handleLine(String line) {
+    lineReadNanos = System.nanoTime();
+    handleLine(line, false);
   }
 
-  static private int priority(String gameType) {
-    if(gameType.equals("match")) {
-      return 60;
-    } else if (gameType.equals("selfplay")) {
-      return 50;
+  private void handleLine(String line, boolean backlogged) {
+    Metrics.LINES_PARSED.increment();
+    if (!Jfr.isRecording()) {
+      parseLine(line, backlogged, null);
+      return;
     }
-
-    return 0;
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    parseLine(line, backlogged, event);
+    event.finish();
   }
 
-  public void message(String x) {
-    System.out.println(x);
-    setMessage(x + "\n");
+  /**
+   * Match a line and publish what it means.
+   *
+   * @param event filled in with what kind of line it was, or null when no
+   *              flight recording is running
+   */
+  private void parseLine(String line, boolean backlogged, ParseEvent event) {
+    Matcher gameStartMatcher = GAMESTART_EVENT.matcher(line);
+    if (gameStartMatcher.matches()) {
+      upcomingGameType = gameStartMatcher.group(1);
+      describe(event, "start", null);
+      return;
+    }
+    Matcher moveMatcher = MOVE_EVENT.matcher(line);
+    if (moveMatcher.matches()) {
+      int moveNum = Integer.parseInt(moveMatcher.group(2));
+      // the seed is only copied out of the line when its game starts
+      int gameId = moveNum == 1
+          ? seeds.intern(line, moveMatcher.start(1), moveMatcher.end(1))
+          : seeds.lookup(line, moveMatcher.start(1), moveMatcher.end(1));
+      if (gameId < 0) {
+        return; // we joined after the game started
+      }
+      String seed = seeds.seedOf(gameId);
+      describe(event, "move", seed);
+      PointOfPlay pop = parseMove(moveMatcher.group(3));
+      float winRate = Float.parseFloat(moveMatcher.group(4));
+      if (moveNum == 1) {
+        Metrics.GAMES_STARTED.increment();
+        bus.publish(new GameStarted(gameId, seed, upcomingGameType, backlogged));
+      }
+      Metrics.MOVES_PARSED.increment();
+      bus.publish(new MovePlayed(gameId, seed, moveNum, pop, winRate, backlogged, lineReadNanos));
+      return;
+    }
+    Matcher scoreMatcher = SCORE_EVENT.matcher(line);
+    if (scoreMatcher.matches()) {
+      int gameId = seeds.release(line, scoreMatcher.start(1), scoreMatcher.end(1));
+      describe(event, "score", scoreMatcher.group(1));
+      Metrics.GAMES_FINISHED.increment();
+      bus.publish(new GameScored(gameId, scoreMatcher.group(1), scoreMatcher.group(2), backlogged, lineReadNanos));
+      return;
+    }
+    Matcher errorMatcher = ERROR_EVENT.matcher(line);
+    if (errorMatcher.matches()) {
+      int[] abandoned = seeds.clear();
+      describe(event, "error", null);
+      bus.publish(new AutogtpError(errorMatcher.group(1), abandoned, backlogged));
+    }
   }
 
-  private String nextLine(StringBuffer buff) {
-    String firstLine = getFirstLine(buff);
-
-    if(firstLine == null) {
-      return null;
+  private static void describe(ParseEvent event, String kind, String seed) {
+    if (event != null) {
+      event.kind = kind;
+      event.seed = seed;
     }
+  }
 
-//    System.out.println("=======================================================================\nLINE: " + firstLine);
-
-    buff.delete(0, firstLine.length());
+  private static boolean carriesState(String line) {
+    return MOVE_EVENT.matcher(line).matches()
+        || GAMESTART_EVENT.matcher(line).matches()
+        || SCORE_EVENT.matcher(line).matches()
+        || ERROR_EVENT.matcher(line).matches();
+  }
 
-    return firstLine;
+  public SpscRingBuffer<?> getLineQueue() {
+    return lines;
+  }
 
-    // Matcher m = EVENT.matcher(firstLine);
-    //
-    // if (m.matches()) {
-    //   String evt = m.group(1);
-    //   return evt;
-    // }
-    // return null;
+  /**
+   * @return how many lines have been thrown away under
+   * {@link OverflowPolicy#DROP_RENDER_UPDATES}.
+   */
+  public long getDroppedLines() {
+    return droppedLines;
   }
 
-  private String getFirstLine(StringBuffer buff) {
-      int newlineIndex = buff.indexOf("\n");
-      if (newlineIndex != -1) {
-        return buff.substring(0, newlineIndex + 1);
-      }
+  /**
+   * @return how many lines have been written to disk under
+   * {@link OverflowPolicy#SPILL}.
+   */
+  public long getSpilledLines() {
+    return spill == null ? 0 : spill.spilled();
+  }
 
-      return null;
+  /**
+   * Test if a line of autogtp output reports a move.
+   *
+   * @param line the line, with or without its line terminator
+   * @return True if the parser would treat it as a move.
+   */
+  static boolean isMoveLine(String line) {
+    return MOVE_EVENT.matcher(line).matches();
   }
 
   PointOfPlay parseMove(String move) {
@@ -225,31 +397,4 @@ public class AutoGtpOutputParser implements BoardView.BoardViewDelegate {
     int y = Integer.valueOf(yNum) - 1;
     return new PointOfPlay(x, y);
   }
-
-  private static BoardViewModel.Type parseType(String typeStr) {
-    if(typeStr.equals("selfplay")) {
-      return BoardViewModel.Type.selfplay;
-    } else if (typeStr.equals("match")) {
-      return BoardViewModel.Type.match;
-    }
-
-    return null;
-  }
-
-  public void addPropertyChangeListener(PropertyChangeListener listener) {
-    this.support.addPropertyChangeListener(listener);
-  }
-
-
-  @SuppressWarnings("WeakerAccess")
-  public boolean isInProgress() {
-    return inProgress;
-  }
-
-  @SuppressWarnings("WeakerAccess")
-  public void setInProgress(boolean inProgress) {
-    boolean old = this.inProgress;
-    this.inProgress = inProgress;
-    support.firePropertyChange("inProgress", old, inProgress);
-  }
 }
@@ -0,0 +1,226 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Reads a file that another process keeps appending to, like
+ * <code>tail -f</code>. Reads never return end of stream, they block until
+ * more output is written.
+ * <p>
+ * Reading starts at the current end of the file. Each read continues from the
+ * last offset with a positional {@link FileChannel} read, and when there is
+ * nothing new the stream waits for the directory's {@link WatchService} to
+ * report a change rather than re-reading anything. Every read also reads the
+ * last few bytes before the offset again: if the file is shorter than that or
+ * those bytes changed, it was truncated (and maybe written past the old
+ * offset since) and reading restarts at its beginning. If a different file
+ * appears under the same name (log rotation) the rest of the old file is
+ * read and then the new one is followed from its beginning.
+ * <p>
+ * Named pipes and other non regular files are read with blocking reads,
+ * since they cannot be rotated or truncated. When the writer closes a pipe
+ * it is opened again, which waits for the next writer.
+ */
+public class FollowInputStream extends InputStream {
+
+  // Some file systems (network mounts in particular) never report changes,
+  // so the size is also checked this often while waiting.
+  private static final long RECHECK_SECONDS = 2;
+  // how much of what was read last is compared to notice a rewritten file
+  private static final int CHECK_BYTES = 64;
+
+  private final Path path;
+  private final boolean fifo;
+  private final WatchService watcher;
+  private final ByteBuffer buffer;
+  private final byte[] checked = new byte[CHECK_BYTES];
+
+  private volatile boolean closed;
+  private InputStream pipe;
+  private FileChannel channel;
+  private Object fileKey;
+  private long offset;
+  private int checkLength; // bytes before offset the next read compares
+
+  /**
+   * Start following a file.
+   *
+   * @param path the log file or named pipe to follow
+   * @throws IOException if the file cannot be opened or watched
+   */
+  public FollowInputStream(Path path) throws IOException {
+    this.path = path.toAbsolutePath();
+    if (!Files.isRegularFile(this.path)) {
+      fifo = true;
+      pipe = new FileInputStream(this.path.toFile());
+      watcher = null;
+      buffer = null;
+      return;
+    }
+    fifo = false;
+    watcher = this.path.getFileSystem().newWatchService();
+    this.path.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+    buffer = ByteBuffer.allocate(8192 + CHECK_BYTES);
+    channel = FileChannel.open(this.path, StandardOpenOption.READ);
+    fileKey = identity(Files.readAttributes(this.path, BasicFileAttributes.class));
+    offset = channel.size();
+    checkLength = (int) Math.min(offset, CHECK_BYTES);
+    channel.read(ByteBuffer.wrap(checked, 0, checkLength), offset - checkLength);
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] one = new byte[1];
+    return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (fifo) {
+      return readPipe(b, off, len);
+    }
+    if (len == 0) {
+      return 0;
+    }
+    byte[] bytes = buffer.array();
+    while (true) {
+      int back = checkLength;
+      buffer.clear();
+      buffer.limit(back + Math.min(len, buffer.capacity() - back));
+      int n = Math.max(channel.read(buffer, offset - back), 0);
+      if (n < back || !sameAsChecked(bytes, back)) {
+        // shorter than where we were or rewritten: start again from the top
+        offset = 0;
+        checkLength = 0;
+        continue;
+      }
+      if (n > back) {
+        System.arraycopy(bytes, back, b, off, n - back);
+        int keep = Math.min(n, CHECK_BYTES);
+        System.arraycopy(bytes, n - keep, checked, 0, keep);
+        checkLength = keep;
+        offset += n - back;
+        return n - back;
+      }
+      if (!rotated()) {
+        awaitChange();
+      }
+    }
+  }
+
+  private int readPipe(byte[] b, int off, int len) throws IOException {
+    while (!closed) {
+      int n = pipe.read(b, off, len);
+      if (n != -1) {
+        return n;
+      }
+      // the writer went away, wait for the next one
+      pipe.close();
+      pipe = new FileInputStream(path.toFile());
+    }
+    return -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    if (fifo) {
+      pipe.close();
+      return;
+    }
+    watcher.close();
+    channel.close();
+  }
+
+  private boolean sameAsChecked(byte[] bytes, int length) {
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] != checked[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Called when everything written to the open file has been read.
+   *
+   * @return True if a different file now has the name and there may be
+   * something to read.
+   */
+  private boolean rotated() throws IOException {
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return false; // rotated away, the replacement is not there yet
+    }
+    Object key = identity(attrs);
+    if (!fileKey.equals(key)) {
+      if (channel.size() > offset) {
+        return true; // finish the rotated file first
+      }
+      channel.close();
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      fileKey = key;
+      offset = 0;
+      checkLength = 0;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Tell files apart by their inode where the file system has one, and by
+   * when they were created where it does not (Windows).
+   */
+  private static Object identity(BasicFileAttributes attrs) {
+    return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+  }
+
+  private void awaitChange() throws IOException {
+    try {
+      WatchKey key = watcher.poll(RECHECK_SECONDS, TimeUnit.SECONDS);
+      if (key != null) {
+        key.pollEvents(); // which file changed does not matter, we check ours
+        key.reset();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("stopped following " + path);
+    } catch (ClosedWatchServiceException e) {
+      throw new IOException("closed", e);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A first in, first out queue of lines kept in a temporary file, for when
+ * the in memory queue is full and {@link OverflowPolicy#SPILL} is in force.
+ * The file is emptied whenever the reader catches up with the writer.
+ * <p>
+ * Each line is kept with the time it was read, like the lines in the
+ * {@link SpscRingBuffer}, so the time they waited on disk is not lost.
+ * Lines are stored as their length and their bytes, so there is no limit
+ * on how long one may be.
+ */
+class LineSpill {
+
+  private final RandomAccessFile file;
+  private long readPos;
+  private long writePos;
+  private long spilled;
+  private long polledStamp;
+
+  LineSpill() throws IOException {
+    File f = File.createTempFile("autogtp-spill", ".txt");
+    f.deleteOnExit();
+    file = new RandomAccessFile(f, "rw");
+  }
+
+  /**
+   * @param line       the line to keep
+   * @param stampNanos when it was read, from {@link System#nanoTime()}
+   */
+  synchronized void add(String line, long stampNanos) throws IOException {
+    file.seek(writePos);
+    byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+    file.writeLong(stampNanos);
+    file.writeInt(bytes.length);
+    file.write(bytes);
+    writePos = file.getFilePointer();
+    spilled++;
+  }
+
+  /**
+   * @return the oldest line not yet read, or null if the spill is empty.
+   */
+  synchronized String poll() throws IOException {
+    if (readPos == writePos) {
+      return null;
+    }
+    file.seek(readPos);
+    polledStamp = file.readLong();
+    byte[] bytes = new byte[file.readInt()];
+    file.readFully(bytes);
+    String line = new String(bytes, StandardCharsets.ISO_8859_1);
+    readPos = file.getFilePointer();
+    if (readPos == writePos) {
+      readPos = 0;
+      writePos = 0;
+      file.setLength(0);
+    }
+    return line;
+  }
+
+  /**
+   * @return when the line last returned by {@link #poll()} was read.
+   */
+  synchronized long lastPolledStamp() {
+    return polledStamp;
+  }
+
+  synchronized boolean isEmpty() {
+    return readPos == writePos;
+  }
+
+  /**
+   * @return how many lines have ever been spilled.
+   */
+  synchronized long spilled() {
+    return spilled;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+/**
+ * What the thread reading autogtp's output does when the parser falls so far
+ * behind that its queue of unparsed lines is full. The parser also falls
+ * behind when a sink does, once that sink's bounded queue on the
+ * {@link leelawatcher.event.GameEventBus bus} is full.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Wait for the parser to catch up. Nothing is lost, but if the wait is
+   * long enough the pipe fills and autogtp blocks.
+   */
+  BLOCK,
+
+  /**
+   * Throw away lines that carry no game state (nothing uses them), and stop repainting the board for each move until the backlog
+   * clears. Moves and results still wait for room.
+   */
+  DROP_RENDER_UPDATES,
+
+  /**
+   * Write lines to a temporary file until the parser has caught up, so the
+   * reader never waits and nothing is lost.
+   */
+  SPILL
+}
@@ -0,0 +1,208 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays back a saved autogtp log as if autogtp were writing it.
+ * <p>
+ * The file is memory mapped, a window at a time, so logs of any size can be
+ * replayed without copying them onto the heap. autogtp does not time stamp
+ * its output, but after every game it prints a summary including the average
+ * milliseconds per move. autogtp plays several games at once and interleaves
+ * their moves, so after each move line replay waits that long divided by the
+ * number of games in progress (and by the speed), using
+ * {@link #DEFAULT_MS_PER_MOVE} until the first summary is seen. A game is in
+ * progress from its first move line until its score line. At a speed of {@link Double#POSITIVE_INFINITY} there is no waiting
+ * and lines are not inspected at all.
+ */
+public class ReplayInputStream extends InputStream {
+
+  /**
+   * Assumed time per move until the log tells us otherwise.
+   */
+  public static final long DEFAULT_MS_PER_MOVE = 500;
+
+  private static final long WINDOW = 256L * 1024 * 1024;
+  private static final int MAX_LINE = 256;
+  private static final Pattern MS_PER_MOVE = Pattern.compile("\\b(\\d+) ms/move");
+  private static final Pattern SEED = Pattern.compile("\\s*(\\w+)\\s");
+  private static final Pattern SCORE = Pattern.compile("\\s*(\\w+)\\sScore:");
+  private static final Pattern ERROR = Pattern.compile("\\s*\\*ERROR\\*:");
+
+  private final FileChannel channel;
+  private final long length;
+  private final double speed;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  private final byte[] line = new byte[MAX_LINE];
+  private int lineLength;
+  private long msPerMove = DEFAULT_MS_PER_MOVE;
+  private long nextLineAt;     // System.nanoTime() before which the next line is withheld
+  private final Set<String> inProgress = new HashSet<>();
+  private final byte[] one = new byte[1];
+
+  /**
+   * Open a log for replay.
+   *
+   * @param log   the file to replay
+   * @param speed how many times faster than recorded to replay, or
+   *              {@link Double#POSITIVE_INFINITY} for as fast as possible
+   * @throws IOException if the file cannot be opened
+   */
+  public ReplayInputStream(Path log, double speed) throws IOException {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("speed must be positive: " + speed);
+    }
+    this.channel = FileChannel.open(log, StandardOpenOption.READ);
+    this.length = channel.size();
+    this.speed = speed;
+    this.nextLineAt = System.nanoTime();
+  }
+
+  /**
+   * Parse a replay speed as given on the command line.
+   *
+   * @param speed a multiplier such as <code>1</code> or <code>2.5</code>, or
+   *              <code>max</code>
+   * @return The multiplier, infinite for <code>max</code>.
+   */
+  public static double parseSpeed(String speed) {
+    if ("max".equalsIgnoreCase(speed)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return Double.parseDouble(speed);
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!mapped()) {
+      return -1;
+    }
+    int n = Math.min(len, window.remaining());
+    if (speed == Double.POSITIVE_INFINITY) {
+      window.get(b, off, n);
+      return n;
+    }
+    if (lineLength == 0) {
+      awaitNextLine();
+    }
+    // stop at the end of a line, so we can wait before the next one
+    int i = 0;
+    while (i < n) {
+      byte c = window.get();
+      b[off + i++] = c;
+      if (lineLength < MAX_LINE) {
+        line[lineLength] = c;
+      }
+      lineLength++;
+      if (c == '\n') {
+        endOfLine();
+        break;
+      }
+    }
+    return i;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.min(Integer.MAX_VALUE, length - position());
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long position() {
+    return window == null ? 0 : windowStart + window.position();
+  }
+
+  private boolean mapped() throws IOException {
+    if (window != null && window.hasRemaining()) {
+      return true;
+    }
+    long pos = position();
+    if (pos >= length) {
+      return false;
+    }
+    windowStart = pos;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, length - pos));
+    return true;
+  }
+
+  private void endOfLine() {
+    String text = new String(line, 0, Math.min(lineLength, MAX_LINE), StandardCharsets.ISO_8859_1);
+    lineLength = 0;
+    if (AutoGtpOutputParser.isMoveLine(text)) {
+      Matcher seed = SEED.matcher(text);
+      if (seed.lookingAt()) {
+        inProgress.add(seed.group(1));
+      }
+      int games = Math.max(1, inProgress.size());
+      long delay = (long) (TimeUnit.MILLISECONDS.toNanos(msPerMove) / speed / games);
+      long now = System.nanoTime();
+      // keep a steady pace even if the consumer was slow for a moment
+      nextLineAt = Math.max(nextLineAt, now - delay) + delay;
+    } else {
+      Matcher score = SCORE.matcher(text);
+      if (score.lookingAt()) {
+        inProgress.remove(score.group(1));
+      } else if (ERROR.matcher(text).lookingAt()) {
+        // autogtp abandons every game it was playing
+        inProgress.clear();
+      }
+      Matcher m = MS_PER_MOVE.matcher(text);
+      if (m.find()) {
+        msPerMove = Long.parseLong(m.group(1));
+      }
+    }
+  }
+
+  private void awaitNextLine() throws InterruptedIOException {
+    long wait;
+    while ((wait = nextLineAt - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(wait);
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException("replay interrupted");
+      }
+    }
+  }
+}
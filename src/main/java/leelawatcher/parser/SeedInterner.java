@@ -0,0 +1,198 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.event.GameRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Gives the seed of each game in progress a small integer id.
+ * <p>
+ * Seeds are looked up straight from the line they appear in, so the many
+ * lines that mention a game after it started cost no allocation. A String is
+ * made for a seed only once, when the game starts. The table uses open
+ * addressing with linear probing and is meant for the one thread parsing a
+ * stream; parsers of different streams share an id source so their ids
+ * never collide.
+ */
+class SeedInterner {
+
+  private String[] seeds = new String[16];
+  private int[] ids = new int[16];
+  private int size;
+  private final GameRegistry<String> byId = new GameRegistry<>();
+  private final IntSupplier idSource;
+
+  /**
+   * Create an interner with its own ids, starting from 0.
+   */
+  SeedInterner() {
+    this(new AtomicInteger()::getAndIncrement);
+  }
+
+  /**
+   * @param idSource where to get ids for new games, must never repeat
+   */
+  SeedInterner(IntSupplier idSource) {
+    this.idSource = idSource;
+  }
+
+  /**
+   * Find the id of a seed, giving it a new one if it has none.
+   *
+   * @param line  text containing the seed
+   * @param start index of the first character of the seed
+   * @param end   index after the last character of the seed
+   * @return The id.
+   */
+  int intern(CharSequence line, int start, int end) {
+    int slot = find(line, start, end);
+    if (seeds[slot] != null) {
+      return ids[slot];
+    }
+    if ((size + 1) * 2 > seeds.length) {
+      grow();
+      slot = find(line, start, end);
+    }
+    seeds[slot] = line.subSequence(start, end).toString();
+    ids[slot] = idSource.getAsInt();
+    byId.put(ids[slot], seeds[slot]);
+    size++;
+    return ids[slot];
+  }
+
+  /**
+   * Find the id of a seed without adding it.
+   *
+   * @return The id, or -1 if the seed has not been interned.
+   */
+  int lookup(CharSequence line, int start, int end) {
+    int slot = find(line, start, end);
+    return seeds[slot] == null ? -1 : ids[slot];
+  }
+
+  /**
+   * Get the seed that was given an id.
+   *
+   * @return The seed, or null if the id is not in use.
+   */
+  String seedOf(int id) {
+    return byId.get(id);
+  }
+
+  /**
+   * Forget a seed, for example once its game is over.
+   *
+   * @return The id it had, or -1 if it had none.
+   */
+  int release(CharSequence line, int start, int end) {
+    int slot = find(line, start, end);
+    if (seeds[slot] == null) {
+      return -1;
+    }
+    int id = ids[slot];
+    byId.remove(id);
+    seeds[slot] = null;
+    size--;
+    // shift later members of the same run back so probing still finds them
+    int mask = seeds.length - 1;
+    int hole = slot;
+    for (int i = (slot + 1) & mask; seeds[i] != null; i = (i + 1) & mask) {
+      int home = hash(seeds[i], 0, seeds[i].length()) & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        seeds[hole] = seeds[i];
+        ids[hole] = ids[i];
+        seeds[i] = null;
+        hole = i;
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Forget every seed.
+   *
+   * @return The ids the seeds had.
+   */
+  int[] clear() {
+    int[] forgotten = new int[size];
+    int n = 0;
+    for (int i = 0; i < seeds.length; i++) {
+      if (seeds[i] != null) {
+        forgotten[n++] = ids[i];
+      }
+    }
+    Arrays.fill(seeds, null);
+    byId.clear();
+    size = 0;
+    return forgotten;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int find(CharSequence line, int start, int end) {
+    int mask = seeds.length - 1;
+    int i = hash(line, start, end) & mask;
+    while (seeds[i] != null && !matches(seeds[i], line, start, end)) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private void grow() {
+    String[] oldSeeds = seeds;
+    int[] oldIds = ids;
+    seeds = new String[oldSeeds.length * 2];
+    ids = new int[oldIds.length * 2];
+    int mask = seeds.length - 1;
+    for (int j = 0; j < oldSeeds.length; j++) {
+      String s = oldSeeds[j];
+      if (s != null) {
+        int i = hash(s, 0, s.length()) & mask;
+        while (seeds[i] != null) {
+          i = (i + 1) & mask;
+        }
+        seeds[i] = s;
+        ids[i] = oldIds[j];
+      }
+    }
+  }
+
+  private static int hash(CharSequence s, int start, int end) {
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean matches(String seed, CharSequence line, int start, int end) {
+    if (seed.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < seed.length(); i++) {
+      if (seed.charAt(i) != line.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
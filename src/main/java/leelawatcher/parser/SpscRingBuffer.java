@@ -0,0 +1,220 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bounded queue for handing items from exactly one producer thread to
+ * exactly one consumer thread without locks.
+ * <p>
+ * The producer only writes <code>tail</code> and the consumer only writes
+ * <code>head</code>, so neither ever waits on the other except when the
+ * queue is full or empty. A consumer waiting for an item parks until the
+ * producer signals it, so an idle stage costs nothing; the producer only
+ * pays for an unpark when the consumer is actually waiting. A producer
+ * waiting for room backs off by parking briefly, since the consumer is
+ * busy then anyway.
+ * <p>
+ * Each item is stamped with the time it was offered, so the consumer can
+ * tell how long it has been waiting with {@link #lastTakenStamp()}.
+ *
+ * @param <T> the type of item queued
+ */
+public class SpscRingBuffer<T> {
+
+  private static final long MAX_PARK_NANOS = 1_000_000;
+
+  private final AtomicReferenceArray<T> items;
+  private final long[] stamps;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong(); // next slot to take
+  private final AtomicLong tail = new AtomicLong(); // next slot to fill
+  private volatile int highWaterMark;
+  private volatile Thread waiter; // the consumer, while it is parked
+  private long takenStamp; // only used by the consumer
+
+  /**
+   * Create a ring buffer.
+   *
+   * @param capacity the minimum number of items it can hold, rounded up to a
+   *                 power of two
+   */
+  public SpscRingBuffer(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity out of range: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    items = new AtomicReferenceArray<>(size);
+    stamps = new long[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Add an item if there is room. Only the producer thread may call this.
+   *
+   * @param item the item, not null
+   * @return False if the queue was full.
+   */
+  public boolean offer(T item) {
+    long t = tail.get();
+    int depth = (int) (t - head.get());
+    if (depth > mask) {
+      return false;
+    }
+    int slot = (int) t & mask;
+    stamps[slot] = System.nanoTime();
+    items.lazySet(slot, item);
+    // a full store, so that it can't be ordered after the read of waiter
+    tail.set(t + 1);
+    if (depth + 1 > highWaterMark) {
+      highWaterMark = depth + 1;
+    }
+    signal();
+    return true;
+  }
+
+  /**
+   * Add an item, waiting for room if necessary. Only the producer thread
+   * may call this.
+   *
+   * @param item the item, not null
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void put(T item) throws InterruptedException {
+    long park = 1000;
+    while (!offer(item)) {
+      park = backOff(park);
+    }
+  }
+
+  /**
+   * Take the oldest item if there is one. Only the consumer thread may call
+   * this.
+   *
+   * @return The item, or null if the queue is empty.
+   */
+  public T poll() {
+    long h = head.get();
+    if (h == tail.get()) {
+      return null;
+    }
+    int slot = (int) h & mask;
+    T item = items.get(slot);
+    takenStamp = stamps[slot];
+    items.lazySet(slot, null);
+    head.lazySet(h + 1);
+    return item;
+  }
+
+  /**
+   * Take the oldest item, waiting for one if necessary. Only the consumer
+   * thread may call this.
+   *
+   * @return The item.
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public T take() throws InterruptedException {
+    T item;
+    while ((item = poll()) == null) {
+      await(() -> size() > 0);
+    }
+    return item;
+  }
+
+  /**
+   * Park the consumer until the producer {@link #signal() signals} it,
+   * unless there is already something to do. Only the consumer thread may
+   * call this.
+   *
+   * @param ready checked after the consumer is registered as waiting, so
+   *              a signal sent while it is checked is not missed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void await(BooleanSupplier ready) throws InterruptedException {
+    waiter = Thread.currentThread();
+    try {
+      while (!ready.getAsBoolean()) {
+        LockSupport.park(this);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+    } finally {
+      waiter = null;
+    }
+  }
+
+  /**
+   * Wake the consumer if it is waiting. Done by every {@link #offer}, and
+   * may be called by a producer that hands the consumer work some other
+   * way.
+   */
+  public void signal() {
+    Thread w = waiter;
+    if (w != null) {
+      LockSupport.unpark(w);
+    }
+  }
+
+  /**
+   * Find out when the item most recently taken was added. Only the consumer
+   * thread may call this.
+   *
+   * @return The time it was offered, from {@link System#nanoTime()}.
+   */
+  public long lastTakenStamp() {
+    return takenStamp;
+  }
+
+  private static long backOff(long park) throws InterruptedException {
+    LockSupport.parkNanos(park);
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    return Math.min(park * 2, MAX_PARK_NANOS);
+  }
+
+  /**
+   * Find out how many items are queued. Safe to call from any thread, though
+   * the answer may already be out of date.
+   *
+   * @return The current depth of the queue.
+   */
+  public int size() {
+    long h = head.get();
+    return (int) Math.max(0, tail.get() - h);
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Find out how full the queue has ever been.
+   *
+   * @return The greatest depth seen by the producer.
+   */
+  public int highWaterMark() {
+    return highWaterMark;
+  }
+}
@@ -0,0 +1,273 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.scorer.AreaScorer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes up autogtp output, for load testing without Leela Zero or a GPU.
+ * <p>
+ * Several self play games are in flight at once, each with its own seed,
+ * and their move lines are interleaved at random as autogtp's are. Every
+ * move is checked with a {@link Board}, so the games are legal and exercise
+ * the board fully. Each game ends in a resignation or after two passes,
+ * followed by a score line and autogtp's summary. There are new job lines,
+ * some download and engine chatter, and now and then an error after which
+ * the games in flight are abandoned, as autogtp abandons them.
+ * <p>
+ * Move lines are paced to a number of moves per second across all games.
+ * The stream ends after a given number of games have been scored, or never.
+ * Lines are only made up as they are read, so it costs nothing while the
+ * reader is busy.
+ */
+public class SyntheticInputStream extends InputStream {
+
+  // the chance that any line is an error that abandons the games in flight
+  private static final double ERROR_CHANCE = 0.00002;
+  private static final double NOISE_CHANCE = 0.002;
+  private static final double RESIGN_CHANCE = 0.004;
+  private static final int MIN_MOVES = 120;
+  private static final int MAX_MOVES = 360;
+  private static final int TRIES_PER_MOVE = 40;
+  private static final String COLUMNS = "ABCDEFGHJKLMNOPQRST";
+  private static final String[] NOISE = {
+      "Net filename: networks/%016x.gz",
+      "Downloading network...",
+      "Engine has started.",
+      "Infinite thinking time set.",
+      "Setting max tree size to 2000 MiB and cache size to 250 MiB.",
+      "Uploading game: %016x.sgf for network %016x",
+  };
+
+  private final int gamesInFlight;
+  private final double movesPerSecond;
+  private final int maxGames;
+  private final Random random;
+  private final List<SyntheticGame> games = new ArrayList<>();
+  private final ArrayDeque<String> pending = new ArrayDeque<>();
+  private final long startedAt = System.nanoTime();
+  private final AreaScorer scorer = new AreaScorer();
+
+  private byte[] line = new byte[0];
+  private int linePos;
+  private int scored;
+  private long movesPlayed;
+  private long nextMoveAt = startedAt;
+
+  private static final class SyntheticGame {
+    final String seed;
+    final Board board = new Board();
+    final int length;
+    int passes;
+    float winRate = 0.5f;
+
+    SyntheticGame(String seed, int length) {
+      this.seed = seed;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Start making up output.
+   *
+   * @param gamesInFlight  how many games are played at once
+   * @param movesPerSecond moves per second across all games, or
+   *                       {@link Double#POSITIVE_INFINITY} for as fast as
+   *                       possible
+   * @param maxGames       how many games to score before the stream ends,
+   *                       or 0 to go on for ever
+   * @param randomSeed     the same seed always makes the same output, apart
+   *                       from the times in the summaries
+   */
+  public SyntheticInputStream(int gamesInFlight, double movesPerSecond, int maxGames, long randomSeed) {
+    if (gamesInFlight < 1) {
+      throw new IllegalArgumentException("need at least one game in flight: " + gamesInFlight);
+    }
+    if (!(movesPerSecond > 0)) {
+      throw new IllegalArgumentException("rate must be positive: " + movesPerSecond);
+    }
+    this.gamesInFlight = gamesInFlight;
+    this.movesPerSecond = movesPerSecond;
+    this.maxGames = maxGames;
+    this.random = new Random(randomSeed);
+  }
+
+  /**
+   * Write made up output to standard out, so that this can stand in for
+   * autogtp as the command LeelaWatcher runs.
+   *
+   * @param args optionally the games in flight (default 4) and the moves per
+   *             second or max (default 20)
+   * @throws IOException if standard out is closed
+   */
+  public static void main(String[] args) throws IOException {
+    int inFlight = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    double rate = args.length > 1 ? ReplayInputStream.parseSpeed(args[1]) : 20;
+    try (InputStream in = new SyntheticInputStream(inFlight, rate, 0, System.nanoTime())) {
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        System.out.write(buf, 0, n);
+        System.out.flush();
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] one = new byte[1];
+    return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (linePos == line.length) {
+      String next = nextLine();
+      if (next == null) {
+        return -1;
+      }
+      line = (next + "\n").getBytes(StandardCharsets.ISO_8859_1);
+      linePos = 0;
+    }
+    int n = Math.min(len, line.length - linePos);
+    System.arraycopy(line, linePos, b, off, n);
+    linePos += n;
+    return n;
+  }
+
+  /**
+   * @return How many games have been scored so far.
+   */
+  public int getScored() {
+    return scored;
+  }
+
+  private String nextLine() throws InterruptedIOException {
+    if (!pending.isEmpty()) {
+      return pending.poll();
+    }
+    if (maxGames > 0 && scored >= maxGames) {
+      return null;
+    }
+    if (games.size() < gamesInFlight && (maxGames == 0 || scored + games.size() < maxGames)) {
+      games.add(new SyntheticGame(String.format("%016x", random.nextLong()),
+          MIN_MOVES + random.nextInt(MAX_MOVES - MIN_MOVES)));
+      return "Got new job: selfplay";
+    }
+    if (random.nextDouble() < ERROR_CHANCE) {
+      games.clear();
+      return "*ERROR*: Unexpected end of game, engine crashed?";
+    }
+    if (random.nextDouble() < NOISE_CHANCE) {
+      return String.format(NOISE[random.nextInt(NOISE.length)], random.nextLong(), random.nextLong());
+    }
+    awaitNextMove();
+    return playMove(games.get(random.nextInt(games.size())));
+  }
+
+  private String playMove(SyntheticGame game) {
+    Board board = game.board;
+    boolean white = board.isWhiteMove();
+    int moveNum = board.getMoveCount() + 1;
+    // black's chances, wandering as a real game's do
+    game.winRate = Math.max(0.01f, Math.min(0.99f, game.winRate + (float) random.nextGaussian() * 0.03f));
+    float toMoveWins = white ? 1 - game.winRate : game.winRate;
+    boolean hopeless = moveNum > 60 && toMoveWins < 0.05f;
+    if (random.nextDouble() < (hopeless ? 0.2 : moveNum > MIN_MOVES ? RESIGN_CHANCE : 0)) {
+      finish(game, (white ? "B" : "W") + "+R");
+      return pending.poll();
+    }
+    String vertex = "pass";
+    if (moveNum <= game.length) {
+      for (int i = 0; i < TRIES_PER_MOVE; i++) {
+        int x = random.nextInt(19);
+        int y = random.nextInt(19);
+        if (board.isLegalMove(x, y)) {
+          apply(board, x, y);
+          vertex = COLUMNS.charAt(x) + Integer.toString(y + 1);
+          break;
+        }
+      }
+    }
+    if ("pass".equals(vertex)) {
+      apply(board, Move.PASS, Move.PASS);
+      game.passes++;
+    } else {
+      game.passes = 0;
+    }
+    movesPlayed++;
+    String move = String.format(Locale.ROOT, "%s %d (%s %s) %.4f",
+        game.seed, moveNum, white ? "W" : "B", vertex, game.winRate);
+    if (game.passes == 2) {
+      finish(game, AreaScorer.result(scorer.score(board.getCurrPos(), AreaScorer.LEELA_ZERO_KOMI)));
+    }
+    return move;
+  }
+
+  private static void apply(Board board, int x, int y) {
+    try {
+      board.doMove(x, y);
+    } catch (IllegalMoveException e) {
+      throw new IllegalStateException("checked move was illegal", e);
+    }
+  }
+
+  private void finish(SyntheticGame game, String result) {
+    games.remove(game);
+    scored++;
+    pending.add(game.seed + " Score: " + result);
+    long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt);
+    long msPerMove = movesPerSecond == Double.POSITIVE_INFINITY ? 0 : (long) (1000 / movesPerSecond);
+    pending.add(String.format("%d game(s) (%d self-play and 0 validation) played in %d minutes %d seconds"
+            + " = %d seconds/game, %d ms/move",
+        scored, scored, elapsed / 60, elapsed % 60, elapsed / scored, msPerMove));
+  }
+
+  private void awaitNextMove() throws InterruptedIOException {
+    if (movesPerSecond == Double.POSITIVE_INFINITY) {
+      return;
+    }
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / movesPerSecond);
+    long now = System.nanoTime();
+    // keep a steady pace even if the reader was slow for a moment
+    nextMoveAt = Math.max(nextMoveAt, now - interval) + interval;
+    long wait;
+    while ((wait = nextMoveAt - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(wait);
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException("synthetic output interrupted");
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.scorer;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Position;
+
+import java.util.Locale;
+
+/**
+ * Scores finished positions by Tromp-Taylor area rules, as Leela Zero
+ * does: a player's score is the number of their stones plus the empty
+ * points that only reach their stones, and komi goes to white. Nothing is
+ * assumed dead, games are expected to have been played out.
+ * <p>
+ * The work is done on row bitboards in arrays kept by each scorer, so
+ * scoring allocates nothing, but a scorer must only be used by one thread
+ * at a time.
+ */
+public class AreaScorer {
+
+  /**
+   * The komi Leela Zero plays its self-play and match games with.
+   */
+  public static final float LEELA_ZERO_KOMI = 7.5f;
+
+  private final int[] empty = new int[Bitboard.SIZE];
+  private final int[] reachesBlack = new int[Bitboard.SIZE];
+  private final int[] reachesWhite = new int[Bitboard.SIZE];
+  private int blackArea;
+  private int whiteArea;
+
+  /**
+   * Score a position.
+   *
+   * @param pos  the final position
+   * @param komi points given to white
+   * @return Black's area less white's area and komi, so positive if black
+   * won.
+   */
+  public float score(Position pos, float komi) {
+    return score(pos.getArrayBlack(), pos.getArrayWhite(), komi);
+  }
+
+  /**
+   * Score a position held as rows, see {@link Bitboard}.
+   *
+   * @param black the black stones
+   * @param white the white stones
+   * @param komi  points given to white
+   * @return Black's area less white's area and komi, so positive if black
+   * won.
+   */
+  public float score(int[] black, int[] white, float komi) {
+    for (int r = 0; r < Bitboard.SIZE; r++) {
+      empty[r] = ~(black[r] | white[r]) & Bitboard.ROW_MASK;
+    }
+    Bitboard.spread(black, empty, reachesBlack);
+    Bitboard.spread(white, empty, reachesWhite);
+    blackArea = 0;
+    whiteArea = 0;
+    for (int r = 0; r < Bitboard.SIZE; r++) {
+      blackArea += Integer.bitCount(black[r] | (reachesBlack[r] & ~reachesWhite[r]));
+      whiteArea += Integer.bitCount(white[r] | (reachesWhite[r] & ~reachesBlack[r]));
+    }
+    return blackArea - whiteArea - komi;
+  }
+
+  /**
+   * @return the stones and territory black had in the position last scored.
+   */
+  public int getBlackArea() {
+    return blackArea;
+  }
+
+  /**
+   * @return the stones and territory white had in the position last scored.
+   */
+  public int getWhiteArea() {
+    return whiteArea;
+  }
+
+  /**
+   * Write a result the way autogtp and SGF files do.
+   *
+   * @param margin black's score less white's, as from {@link #score}
+   * @return For example "B+3.5", "W+0.5", or "0" for a draw.
+   */
+  public static String result(float margin) {
+    if (margin == 0) {
+      return "0";
+    }
+    float points = Math.abs(margin);
+    String amount = points == (int) points
+        ? Integer.toString((int) points)
+        : String.format(Locale.ROOT, "%.1f", points);
+    return (margin > 0 ? "B+" : "W+") + amount;
+  }
+
+  /**
+   * Read the margin of a counted result.
+   *
+   * @param result a result such as "B+3.5", "W+R" or "0"
+   * @return Black's score less white's, or NaN if the game was not counted,
+   * for example because someone resigned or the result is unknown.
+   */
+  public static float margin(String result) {
+    String r = result.trim();
+    if (r.equals("0") || r.equalsIgnoreCase("Draw") || r.equalsIgnoreCase("Jigo")) {
+      return 0;
+    }
+    if (r.length() < 3 || r.charAt(1) != '+') {
+      return Float.NaN;
+    }
+    float sign;
+    switch (Character.toUpperCase(r.charAt(0))) {
+      case 'B':
+        sign = 1;
+        break;
+      case 'W':
+        sign = -1;
+        break;
+      default:
+        return Float.NaN;
+    }
+    try {
+      return sign * Float.parseFloat(r.substring(2));
+    } catch (NumberFormatException e) {
+      return Float.NaN; // resigned, lost on time, forfeit...
+    }
+  }
+}
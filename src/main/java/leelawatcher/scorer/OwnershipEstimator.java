@@ -0,0 +1,100 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.scorer;
+
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.PlayoutBoard;
+import leelawatcher.goboard.Position;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates who owns each point of a position by playing it out many times
+ * with random moves and counting who ends up with it, which is most useful
+ * for games that ended by resignation, long before the board was settled.
+ * <p>
+ * Playouts are split into batches run in parallel on a
+ * {@link ForkJoinPool}, each batch on its own {@link PlayoutBoard} with its
+ * own random sequence, so an estimate is the same every time for the same
+ * position and number of playouts.
+ */
+public class OwnershipEstimator {
+
+  private static final int BATCH = 64;
+  private static final int MAX_MOVES = 3 * Bitboard.SIZE * Bitboard.SIZE;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * @param pool where to run the playouts
+   */
+  public OwnershipEstimator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Estimate ownership of a position.
+   *
+   * @param pos         the position
+   * @param blackToMove who plays next
+   * @param playouts    how many random games to play, rounded up to a
+   *                    multiple of 64
+   * @return One entry per point, <code>y * 19 + x</code>, from 1 if black
+   * always ended up owning it to -1 if white always did.
+   */
+  public float[] estimate(Position pos, boolean blackToMove, int playouts) {
+    return estimate(pos.getArrayBlack(), pos.getArrayWhite(), blackToMove, playouts);
+  }
+
+  /**
+   * Estimate ownership of a position held as rows, see {@link Bitboard}.
+   *
+   * @see #estimate(Position, boolean, int)
+   */
+  public float[] estimate(int[] black, int[] white, boolean blackToMove, int playouts) {
+    PlayoutBoard start = new PlayoutBoard(1);
+    start.setUp(black, white, blackToMove);
+    int batches = Math.max(1, (playouts + BATCH - 1) / BATCH);
+    int[] total = pool.submit(() -> IntStream.range(0, batches).parallel()
+        .mapToObj(batch -> playBatch(start, batch))
+        .reduce(OwnershipEstimator::sum)
+        .get()).join();
+    float[] ownership = new float[total.length];
+    for (int i = 0; i < total.length; i++) {
+      ownership[i] = total[i] / (float) (batches * BATCH);
+    }
+    return ownership;
+  }
+
+  private static int[] playBatch(PlayoutBoard start, int batch) {
+    int[] ownership = new int[Bitboard.SIZE * Bitboard.SIZE];
+    PlayoutBoard board = new PlayoutBoard(0x5DEECE66DL * (batch + 1));
+    for (int i = 0; i < BATCH; i++) {
+      board.copyFrom(start);
+      board.playOut(MAX_MOVES);
+      board.addOwnership(ownership);
+    }
+    return ownership;
+  }
+
+  private static int[] sum(int[] a, int[] b) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] += b[i];
+    }
+    return a;
+  }
+}
@@ -17,6 +17,8 @@
 package leelawatcher.scorer;
 
 import leelawatcher.goboard.*;
+import leelawatcher.jfr.Jfr;
+import leelawatcher.jfr.LegalityCheckEvent;
 
 import java.util.Iterator;
 
@@ -26,8 +28,36 @@ public class QuickRules extends AbstractRules {
   }
 
   public boolean isLegalMove(PointOfPlay p, Board board) {
+    return evaluate(p.getX(), p.getY(), board, new MoveResult());
+  }
+
+  public boolean evaluate(int x, int y, Board board, MoveResult result) {
+    if (!Jfr.isRecording()) {
+      return check(x, y, board, result);
+    }
+    LegalityCheckEvent event = new LegalityCheckEvent();
+    event.begin();
+    boolean legal = check(x, y, board, result);
+    event.finish(x, y, board.getMoveCount(), legal);
+    return legal;
+  }
+
+  private boolean check(int x, int y, Board board, MoveResult result) {
     // it is always legal to pass
-    return p.getX() == Move.PASS || (isEmpty(p, board) && !isSelfCapture(p, board) && !isKo(p, board));
+    if (x == Move.PASS) {
+      return true;
+    }
+    result.analyze(board.getCurrPos(), x, y, !board.isWhiteMove());
+    if (result.isLegal() && result.getKoPoint() != -1) {
+      // retaking a ko somewhere other than the ko point of the last move
+      // can still repeat an earlier position (triple ko and the like).
+      // Longer cycles that pass through captures of other shapes are not
+      // looked for, the games we watch were checked by the engine already.
+      if (board.repeatsEarlier(result)) {
+        result.reject(MoveResult.Status.KO);
+      }
+    }
+    return result.isLegal();
   }
 
   public boolean isSelfCapture(PointOfPlay p, Board board) {
@@ -18,6 +18,7 @@ package leelawatcher.scorer;
 
 import leelawatcher.goboard.Board;
 import leelawatcher.goboard.MarkablePosition;
+import leelawatcher.goboard.MoveResult;
 import leelawatcher.goboard.PointOfPlay;
 
 public interface Rules {
@@ -31,6 +32,18 @@ public interface Rules {
 
   boolean isLegalMove(PointOfPlay p, Board board);
 
+  /**
+   * Decide if the player to move may play a stone, and work out what it
+   * would capture, in a single pass.
+   *
+   * @param x      horizontal coordinate, or <code>Move.PASS</code>
+   * @param y      vertical coordinate, or <code>Move.PASS</code>
+   * @param board  the board it would be played on
+   * @param result receives the analysis, reused between calls
+   * @return True if the move is legal.
+   */
+  boolean evaluate(int x, int y, Board board, MoveResult result);
+
   int countLibs(PointOfPlay p, int counter, MarkablePosition m, Board board);
     /*	  public boolean isGroupCaptured(PointOfPlay p);
     public position moveResult(PointOfPlay p);
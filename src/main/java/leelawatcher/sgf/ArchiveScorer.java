@@ -0,0 +1,167 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.event.MoveVerifier;
+import leelawatcher.goboard.Bitboard;
+import leelawatcher.goboard.Move;
+import leelawatcher.scorer.AreaScorer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Checks the recorded result of every game in an archive of SGF files
+ * against Tromp-Taylor area scoring, for example to find games where
+ * autogtp reported something other than what was on the board. Files are
+ * scored in parallel and each game is replayed straight onto bitboards,
+ * without the rules checks of a {@link leelawatcher.goboard.Board}.
+ * <p>
+ * Run with the files or directories to check, <code>.gz</code> files are
+ * uncompressed as they are read:
+ * <pre>
+ *   java -cp LeelaWatcher.jar leelawatcher.sgf.ArchiveScorer games/
+ * </pre>
+ */
+public class ArchiveScorer {
+
+  private final LongAdder games = new LongAdder();
+  private final LongAdder checked = new LongAdder();
+  private final LongAdder disagreements = new LongAdder();
+  private final MoveVerifier.Report report;
+
+  /**
+   * @param report told about each game scored differently, and files that
+   *               can't be read
+   */
+  public ArchiveScorer(MoveVerifier.Report report) {
+    this.report = report;
+  }
+
+  /**
+   * Check every game in some SGF files, several files at a time.
+   *
+   * @param files the files
+   */
+  public void scoreFiles(List<Path> files) {
+    files.parallelStream().forEach(file -> {
+      try (InputStream raw = Files.newInputStream(file);
+           InputStream is = file.toString().endsWith(".gz") ? new GZIPInputStream(raw, 65536) : raw;
+           SgfReader reader = new SgfReader(new BufferedReader(
+               new InputStreamReader(is, StandardCharsets.ISO_8859_1), 65536))) {
+        score(file.toString(), reader);
+      } catch (IOException e) {
+        report.lam(file + ": " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Check every game a reader has left.
+   *
+   * @param name   what to call the source in reports
+   * @param reader the games
+   * @throws IOException if the games can't be read
+   */
+  public void score(String name, SgfReader reader) throws IOException {
+    AreaScorer scorer = new AreaScorer();
+    int[] black = new int[Bitboard.SIZE];
+    int[] white = new int[Bitboard.SIZE];
+    int[] scratch = new int[Bitboard.SIZE];
+    int game = 0;
+    while (reader.next()) {
+      game++;
+      games.increment();
+      float reported = reader.getResult() == null ? Float.NaN : AreaScorer.margin(reader.getResult());
+      if (Float.isNaN(reported) || reader.getSize() != Bitboard.SIZE || reader.hasSetup()) {
+        continue;
+      }
+      for (int r = 0; r < Bitboard.SIZE; r++) {
+        black[r] = 0;
+        white[r] = 0;
+      }
+      for (int i = 0; i < reader.getMoveCount(); i++) {
+        int x = reader.getX(i);
+        if (x == Move.PASS) {
+          continue;
+        }
+        if (reader.isWhite(i)) {
+          Bitboard.play(white, black, x, reader.getY(i), scratch);
+        } else {
+          Bitboard.play(black, white, x, reader.getY(i), scratch);
+        }
+      }
+      float komi = Float.isNaN(reader.getKomi()) ? AreaScorer.LEELA_ZERO_KOMI : reader.getKomi();
+      float margin = scorer.score(black, white, komi);
+      checked.increment();
+      if (margin != reported) {
+        disagreements.increment();
+        report.lam(name + " game " + game + " reported " + reader.getResult()
+            + " but scores " + AreaScorer.result(margin));
+      }
+    }
+  }
+
+  /**
+   * @return how many games have been read.
+   */
+  public long getGames() {
+    return games.sum();
+  }
+
+  /**
+   * @return how many counted games have been scored.
+   */
+  public long getChecked() {
+    return checked.sum();
+  }
+
+  /**
+   * @return how many games scored differently than recorded.
+   */
+  public long getDisagreements() {
+    return disagreements.sum();
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String arg : args) {
+      try (Stream<Path> found = Files.walk(Paths.get(arg))) {
+        found.filter(Files::isRegularFile).forEach(files::add);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+    ArchiveScorer archive = new ArchiveScorer(System.out::println);
+    long start = System.nanoTime();
+    archive.scoreFiles(files);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d games, %d counted and scored, %d disagree, %.0f games/s%n",
+        archive.getGames(), archive.getChecked(), archive.getDisagreements(), archive.getGames() / seconds);
+  }
+}
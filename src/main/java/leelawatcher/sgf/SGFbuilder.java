@@ -19,6 +19,7 @@ package leelawatcher.sgf;
 import leelawatcher.TsbConstants;
 import leelawatcher.goboard.Game;
 import leelawatcher.goboard.Move;
+import leelawatcher.goboard.WinRateSeries;
 
 // This class is meant to simply provide a routine for converting a game object
 // to a string that conforms to SGF FF[4]. game.java extends this class
@@ -32,34 +33,83 @@ public class SGFbuilder implements SGFproperties, TsbConstants {
 
 
   public String SGFprintMoves(Move aMove) {
+    return SGFprintMoves(aMove, null, null);
+  }
+
+  // Win rates (if any) are written as a comment on moves that don't already
+  // have one. The series is indexed by move number - 1. Moves the game only
+  // packed are written after the move they continue from, so the game is
+  // read without being changed.
+  private String SGFprintMoves(Move aMove, WinRateSeries winRates, Game gm) {
     String tmp = "";
     int numChild = aMove.numChildren();
 
+    if (gm != null && aMove == gm.getCurrMove() && gm.packedSize() > 0) {
+      if (!aMove.isRoot()) {
+        tmp += ";" + aMove + winRateComment(aMove, winRates);
+      }
+      return tmp + SGFprintPacked(aMove, winRates, gm);
+    }
+
     for (int i = 0; i < numChild; i++) {
       if ((i == 0) && !aMove.isRoot()) {
         tmp += ";";
-        tmp += aMove;
+        tmp += aMove + winRateComment(aMove, winRates);
       }
 
       if (numChild > 1)
         tmp += "(";
 
       if (aMove.next() != aMove)               // if shouldn't be needed
-        tmp += SGFprintMoves(aMove.next(i)); // due to for loop, but...
+        tmp += SGFprintMoves(aMove.next(i), winRates, gm); // due to for loop, but...
 
       if (numChild > 1)
         tmp += ")";
     }
 
     if (numChild == 0)
-      tmp += ";" + aMove;
+      tmp += ";" + aMove + winRateComment(aMove, winRates);
 
     return tmp;
 
   }
 
+  private String SGFprintPacked(Move from, WinRateSeries winRates, Game gm) {
+    StringBuilder tmp = new StringBuilder();
+    for (int i = 0; i < gm.packedSize(); i++) {
+      tmp.append(";").append(gm.packedColor(i));
+      tmp.append("[").append(from.xSGF(gm.packedX(i))).append(from.ySGF(gm.packedY(i))).append("]");
+      int index = from.getMoveNum() + i;
+      if (winRates != null && index < winRates.size()) {
+        tmp.append(COMMENT).append("[").append(winRates.get(index)).append("]");
+      }
+    }
+    return tmp.toString();
+  }
+
+  private String winRateComment(Move aMove, WinRateSeries winRates) {
+    int index = aMove.getMoveNum() - 1;
+    if (winRates == null || !aMove.isMove() || !"".equals(aMove.getComment())
+        || index < 0 || index >= winRates.size()) {
+      return "";
+    }
+    return COMMENT + "[" + winRates.get(index) + "]";
+  }
+
 
   public String buildSGF(Game gm) {
+    return buildSGF(gm, null);
+  }
+
+  /**
+   * Build the SGF for a game, annotating each move with the win rate that
+   * was reported after it.
+   *
+   * @param gm       the game to write
+   * @param winRates the win rate after each move, or null for none
+   * @return the game in SGF FF[4]
+   */
+  public String buildSGF(Game gm, WinRateSeries winRates) {
 
     String tmp = "";
     tmp += "(;" + FILEFORMAT + "[" + FORMAT_VERSION + "]" + GAMETYPE + "[1]\n\n";
@@ -82,7 +132,7 @@ public class SGFbuilder implements SGFproperties, TsbConstants {
     tmp += SIZE + "[" + gm.getBoardSize() + "]\n";
     tmp += RULES + "[" + gm.getRuleSet() + "]\n\n";
 
-    tmp += SGFprintMoves(gm.movesRoot());
+    tmp += SGFprintMoves(gm.movesRoot(), winRates, gm);
 
     tmp += ")\n";
     return tmp;
@@ -0,0 +1,224 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads the main line of each game in SGF files or collections, such as
+ * those written by {@link SgfWriterSink} or the concatenated game archives
+ * Leela Zero publishes. Only what is needed to replay and check a game is
+ * kept: the moves, board size, komi and result. Variations are skipped.
+ * <p>
+ * Games are read one at a time with {@link #next()}, reusing the same
+ * arrays, so a reader can get through a very large archive without
+ * building anything per game.
+ */
+public class SgfReader implements Closeable {
+
+  private final Reader in;
+  private final StringBuilder ident = new StringBuilder();
+  private final StringBuilder value = new StringBuilder();
+  private int[] moves = new int[512]; // x << 8 | y, plus 1 << 16 for white
+  private int moveCount;
+  private int size;
+  private float komi;
+  private String result;
+  private boolean setup;
+
+  /**
+   * @param in the SGF text, best buffered
+   */
+  public SgfReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Read the next game.
+   *
+   * @return False if there are no more games.
+   * @throws IOException if the input can't be read, or ends part way
+   *                     through a game
+   */
+  public boolean next() throws IOException {
+    int c;
+    while ((c = in.read()) != '(') {
+      if (c == -1) {
+        return false;
+      }
+    }
+    moveCount = 0;
+    size = 19;
+    komi = Float.NaN;
+    result = null;
+    setup = false;
+    int depth = 1;
+    boolean mainLineDone = false;
+    boolean newIdent = true;
+    ident.setLength(0);
+    while (depth > 0) {
+      c = in.read();
+      if (c == -1) {
+        throw new IOException("SGF ended inside a game");
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        // the first variation to end finishes the main line
+        mainLineDone = true;
+      } else if (c == '[') {
+        readValue();
+        if (!mainLineDone) {
+          property();
+        }
+        newIdent = true;
+      } else if (c >= 'A' && c <= 'Z') {
+        // several values may follow one identifier, a letter after a
+        // value starts the next property
+        if (newIdent) {
+          ident.setLength(0);
+          newIdent = false;
+        }
+        ident.append((char) c);
+      } else if (c == ';') {
+        newIdent = true;
+      }
+    }
+    return true;
+  }
+
+  private void readValue() throws IOException {
+    value.setLength(0);
+    int c;
+    while ((c = in.read()) != ']') {
+      if (c == -1) {
+        throw new IOException("SGF ended inside a property value");
+      }
+      if (c == '\\') {
+        c = in.read();
+      }
+      value.append((char) c);
+    }
+  }
+
+  private void property() {
+    String id = ident.toString();
+    switch (id) {
+      case "B":
+      case "W":
+        addMove(id.equals("W"));
+        break;
+      case "SZ":
+        size = Integer.parseInt(value.toString().trim());
+        break;
+      case "KM":
+        try {
+          komi = Float.parseFloat(value.toString().trim());
+        } catch (NumberFormatException e) {
+          komi = Float.NaN;
+        }
+        break;
+      case "RE":
+        result = value.toString().trim();
+        break;
+      case "AB":
+      case "AW":
+        setup = true;
+        break;
+      default:
+    }
+  }
+
+  private void addMove(boolean white) {
+    int x = Move.PASS;
+    int y = Move.PASS;
+    if (value.length() == 2 && value.charAt(0) != ' '
+        && !(size <= 19 && value.charAt(0) == 't' && value.charAt(1) == 't')) {
+      x = value.charAt(0) - 'a';
+      y = size - 1 - (value.charAt(1) - 'a'); // SGF counts rows from the top
+    }
+    if (moveCount == moves.length) {
+      moves = Arrays.copyOf(moves, moveCount * 2);
+    }
+    moves[moveCount++] = (white ? 1 << 16 : 0) | x << 8 | y;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * @param i which move, from 0
+   * @return True if the move was white's.
+   */
+  public boolean isWhite(int i) {
+    return (moves[i] & 1 << 16) != 0;
+  }
+
+  /**
+   * @param i which move, from 0
+   * @return The horizontal coordinate, or <code>Move.PASS</code>.
+   */
+  public int getX(int i) {
+    return moves[i] >> 8 & 0xff;
+  }
+
+  /**
+   * @param i which move, from 0
+   * @return The vertical coordinate counted from the bottom as in
+   * {@link Move}, or <code>Move.PASS</code>.
+   */
+  public int getY(int i) {
+    return moves[i] & 0xff;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return The komi, or NaN if the game did not say.
+   */
+  public float getKomi() {
+    return komi;
+  }
+
+  /**
+   * @return The result as written, for example "W+R", or null if the game
+   * did not say.
+   */
+  public String getResult() {
+    return result;
+  }
+
+  /**
+   * @return True if stones were placed other than by moves, for example
+   * handicap stones.
+   */
+  public boolean hasSetup() {
+    return setup;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
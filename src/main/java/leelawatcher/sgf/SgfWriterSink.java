@@ -0,0 +1,74 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+
+package leelawatcher.sgf;
+
+import leelawatcher.event.GameRecordSink;
+import leelawatcher.event.GameScored;
+import leelawatcher.goboard.Board;
+import leelawatcher.index.GameIndex;
+import leelawatcher.metrics.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Saves every finished game as an SGF file named after the time it was saved
+ * and its seed, and adds it to any {@link GameIndex game indexes}.
+ */
+public class SgfWriterSink extends GameRecordSink {
+
+  private final File dir;
+  private final List<GameIndex> indexes;
+
+  /**
+   * @param dir the directory to save games in
+   */
+  public SgfWriterSink(File dir) {
+    this(dir, Collections.emptyList());
+  }
+
+  /**
+   * @param dir     the directory to save games in
+   * @param indexes where to add each game saved
+   */
+  public SgfWriterSink(File dir, List<GameIndex> indexes) {
+    this.dir = dir;
+    this.indexes = indexes;
+  }
+
+  @Override
+  protected void gameFinished(Board board, GameScored event) {
+    String name = DateTimeFormatter.ISO_INSTANT.format(Instant.now()).replaceAll(":", "_");
+    long start = System.nanoTime();
+    board.setResult(event.getScore());
+    File file = new File(dir, name + "_" + event.getSeed() + ".sgf");
+    board.saveGame(file.getPath());
+    Metrics.SGF_WRITE.recordSince(start);
+    Metrics.SGF_LATENCY.recordSince(event.getReadNanos());
+    for (GameIndex index : indexes) {
+      try {
+        index.addGame(file.getPath(), board);
+      } catch (IOException e) {
+        System.err.println("Couldn't index game: " + e);
+      }
+    }
+  }
+}
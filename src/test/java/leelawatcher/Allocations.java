@@ -0,0 +1,31 @@
+package leelawatcher;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the bytes allocated by the current thread, for tests that hold hot
+ * paths to an allocation budget. Only JVMs that implement
+ * {@link com.sun.management.ThreadMXBean} can do this, on others the tests
+ * are skipped.
+ */
+public final class Allocations {
+
+  // looked up once, since looking it up allocates
+  private static final ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+
+  private Allocations() {
+  }
+
+  /**
+   * @return The bytes allocated by the calling thread since it started.
+   */
+  public static long allocatedBytes() {
+    assumeTrue("thread allocation is not measured by this JVM",
+        BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) BEAN).isThreadAllocatedMemoryEnabled());
+    return ((com.sun.management.ThreadMXBean) BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
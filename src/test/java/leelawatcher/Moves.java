@@ -0,0 +1,19 @@
+package leelawatcher;
+
+/**
+ * Writes moves the way the opening tree and the game indexes take them.
+ */
+public final class Moves {
+
+  private Moves() {
+  }
+
+  /**
+   * @param x horizontal coordinate, or <code>Move.PASS</code>
+   * @param y vertical coordinate, or <code>Move.PASS</code>
+   * @return The move as <code>x &lt;&lt; 16 | y</code>.
+   */
+  public static int move(int x, int y) {
+    return x << 16 | y;
+  }
+}
@@ -0,0 +1,31 @@
+package leelawatcher;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cleans up after tests that write files into a directory of their own from
+ * {@link Files#createTempDirectory}.
+ */
+public final class TempDirs {
+
+  private TempDirs() {
+  }
+
+  /**
+   * Delete a directory and the files in it. Subdirectories are not expected.
+   *
+   * @param dir the directory
+   * @throws IOException if anything cannot be deleted
+   */
+  public static void delete(Path dir) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path p : files) {
+        Files.delete(p);
+      }
+    }
+    Files.delete(dir);
+  }
+}
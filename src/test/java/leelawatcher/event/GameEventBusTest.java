@@ -0,0 +1,129 @@
+package leelawatcher.event;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GameEventBusTest {
+
+  @Test
+  public void testSlowSinkDoesNotHoldUpOthers() throws InterruptedException {
+    GameEventBus bus = new GameEventBus();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch fastDone = new CountDownLatch(3);
+    GameEventBus.Subscription slow = bus.subscribe("slow", new GameEventSink() {
+      @Override
+      public void gameScored(GameScored event) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    bus.subscribe("fast", new GameEventSink() {
+      @Override
+      public void gameScored(GameScored event) {
+        fastDone.countDown();
+      }
+    });
+    for (int i = 0; i < 3; i++) {
+      bus.publish(new GameScored(i, "g" + i, "B+R", false));
+    }
+    assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+    assertTrue(slow.backlog() > 0);
+    release.countDown();
+  }
+
+  @Test
+  public void testFullSinkHoldsUpPublisher() throws Exception {
+    GameEventBus bus = new GameEventBus(2);
+    CountDownLatch release = new CountDownLatch(1);
+    bus.subscribe("slow", new GameEventSink() {
+      @Override
+      public void gameScored(GameScored event) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    CountDownLatch published = new CountDownLatch(1);
+    Thread publisher = new Thread(() -> {
+      for (int i = 0; i < 5; i++) {
+        bus.publish(new GameScored(i, "g" + i, "B+R", false));
+      }
+      published.countDown();
+    });
+    publisher.start();
+    assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+    // messages never wait, sinks publish them from their own threads
+    bus.publish(new Message("still heard"));
+    release.countDown();
+    assertTrue(published.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRecordSinkAccumulatesGames() {
+    // the board is reused once gameFinished returns, so keep what it showed
+    List<Position> finished = new ArrayList<>();
+    List<Integer> moveNums = new ArrayList<>();
+    GameEventBus bus = new GameEventBus();
+    bus.subscribe("records", new GameRecordSink() {
+      @Override
+      protected void gameFinished(Board board, GameScored event) {
+        finished.add(board.getCurrPos());
+        moveNums.add(board.getMoveNum());
+      }
+    }, Runnable::run);
+    bus.publish(new GameStarted(0, "a", "selfplay", false));
+    bus.publish(new MovePlayed(0, "a", 1, new PointOfPlay(3, 3), 0.5f, false));
+    bus.publish(new GameStarted(1, "b", "selfplay", false));
+    bus.publish(new MovePlayed(1, "b", 1, null, 0.5f, false));
+    bus.publish(new MovePlayed(0, "a", 2, new PointOfPlay(15, 15), 0.4f, false));
+    bus.publish(new GameScored(0, "a", "W+R", false));
+
+    assertEquals(1, finished.size());
+    assertEquals(2, (int) moveNums.get(0));
+    assertTrue(finished.get(0).blackAt(3, 3));
+    assertTrue(finished.get(0).whiteAt(15, 15));
+  }
+
+  @Test
+  public void testSharedRecordSinkGetsTheSameBoard() {
+    List<Board> boards = new ArrayList<>();
+    GameRecordSink owner = new GameRecordSink() {
+      @Override
+      protected void gameFinished(Board board, GameScored event) {
+        boards.add(board);
+      }
+    };
+    owner.share(new GameRecordSink() {
+      @Override
+      protected void gameFinished(Board board, GameScored event) {
+        boards.add(board);
+        assertTrue(board.getCurrPos().blackAt(3, 3));
+      }
+    });
+    GameEventBus bus = new GameEventBus();
+    bus.subscribe("records", owner, Runnable::run);
+    bus.publish(new GameStarted(0, "a", "selfplay", false));
+    bus.publish(new MovePlayed(0, "a", 1, new PointOfPlay(3, 3), 0.5f, false));
+    bus.publish(new GameScored(0, "a", "B+R", false));
+
+    assertEquals(2, boards.size());
+    assertSame(boards.get(0), boards.get(1));
+  }
+}
@@ -0,0 +1,41 @@
+package leelawatcher.event;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GameRegistryTest {
+
+  @Test
+  public void testRemoveKeepsCollidingGamesReachable() {
+    GameRegistry<String> games = new GameRegistry<>();
+    for (int id = 0; id < 1000; id++) {
+      games.put(id, "g" + id);
+    }
+    for (int id = 0; id < 1000; id += 2) {
+      assertEquals("g" + id, games.remove(id));
+    }
+    assertEquals(500, games.size());
+    for (int id = 0; id < 1000; id++) {
+      if (id % 2 == 0) {
+        assertNull(games.get(id));
+      } else {
+        assertEquals("g" + id, games.get(id));
+      }
+    }
+    assertNull(games.remove(0));
+    assertNull(games.get(-1));
+  }
+
+  @Test
+  public void testValuesInStartOrder() {
+    GameRegistry<String> games = new GameRegistry<>();
+    games.put(7, "c");
+    games.put(2, "a");
+    games.put(5, "b");
+    assertEquals(Arrays.asList("a", "b", "c"), games.values());
+  }
+}
@@ -0,0 +1,67 @@
+package leelawatcher.event;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.PointOfPlay;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MoveVerifierTest {
+
+  private static List<PointOfPlay> legalGame() {
+    Board strict = new Board();
+    List<PointOfPlay> moves = new ArrayList<>();
+    Random random = new Random(35);
+    for (int tries = 0; tries < 2000 && moves.size() < 150; tries++) {
+      PointOfPlay p = new PointOfPlay(random.nextInt(9), random.nextInt(9));
+      try {
+        strict.doMove(p.getX(), p.getY());
+        moves.add(p);
+      } catch (IllegalMoveException e) {
+        // occupied, suicide or ko, try somewhere else
+      }
+    }
+    assertTrue(strict.getBlackHasCap() + strict.getWhiteHasCap() > 0);
+    return moves;
+  }
+
+  private static void play(MoveVerifier verifier, int gameId, List<PointOfPlay> moves) {
+    verifier.gameStarted(new GameStarted(gameId, "g" + gameId, "selfplay", false));
+    for (int i = 0; i < moves.size(); i++) {
+      verifier.movePlayed(new MovePlayed(gameId, "g" + gameId, i + 1, moves.get(i), 0.5f, false));
+    }
+    verifier.gameScored(new GameScored(gameId, "g" + gameId, "B+R", false));
+  }
+
+  @Test
+  public void testWholeGamesAgreeWithRules() {
+    List<String> reports = new ArrayList<>();
+    MoveVerifier verifier = MoveVerifier.wholeGames(reports::add);
+    List<PointOfPlay> moves = legalGame();
+    play(verifier, 0, moves);
+    assertEquals(reports.toString(), 0, verifier.getDiscrepancies());
+    assertEquals(moves.size(), verifier.getChecked());
+
+    moves.add(moves.get(moves.size() - 1)); // on top of the last stone
+    play(verifier, 1, moves);
+    assertEquals(1, verifier.getDiscrepancies());
+    assertTrue(reports.get(0), reports.get(0).startsWith("Game g1 move " + moves.size()));
+  }
+
+  @Test
+  public void testSamplingFindsIllegalMove() {
+    List<String> reports = new ArrayList<>();
+    MoveVerifier verifier = MoveVerifier.sampling(1, reports::add);
+    List<PointOfPlay> moves = legalGame();
+    moves.add(moves.get(0));
+    play(verifier, 0, moves);
+    assertEquals(1, reports.size());
+    assertEquals(moves.size(), verifier.getChecked());
+  }
+}
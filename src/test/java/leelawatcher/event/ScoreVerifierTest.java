@@ -0,0 +1,40 @@
+package leelawatcher.event;
+
+import leelawatcher.goboard.PointOfPlay;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScoreVerifierTest {
+
+  // black builds a wall down the middle while white passes, so black owns
+  // the whole board
+  private static void play(ScoreVerifier verifier, int gameId, String score) {
+    verifier.gameStarted(new GameStarted(gameId, "g" + gameId, "selfplay", false));
+    int moveNum = 1;
+    for (int y = 0; y < 19; y++) {
+      verifier.movePlayed(new MovePlayed(gameId, "g" + gameId, moveNum++, new PointOfPlay(9, y), 0.5f, false));
+      verifier.movePlayed(new MovePlayed(gameId, "g" + gameId, moveNum++, null, 0.5f, false));
+    }
+    verifier.gameScored(new GameScored(gameId, "g" + gameId, score, false));
+  }
+
+  @Test
+  public void testDisagreementsReported() {
+    List<String> reports = new ArrayList<>();
+    ScoreVerifier verifier = new ScoreVerifier(7.5f, reports::add);
+    play(verifier, 0, "B+353.5");
+    play(verifier, 1, "W+R");
+    assertEquals(reports.toString(), 0, verifier.getDisagreements());
+    assertEquals(1, verifier.getChecked());
+    assertEquals(1, verifier.getResigned());
+
+    play(verifier, 2, "W+0.5");
+    assertEquals(1, verifier.getDisagreements());
+    assertTrue(reports.get(0), reports.get(0).startsWith("Game g2 reported W+0.5 but scores B+353.5"));
+  }
+}
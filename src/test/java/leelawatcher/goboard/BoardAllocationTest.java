@@ -0,0 +1,65 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static leelawatcher.Allocations.allocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Holds {@link Board#doMove} to a budget of bytes allocated per move. The
+ * position that is kept for every move (two rows of 19 ints and the last
+ * move) is about 260 bytes on a 64 bit JVM, so the budgets leave room for
+ * that and little else. If a change legitimately needs more, raise the
+ * budget in the same commit and say why.
+ */
+public class BoardAllocationTest {
+
+  private static final long STRICT_BYTES_PER_MOVE = 448;
+  private static final long TRUSTED_BYTES_PER_MOVE = 384;
+
+  private static final int GAMES = 100;
+
+  /**
+   * Play random legal games and measure only the calls to doMove.
+   *
+   * @return The average bytes allocated per move.
+   */
+  private static long bytesPerMove(boolean trusted) throws IllegalMoveException {
+    Random random = new Random(42);
+    long bytes = 0;
+    long moves = 0;
+    for (int game = 0; game < GAMES; game++) {
+      Board board = new Board();
+      board.setTrusted(trusted);
+      for (int tries = 0; tries < 400 && board.getMoveCount() < 250; tries++) {
+        int x = random.nextInt(19);
+        int y = random.nextInt(19);
+        if (board.isLegalMove(x, y)) {
+          long before = allocatedBytes();
+          board.doMove(x, y);
+          bytes += allocatedBytes() - before;
+          moves++;
+        }
+      }
+    }
+    return bytes / moves;
+  }
+
+  private static void assertWithinBudget(boolean trusted, long budget) throws IllegalMoveException {
+    bytesPerMove(trusted); // warm up, so class loading and the interpreter don't count
+    long perMove = bytesPerMove(trusted);
+    assertTrue(perMove + " bytes per move, budget " + budget, perMove <= budget);
+  }
+
+  @Test
+  public void testStrictMoveBudget() throws IllegalMoveException {
+    assertWithinBudget(false, STRICT_BYTES_PER_MOVE);
+  }
+
+  @Test
+  public void testTrustedMoveBudget() throws IllegalMoveException {
+    assertWithinBudget(true, TRUSTED_BYTES_PER_MOVE);
+  }
+}
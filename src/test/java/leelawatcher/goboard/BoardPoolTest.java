@@ -0,0 +1,49 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BoardPoolTest {
+
+  private static void playRandomGame(Board board, long seed) {
+    Random random = new Random(seed);
+    for (int tries = 0; tries < 400 && board.getMoveCount() < 100; tries++) {
+      try {
+        board.doMove(random.nextInt(9), random.nextInt(9));
+      } catch (IllegalMoveException e) {
+        // occupied, suicide or ko, try somewhere else
+      }
+      board.setWinRate(random.nextFloat());
+    }
+  }
+
+  @Test
+  public void testReusedBoardPlaysLikeNewOne() {
+    BoardPool pool = new BoardPool(1);
+    Board board = pool.acquire();
+    playRandomGame(board, 1);
+    pool.release(board);
+    assertEquals(0, board.getMoveCount());
+    assertEquals(0, board.getWinRates().size());
+    assertEquals(new Position(), board.getCurrPos());
+
+    Board reused = pool.acquire();
+    assertSame(board, reused);
+    assertEquals(1, pool.getCreated());
+    assertEquals(1, pool.getReused());
+
+    Board fresh = new Board();
+    playRandomGame(reused, 2);
+    playRandomGame(fresh, 2);
+    assertEquals(fresh.getMoveCount(), reused.getMoveCount());
+    assertEquals(fresh.getBlackHasCap(), reused.getBlackHasCap());
+    for (int n = 0; n <= fresh.getMoveCount(); n++) {
+      assertEquals(fresh.getPositionAt(n), reused.getPositionAt(n));
+    }
+    assertEquals(fresh.getCurrPos(), reused.getCurrPos());
+  }
+}
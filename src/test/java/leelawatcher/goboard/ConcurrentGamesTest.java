@@ -0,0 +1,72 @@
+package leelawatcher.goboard;
+
+import leelawatcher.scorer.QuickRules;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentGamesTest {
+
+  private static final int GAMES = 2000;
+
+  /**
+   * Play a random game and sum up how it ended.
+   */
+  private static long playGame(int game) {
+    Random random = new Random(game);
+    Board board = new Board();
+    for (int tries = 0; tries < 400 && board.getMoveCount() < 100; tries++) {
+      try {
+        board.doMove(random.nextInt(9), random.nextInt(9));
+      } catch (IllegalMoveException e) {
+        // occupied, suicide or ko, try somewhere else
+      }
+    }
+    long result = board.getCurrPos().hashCode();
+    result = 31 * result + board.getBlackHasCap();
+    result = 31 * result + board.getWhiteHasCap();
+    return 31 * result + board.getMoveCount();
+  }
+
+  @Test
+  public void testParallelGamesMatchSequential() throws Exception {
+    long[] sequential = IntStream.range(0, GAMES).mapToLong(ConcurrentGamesTest::playGame).toArray();
+    ForkJoinPool pool = new ForkJoinPool(8);
+    try {
+      long[] parallel = pool.submit(() ->
+          IntStream.range(0, GAMES).parallel().mapToLong(ConcurrentGamesTest::playGame).toArray()).get();
+      assertArrayEquals(sequential, parallel);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testNoMutableStaticState() throws Exception {
+    // start from a main class, the test classes have package directories too
+    for (Class<?> member : new Class<?>[]{Board.class, QuickRules.class}) {
+      URL url = member.getResource(member.getSimpleName() + ".class");
+      assertTrue(member.getName(), "file".equals(url.getProtocol()));
+      File[] classes = new File(url.toURI()).getParentFile().listFiles((dir, name) -> name.endsWith(".class"));
+      assertTrue(member.getName(), classes != null && classes.length > 1);
+      for (File file : classes) {
+        String name = member.getPackage().getName() + "." + file.getName().replace(".class", "");
+        for (Field f : Class.forName(name).getDeclaredFields()) {
+          int mods = f.getModifiers();
+          assertFalse(name + "." + f.getName() + " is static and not final",
+              Modifier.isStatic(mods) && !Modifier.isFinal(mods));
+        }
+      }
+    }
+  }
+}
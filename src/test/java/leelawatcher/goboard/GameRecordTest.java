@@ -0,0 +1,61 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class GameRecordTest {
+
+  private static Board playCapture() throws IllegalMoveException {
+    Board board = new Board();
+    // black surrounds and captures the white stone at 1,1
+    board.doMove(1, 0);
+    board.doMove(1, 1);
+    board.doMove(0, 1);
+    board.doMove(Move.PASS, Move.PASS);
+    board.doMove(2, 1);
+    board.doMove(10, 10);
+    board.doMove(1, 2);
+    board.setMoveNum(7);
+    board.setWinRate(0.75f);
+    board.setKomi(7.5f);
+    board.setResult("B+R");
+    return board;
+  }
+
+  @Test
+  public void testReplayMatchesOriginal() throws IllegalMoveException {
+    Board original = playCapture();
+    GameRecord record = GameRecord.of(original);
+
+    assertEquals(7, record.size());
+    assertEquals(GameRecord.PASS, record.moveAt(3));
+
+    Board copy = record.toBoard();
+    assertEquals(original.getCurrPos(), copy.getCurrPos());
+    assertEquals(original.getBlackHasCap(), copy.getBlackHasCap());
+    assertEquals(7, copy.getMoveNum());
+    assertEquals(0.75f, copy.getWinRate(), 0f);
+    assertEquals(7.5f, copy.getGame().getKomi(), 0f);
+    assertEquals("B+R", copy.getGame().getGameResult());
+  }
+
+  @Test
+  public void testWriteRead() throws IOException, IllegalMoveException {
+    GameRecord record = GameRecord.of(playCapture());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    record.writeTo(new DataOutputStream(bytes));
+
+    GameRecord read = GameRecord.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(record.size(), read.size());
+    assertEquals(record.toBoard().getCurrPos(), read.toBoard().getCurrPos());
+    assertEquals(7.5f, read.getKomi(), 0f);
+    assertEquals("B+R", read.getResult());
+  }
+}
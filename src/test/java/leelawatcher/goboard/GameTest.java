@@ -0,0 +1,79 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GameTest {
+
+  @Test
+  public void testPackedMovesBecomeTheSameTree() {
+    Game game = new Game("White", "Black", 0, 7.5f);
+    assertEquals('B', game.play(3, 3));
+    assertEquals('W', game.play(15, 15));
+    assertEquals('B', game.play(Move.PASS, Move.PASS));
+    assertArrayEquals(new short[]{3 * 19 + 3, 15 * 19 + 15, GameRecord.PASS}, game.mainLine());
+
+    // reading the game leaves the packed moves alone
+    Move root = game.movesRoot();
+    assertEquals(0, root.numChildren());
+    assertSame(root, game.getCurrMove());
+    assertEquals(3, game.packedSize());
+    assertEquals(Move.MOVE_WHITE, game.packedColor(1));
+    assertEquals(15, game.packedY(1));
+    assertEquals(Move.PASS, game.packedX(2));
+
+    // making a move object builds the ones before it too
+    Move fourth = game.doMove(4, 4);
+    assertEquals(0, game.packedSize());
+    Move first = root.next();
+    assertTrue(first.isBlack());
+    assertEquals(3, first.getX());
+    assertEquals(1, first.getMoveNum());
+    Move second = first.next();
+    assertTrue(second.isWhite());
+    assertEquals(15, second.getY());
+    Move third = second.next();
+    assertTrue(third.isPass());
+    assertEquals(3, third.getMoveNum());
+    assertSame(fourth, third.next());
+    assertEquals(4, fourth.getMoveNum());
+    assertSame(fourth, game.getCurrMove());
+
+    // later moves are packed again after the ones that were built
+    assertEquals('B', game.play(5, 5));
+    assertArrayEquals(new short[]{3 * 19 + 3, 15 * 19 + 15, GameRecord.PASS, 4 * 19 + 4, 5 * 19 + 5},
+        game.mainLine());
+    assertSame(fourth, game.getCurrMove());
+  }
+
+  @Test
+  public void testUndoneMoveIsKeptAsVariation() {
+    Game game = new Game("White", "Black", 0, 7.5f);
+    game.play(3, 3);
+    game.doMove(15, 15);
+    game.undoMove();
+    assertEquals('W', game.play(16, 16));
+
+    Move first = game.movesRoot().next();
+    assertEquals(2, first.numChildren());
+    assertEquals("UNDO ", first.next(0).getComment());
+    assertEquals(16, first.next(1).getX());
+    // the main line still follows the first variation
+    assertArrayEquals(new short[]{3 * 19 + 3, 15 * 19 + 15}, game.mainLine());
+  }
+
+  @Test
+  public void testUndoingPackedMoveDropsIt() {
+    Game game = new Game("White", "Black", 0, 7.5f);
+    game.play(3, 3);
+    game.play(15, 15);
+    game.undoMove();
+    assertEquals('W', game.play(16, 16));
+    assertArrayEquals(new short[]{3 * 19 + 3, 16 * 19 + 16}, game.mainLine());
+    assertEquals(0, game.movesRoot().numChildren());
+  }
+}
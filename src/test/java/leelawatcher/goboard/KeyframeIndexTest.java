@@ -0,0 +1,61 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyframeIndexTest {
+
+  @Test
+  public void testEveryPositionMatchesBoard() throws IllegalMoveException {
+    Board board = new Board();
+    // a capture early on, so a keyframe has to carry it
+    board.doMove(1, 0);
+    board.doMove(1, 1);
+    board.doMove(0, 1);
+    board.doMove(Move.PASS, Move.PASS);
+    board.doMove(2, 1);
+    board.doMove(10, 10);
+    board.doMove(1, 2);
+    Random random = new Random(29);
+    for (int tries = 0; tries < 1000 && board.getMoveCount() < 120; tries++) {
+      try {
+        board.doMove(random.nextInt(9), random.nextInt(9));
+      } catch (IllegalMoveException e) {
+        // occupied, suicide or ko, try somewhere else
+      }
+    }
+    assertTrue(board.getBlackHasCap() > 0);
+
+    List<Position> played = new ArrayList<>();
+    for (Iterator it = board.getPosIter(); it.hasNext(); ) {
+      played.add((Position) it.next());
+    }
+    assertEquals(board.getMoveCount() + 1, played.size());
+    for (int n = 0; n < played.size(); n++) {
+      assertEquals("after " + n + " moves", played.get(n), board.getPositionAt(n));
+    }
+  }
+
+  @Test
+  public void testTruncate() {
+    KeyframeIndex index = new KeyframeIndex(new Position(), 2);
+    int[] scratch = new int[19];
+    Position pos = new Position();
+    for (int i = 0; i < 5; i++) {
+      pos = new Position(pos, i, 0, i % 2 == 0, scratch);
+      index.record(i, 0, i % 2 == 0, pos);
+    }
+    index.truncate(3);
+    assertEquals(3, index.size());
+    pos = new Position(index.positionAt(3), 9, 9, false, scratch);
+    index.record(9, 9, false, pos);
+    assertEquals(pos, index.positionAt(4));
+  }
+}
@@ -0,0 +1,38 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PatternsTest {
+
+  private static int[] stones(int... xy) {
+    int[] rows = new int[19];
+    for (int i = 0; i < xy.length; i += 2) {
+      rows[xy[i + 1]] |= 1 << xy[i];
+    }
+    return rows;
+  }
+
+  @Test
+  public void testSameShapeAnyWayRound() {
+    // a hane at 10,10 against a stone at 10,9 with own stone at 9,9
+    long code = Patterns.code(stones(9, 9), stones(10, 9), 10, 10, 2);
+    // mirrored left to right, rotated, and with the colors swapped
+    assertEquals(code, Patterns.code(stones(9, 9), stones(8, 9), 8, 10, 2));
+    assertEquals(code, Patterns.code(stones(9, 9), stones(9, 8), 10, 8, 2));
+    assertEquals(code, Patterns.code(stones(9, 9), stones(9, 10), 10, 10, 2));
+    assertNotEquals(code, Patterns.code(stones(10, 9), stones(9, 9), 10, 10, 2));
+    assertEquals(2, Patterns.radius(code));
+  }
+
+  @Test
+  public void testEdges() {
+    long corner = Patterns.code(new int[19], new int[19], 0, 0, 1);
+    assertEquals(corner, Patterns.code(new int[19], new int[19], 18, 18, 1));
+    assertNotEquals(corner, Patterns.code(new int[19], new int[19], 0, 1, 1));
+    assertNotEquals(corner, Patterns.code(new int[19], new int[19], 9, 9, 1));
+    assertEquals("###\n#*.\n#..\n", Patterns.toString(corner));
+  }
+}
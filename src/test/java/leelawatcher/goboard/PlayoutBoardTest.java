@@ -0,0 +1,51 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlayoutBoardTest {
+
+  @Test
+  public void testAgreesWithBoard() {
+    Random random = new Random(47);
+    for (int game = 0; game < 20; game++) {
+      Board board = new Board();
+      PlayoutBoard playout = new PlayoutBoard(game + 1);
+      for (int tries = 0; tries < 3000 && board.getMoveCount() < 400; tries++) {
+        int x = random.nextInt(9);
+        int y = random.nextInt(9);
+        boolean legal = playout.isLegal(x, y);
+        try {
+          board.doMove(x, y);
+        } catch (IllegalMoveException e) {
+          continue; // may also be a repeat of an older position, which playouts allow
+        }
+        assertTrue("game " + game + " move " + board.getMoveCount() + " at " + x + "," + y, legal);
+        playout.play(x, y);
+        Position pos = board.getCurrPos();
+        for (int py = 0; py < 19; py++) {
+          for (int px = 0; px < 19; px++) {
+            byte expected = pos.blackAt(px, py) ? PlayoutBoard.BLACK
+                : pos.whiteAt(px, py) ? PlayoutBoard.WHITE : PlayoutBoard.EMPTY;
+            assertEquals(expected, playout.colorAt(px, py));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPlayOutEndsWithOnlyEyes() {
+    PlayoutBoard playout = new PlayoutBoard(1);
+    playout.playOut(10000);
+    int[] ownership = new int[361];
+    playout.addOwnership(ownership);
+    for (int i = 0; i < 361; i++) {
+      assertEquals(1, Math.abs(ownership[i]));
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WinRateSeriesTest {
+
+  @Test
+  public void testGrowsPastInitialCapacity() {
+    WinRateSeries series = new WinRateSeries();
+    for (int i = 0; i < 1000; i++) {
+      series.add(i / 1000f);
+    }
+    assertEquals(1000, series.size());
+    assertEquals(0.5f, series.get(500), 0f);
+    assertEquals(0.999f, series.last(), 0f);
+    assertEquals(1000, series.toArray().length);
+  }
+
+  @Test
+  public void testBoardKeepsHistoryAndSgfAnnotatesMoves() throws IllegalMoveException {
+    Board board = new Board();
+    board.doMove(3, 3);
+    board.setWinRate(0.5f);
+    board.doMove(15, 15);
+    board.setWinRate(0.25f);
+
+    assertEquals(0.25f, board.getWinRate(), 0f);
+    assertEquals(2, board.getWinRates().size());
+
+    String sgf = new leelawatcher.sgf.SGFbuilder().buildSGF(board.getGame(), board.getWinRates());
+    assertTrue(sgf, sgf.contains(";B[dp]C[0.5];W[pd]C[0.25]"));
+  }
+}
@@ -0,0 +1,40 @@
+package leelawatcher.gui;
+
+import leelawatcher.goboard.IllegalMoveException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameHistoryTest {
+
+  private static BoardViewModel finishedGame(String seed, int moves) throws IllegalMoveException {
+    BoardViewModel vm = new BoardViewModel(seed, BoardViewModel.Type.selfplay);
+    for (int i = 0; i < moves; i++) {
+      vm.getBoard().doMove(i, i % 2 == 0 ? 0 : 18);
+    }
+    vm.setScore("B+R");
+    return vm;
+  }
+
+  @Test
+  public void testDemoteSpillAndReload() throws IllegalMoveException {
+    GameHistory history = new GameHistory(1, 0); // every demoted game spills
+    BoardViewModel first = finishedGame("first", 5);
+    BoardViewModel second = finishedGame("second", 3);
+    String firstPos = first.getBoard().getCurrPos().toString();
+
+    history.finished(first);
+    assertTrue(first.isHot());
+    history.finished(second);
+    assertFalse(first.isHot());
+    assertTrue(second.isHot());
+    assertEquals(0, first.compactBytes()); // spilled rather than kept compact
+
+    history.touch(first);
+    assertTrue(first.isHot());
+    assertFalse(second.isHot());
+    assertEquals(firstPos, first.getBoard().getCurrPos().toString());
+  }
+}
@@ -0,0 +1,65 @@
+package leelawatcher.index;
+
+import leelawatcher.TempDirs;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Patterns;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static leelawatcher.Moves.move;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PatternIndexTest {
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("patterns");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TempDirs.delete(dir);
+  }
+
+  @Test
+  public void testCountsShapes() throws Exception {
+    // the first two moves of each game are alone on the board, and so is
+    // the third after a pass
+    int[] moves = {move(3, 3), move(15, 15), move(Move.PASS, Move.PASS), move(9, 9)};
+    long empty = Patterns.code(new int[19], new int[19], 9, 9, 1);
+    try (PatternIndex index = new PatternIndex(dir, 8)) {
+      for (int g = 0; g < 10; g++) {
+        index.addGame("game" + g, moves, moves.length);
+      }
+      assertEquals(30, index.count(empty));
+      List<PositionHit> hits = index.find(empty, 4);
+      assertEquals(4, hits.size());
+      assertEquals("game1", hits.get(3).getGame());
+      assertEquals(4, hits.get(2).getMoveCount());
+      assertArrayEquals(new int[]{20, 10}, index.whenPlayed(empty, 3));
+    }
+
+    try (PatternIndex reopened = new PatternIndex(dir, 8)) {
+      Board board = new Board();
+      board.doMove(9, 9);
+      board.doMove(9, 10);
+      reopened.addGame("board", board);
+      assertEquals(31, reopened.count(empty));
+      List<PatternCount> top = reopened.top(1, 2);
+      assertEquals(empty, top.get(0).getCode());
+      assertEquals(31, top.get(0).getCount());
+      assertEquals(1, top.get(1).getCount());
+      assertEquals(2, reopened.top(2, 5).size());
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package leelawatcher.index;
+
+import leelawatcher.TempDirs;
+import leelawatcher.goboard.Board;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static leelawatcher.Moves.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PositionIndexTest {
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("index");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TempDirs.delete(dir);
+  }
+
+  /**
+   * Find the games where black opened on a 3-3 point and white answered in
+   * the opposite corner.
+   */
+  private static List<PositionHit> findOppositeCorners(PositionIndex index) {
+    int[] black = new int[19];
+    int[] white = new int[19];
+    black[15] = 1 << 15;
+    white[3] = 1 << 3;
+    return index.find(black, white, true, 100);
+  }
+
+  @Test
+  public void testFindsSymmetricGamesAcrossSegments() throws Exception {
+    try (PositionIndex index = new PositionIndex(dir, 1)) {
+      for (int g = 0; g < 20; g++) {
+        int corner = g % 2 == 0 ? 3 : 15;
+        int other = (g % 4) < 2 ? 18 - corner : 16;
+        index.addGame("game" + g, new int[]{move(corner, corner), move(other, other), move(9, 9)}, 3);
+      }
+      // every game was written, four at a time merged, and four of those again
+      assertEquals(20, index.getGameCount());
+      assertTrue(index.getSegmentCount() < 20);
+      assertEquals(10, findOppositeCorners(index).size());
+    }
+
+    try (PositionIndex reopened = new PositionIndex(dir, 1000)) {
+      List<PositionHit> hits = findOppositeCorners(reopened);
+      assertEquals(10, hits.size());
+      for (int i = 0; i < hits.size(); i++) {
+        int game = i / 2 * 4 + i % 2;
+        assertEquals(game, hits.get(i).getGameId());
+        assertEquals("game" + game, hits.get(i).getGame());
+        assertEquals(2, hits.get(i).getMoveCount());
+      }
+      // games kept in memory are found along with those on disk
+      reopened.addGame("more", new int[]{move(3, 15), move(15, 3)}, 2);
+      assertEquals(11, findOppositeCorners(reopened).size());
+      assertEquals("more", reopened.getGame(20));
+    }
+    assertEquals(11, findOppositeCorners(new PositionIndex(dir)).size());
+  }
+
+  @Test
+  public void testIndexesBoards() throws Exception {
+    Board board = new Board();
+    board.doMove(3, 3);
+    board.doMove(15, 15);
+    board.doMove(9, 9);
+    try (PositionIndex index = new PositionIndex(dir, 1)) {
+      index.addGame("board", board);
+      List<PositionHit> hits = findOppositeCorners(index);
+      assertEquals(1, hits.size());
+      assertEquals(2, hits.get(0).getMoveCount());
+      assertEquals(0, index.find(new int[19], new int[19], true, 100).size());
+    }
+  }
+}
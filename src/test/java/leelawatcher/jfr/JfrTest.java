@@ -0,0 +1,48 @@
+package leelawatcher.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.scorer.QuickRules;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JfrTest {
+
+  @Test
+  public void testLegalityChecksRecordedOnlyWhileRecording() throws Exception {
+    Board board = new Board();
+    board.doMove(3, 3);
+    assertFalse(Jfr.isRecording());
+    Path file = Files.createTempFile("leelawatcher", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable(LegalityCheckEvent.NAME).withThreshold(java.time.Duration.ZERO);
+        recording.start();
+        assertTrue(Jfr.isRecording());
+        new QuickRules().isLegalMove(new PointOfPlay(3, 3), board);
+        new QuickRules().isLegalMove(new PointOfPlay(4, 4), board);
+        recording.stop();
+        recording.dump(file);
+      }
+      assertFalse(Jfr.isRecording());
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      events.removeIf(e -> !e.getEventType().getName().equals(LegalityCheckEvent.NAME));
+      assertEquals(2, events.size());
+      assertFalse(events.get(0).getBoolean("legal"));
+      assertTrue(events.get(1).getBoolean("legal"));
+      assertEquals(1, events.get(1).getInt("historySize"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package leelawatcher.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void testScrape() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter lines = registry.counter("test_lines_total", "Lines.");
+    lines.add(3);
+    assertSame(lines, registry.counter("test_lines_total", "Lines."));
+    long[] depth = {7};
+    registry.gauge("test_depth", "Depth.", () -> depth[0]);
+    LatencyHistogram paint = registry.histogram("test_paint_seconds", "Paint.");
+    paint.record(TimeUnit.MICROSECONDS.toNanos(70));
+    paint.record(TimeUnit.MILLISECONDS.toNanos(3));
+    paint.record(TimeUnit.SECONDS.toNanos(20));
+
+    String text = registry.scrape();
+    assertTrue(text, text.startsWith("# HELP test_lines_total Lines.\n# TYPE test_lines_total counter\n"
+        + "test_lines_total 3\n"));
+    assertTrue(text, text.contains("# TYPE test_depth gauge\ntest_depth 7\n"));
+    assertTrue(text, text.contains("test_paint_seconds_bucket{le=\"5.0E-5\"} 0\n"));
+    assertTrue(text, text.contains("test_paint_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+    assertTrue(text, text.contains("test_paint_seconds_bucket{le=\"0.005\"} 2\n"));
+    assertTrue(text, text.contains("test_paint_seconds_bucket{le=\"10.0\"} 2\n"));
+    assertTrue(text, text.contains("test_paint_seconds_bucket{le=\"+Inf\"} 3\n"));
+    assertTrue(text, text.contains("test_paint_seconds_count 3\n"));
+    assertEquals(TimeUnit.SECONDS.toNanos(20), paint.getMaxNanos());
+
+    depth[0] = 9;
+    registry.gauge("test_depth", "Depth.", () -> -depth[0]);
+    assertTrue(registry.scrape().contains("test_depth -9\n"));
+  }
+
+  @Test
+  public void testQuantiles() {
+    LatencyHistogram latency = new MetricsRegistry().histogram("t_latency_seconds", "Latency.");
+    assertEquals(0, latency.quantileNanos(0.5));
+    for (int i = 0; i < 98; i++) {
+      latency.record(TimeUnit.MICROSECONDS.toNanos(750)); // 500us to 1ms bucket
+    }
+    latency.record(TimeUnit.MILLISECONDS.toNanos(30));
+    latency.record(TimeUnit.MILLISECONDS.toNanos(40));
+    long p50 = latency.getP50Nanos();
+    assertTrue(p50 > 500_000 && p50 <= 1_000_000);
+    long p99 = latency.getP99Nanos();
+    assertTrue(p99 > 25_000_000 && p99 <= 40_000_000);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(40), latency.quantileNanos(1));
+    assertTrue(latency.summary(), latency.summary().endsWith("max 40.0ms"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNameClash() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("test_clash", "A counter.");
+    registry.histogram("test_clash", "Not a counter.");
+  }
+
+  @Test
+  public void testJmxAndHttp() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("test_jmx_total", "Counted.").increment();
+    registry.registerMBeans();
+    Object count = ManagementFactory.getPlatformMBeanServer()
+        .getAttribute(new ObjectName("leelawatcher:type=Counter,name=test_jmx_total"), "Count");
+    assertEquals(1L, count);
+
+    HttpServer server = MetricsExporter.serve(registry, 0);
+    try (InputStream in = new URL("http://localhost:" + server.getAddress().getPort() + "/metrics").openStream()) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      byte[] buf = new byte[1024];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        body.write(buf, 0, n);
+      }
+      assertEquals(registry.scrape(), new String(body.toByteArray(), StandardCharsets.UTF_8));
+    } finally {
+      server.stop(0);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package leelawatcher.openings;
+
+import leelawatcher.goboard.Move;
+import org.junit.Test;
+
+import static leelawatcher.Moves.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OpeningTreeTest {
+
+  @Test
+  public void testSymmetricOpeningsShareCounts() {
+    OpeningTree tree = new OpeningTree(OpeningTree.DEFAULT_DEPTH, false);
+    // the same opening mirrored left to right, then a different second move
+    tree.addGame(new int[]{move(3, 3), move(15, 15)}, 2, Move.MOVE_BLACK);
+    tree.addGame(new int[]{move(15, 3), move(3, 15)}, 2, Move.MOVE_WHITE);
+    tree.addGame(new int[]{move(3, 3), move(16, 15)}, 2, Move.MOVE_WHITE);
+
+    int[] black = new int[19];
+    int[] white = new int[19];
+    OpeningStats start = tree.get(black, white, true);
+    assertEquals(3, start.getVisits());
+
+    OpeningStats[] firstMoves = tree.continuations(black, white, true);
+    assertEquals(3, firstMoves[3 * 19 + 3].getVisits());
+    assertEquals(3, firstMoves[15 * 19 + 15].getVisits());
+    assertNull(firstMoves[9 * 19 + 9]);
+
+    black[3] = 1 << 3;
+    OpeningStats[] replies = tree.continuations(black, white, false);
+    OpeningStats opposite = replies[15 * 19 + 15];
+    assertEquals(2, opposite.getVisits());
+    assertEquals(1, opposite.getBlackWins());
+    assertEquals(1, opposite.getWhiteWins());
+    assertEquals(1, replies[15 * 19 + 16].getVisits());
+    assertEquals(0.5, opposite.getBlackWinRate(), 1e-9);
+  }
+
+  @Test
+  public void testPassesAndDepth() {
+    OpeningTree tree = new OpeningTree(1, false);
+    tree.addGame(new int[]{move(Move.PASS, Move.PASS), move(3, 3)}, 2, Move.EMPTY);
+    // the start and the position after black's pass
+    assertEquals(2, tree.size());
+    assertEquals(1, tree.get(new int[19], new int[19], false).getVisits());
+  }
+
+  @Test
+  public void testTableGrows() {
+    for (boolean direct : new boolean[]{false, true}) {
+      OpeningTable table = new OpeningTable(16, direct);
+      for (long key = 0; key < 1000; key++) {
+        table.add(key * 0x9E3779B97F4A7C15L, 1, 0);
+        table.add(key * 0x9E3779B97F4A7C15L, 0, (int) (key & 1));
+      }
+      assertEquals(1000, table.size());
+      for (long key = 0; key < 1000; key++) {
+        OpeningStats stats = table.get(key * 0x9E3779B97F4A7C15L);
+        assertEquals(2, stats.getVisits());
+        assertEquals(1, stats.getBlackWins());
+        assertEquals(key & 1, stats.getWhiteWins());
+      }
+      assertNull(table.get(42));
+    }
+  }
+
+  @Test
+  public void testWinner() {
+    assertEquals(Move.MOVE_BLACK, OpeningTree.winner("B+R"));
+    assertEquals(Move.MOVE_WHITE, OpeningTree.winner("W+3.5"));
+    assertEquals(Move.EMPTY, OpeningTree.winner("0"));
+    assertEquals(Move.EMPTY, OpeningTree.winner(null));
+  }
+}
@@ -0,0 +1,52 @@
+package leelawatcher.parser;
+
+import leelawatcher.event.GameEventBus;
+import org.junit.Test;
+
+import static leelawatcher.Allocations.allocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Holds {@link AutoGtpOutputParser} to a budget of bytes allocated per line
+ * of autogtp output, including the events it publishes. If a change
+ * legitimately needs more, raise the budget in the same commit and say why.
+ */
+public class AutoGtpOutputParserAllocationTest {
+
+  private static final long BYTES_PER_LINE = 1280;
+
+  private static final String[] COLUMNS = {"A", "C", "D", "K", "Q", "T"};
+
+  private static String[] selfPlayLog(int games) {
+    String[] lines = new String[games * 202];
+    int i = 0;
+    for (int game = 0; game < games; game++) {
+      String seed = Integer.toHexString(0x5eed0000 + game);
+      lines[i++] = "Got new job: selfplay\n";
+      for (int move = 1; move <= 200; move++) {
+        String color = move % 2 == 1 ? "B" : "W";
+        String vertex = move % 50 == 0 ? "pass" : COLUMNS[move % COLUMNS.length] + (move % 19 + 1);
+        lines[i++] = seed + " " + move + " (" + color + " " + vertex + ") 0." + (move % 97) + "\n";
+      }
+      lines[i++] = seed + " Score: W+3.5\n";
+    }
+    return lines;
+  }
+
+  private static long bytesPerLine(String[] lines) {
+    AutoGtpOutputParser parser = new AutoGtpOutputParser(new GameEventBus());
+    long before = allocatedBytes();
+    for (String line : lines) {
+      parser.handleLine(line);
+    }
+    return (allocatedBytes() - before) / lines.length;
+  }
+
+  @Test
+  public void testLineBudget() {
+    String[] lines = selfPlayLog(20);
+    bytesPerLine(lines); // warm up, so class loading and the interpreter don't count
+    long perLine = bytesPerLine(lines);
+    assertTrue(perLine + " bytes per line, budget " + BYTES_PER_LINE, perLine <= BYTES_PER_LINE);
+  }
+}
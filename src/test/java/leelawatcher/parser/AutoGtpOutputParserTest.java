@@ -1,11 +1,29 @@
 package leelawatcher.parser;
 
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEvent;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameEventSink;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.MovePlayed;
 import leelawatcher.goboard.PointOfPlay;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static junit.framework.TestCase.assertNotNull;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class AutoGtpOutputParserTest {
@@ -37,4 +55,157 @@ public class AutoGtpOutputParserTest {
     assertEquals(move.getX(),3);
     assertEquals(move.getY(),2);
   }
+
+  @Test
+  public void testHandleLinePublishesEvents() {
+    GameEventBus bus = new GameEventBus();
+    List<GameEvent> events = new ArrayList<>();
+    bus.subscribe("test", new GameEventSink() {
+      @Override
+      public void gameStarted(GameStarted event) {
+        events.add(event);
+      }
+
+      @Override
+      public void movePlayed(MovePlayed event) {
+        events.add(event);
+      }
+
+      @Override
+      public void gameScored(GameScored event) {
+        events.add(event);
+      }
+    }, Runnable::run);
+    AutoGtpOutputParser parser = new AutoGtpOutputParser(bus);
+    parser.handleLine("Got new job: selfplay\n");
+    parser.handleLine("abc123 1 (B D4) 0.5\n");
+    parser.handleLine("some chatter\n");
+    parser.handleLine("joined 42 (W Q16) 0.5\n");
+    parser.handleLine("abc123 Score: B+R\n");
+
+    assertEquals(3, events.size());
+    GameStarted started = (GameStarted) events.get(0);
+    assertEquals("abc123", started.getSeed());
+    assertEquals("selfplay", started.getGameType());
+    MovePlayed move = (MovePlayed) events.get(1);
+    assertEquals(3, move.getPoint().getX());
+    assertEquals(0.5f, move.getWinRate(), 0f);
+    assertEquals(started.getGameId(), move.getGameId());
+    GameScored scored = (GameScored) events.get(2);
+    assertEquals("B+R", scored.getScore());
+    assertEquals(started.getGameId(), scored.getGameId());
+  }
+
+  @Test
+  public void testSpillKeepsOrder() throws Exception {
+    StringBuilder log = new StringBuilder();
+    int games = 50;
+    for (int g = 0; g < games; g++) {
+      for (int i = 0; i < 20; i++) {
+        log.append("chatter ").append(i).append('\n');
+      }
+      log.append("g").append(g).append(" Score: W+R\n");
+    }
+    OverflowPolicy policy = AutoGtpOutputParser.OVERFLOW_POLICY;
+    int capacity = AutoGtpOutputParser.QUEUE_CAPACITY;
+    AutoGtpOutputParser.OVERFLOW_POLICY = OverflowPolicy.SPILL;
+    AutoGtpOutputParser.QUEUE_CAPACITY = 2;
+    try {
+      GameEventBus bus = new GameEventBus();
+      List<String> results = new ArrayList<>();
+      CountDownLatch done = new CountDownLatch(games);
+      bus.subscribe("test", new GameEventSink() {
+        @Override
+        public void gameScored(GameScored event) {
+          results.add(event.getSeed());
+          done.countDown();
+        }
+      });
+      new AutoGtpOutputParser(bus).start(new ByteArrayInputStream(log.toString().getBytes(StandardCharsets.ISO_8859_1)));
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      for (int g = 0; g < games; g++) {
+        assertEquals("g" + g, results.get(g));
+      }
+    } finally {
+      AutoGtpOutputParser.OVERFLOW_POLICY = policy;
+      AutoGtpOutputParser.QUEUE_CAPACITY = capacity;
+    }
+  }
+
+  @Test
+  public void testSpillsLinesLongerThan64K() throws Exception {
+    StringBuilder log = new StringBuilder();
+    char[] junk = new char[100_000];
+    Arrays.fill(junk, 'x');
+    for (int i = 0; i < 5; i++) {
+      log.append(junk).append('\n');
+    }
+    log.append("g0 Score: W+R\n");
+    OverflowPolicy policy = AutoGtpOutputParser.OVERFLOW_POLICY;
+    int capacity = AutoGtpOutputParser.QUEUE_CAPACITY;
+    AutoGtpOutputParser.OVERFLOW_POLICY = OverflowPolicy.SPILL;
+    AutoGtpOutputParser.QUEUE_CAPACITY = 2;
+    try {
+      GameEventBus bus = new GameEventBus();
+      CountDownLatch done = new CountDownLatch(1);
+      bus.subscribe("test", new GameEventSink() {
+        @Override
+        public void gameScored(GameScored event) {
+          done.countDown();
+        }
+      });
+      AutoGtpOutputParser parser = new AutoGtpOutputParser(bus);
+      parser.start(new ByteArrayInputStream(log.toString().getBytes(StandardCharsets.ISO_8859_1)));
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      AutoGtpOutputParser.OVERFLOW_POLICY = policy;
+      AutoGtpOutputParser.QUEUE_CAPACITY = capacity;
+    }
+  }
+
+  @Test
+  public void testBadLineDoesNotStopParsing() throws Exception {
+    String log = "g0 1 (bogus) 0.5\ng0 Score: W+R\ng1 Score: B+R\n";
+    GameEventBus bus = new GameEventBus();
+    CountDownLatch done = new CountDownLatch(2);
+    bus.subscribe("test", new GameEventSink() {
+      @Override
+      public void gameScored(GameScored event) {
+        done.countDown();
+      }
+    });
+    new AutoGtpOutputParser(bus).start(new ByteArrayInputStream(log.getBytes(StandardCharsets.ISO_8859_1)));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testErrorOnlyAbandonsGamesOfItsStream() {
+    GameEventBus bus = new GameEventBus();
+    List<GameEvent> events = new ArrayList<>();
+    bus.subscribe("test", new GameEventSink() {
+      @Override
+      public void gameStarted(GameStarted event) {
+        events.add(event);
+      }
+
+      @Override
+      public void autogtpError(AutogtpError event) {
+        events.add(event);
+      }
+    }, Runnable::run);
+    AtomicInteger ids = new AtomicInteger();
+    AutoGtpOutputParser first = new AutoGtpOutputParser(bus, ids::getAndIncrement);
+    AutoGtpOutputParser second = new AutoGtpOutputParser(bus, ids::getAndIncrement);
+    first.handleLine("a1 1 (B D4) 0.5\n");
+    second.handleLine("b1 1 (B D4) 0.5\n");
+    first.handleLine("a2 1 (B D4) 0.5\n");
+    first.handleLine("*ERROR*: the engine crashed\n");
+
+    assertEquals(4, events.size());
+    int a1 = ((GameStarted) events.get(0)).getGameId();
+    int a2 = ((GameStarted) events.get(2)).getGameId();
+    int[] abandoned = ((AutogtpError) events.get(3)).getGameIds();
+    Arrays.sort(abandoned);
+    assertArrayEquals(new int[]{a1, a2}, abandoned);
+  }
 }
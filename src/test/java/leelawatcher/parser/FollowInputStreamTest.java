@@ -0,0 +1,88 @@
+package leelawatcher.parser;
+
+import leelawatcher.TempDirs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FollowInputStreamTest {
+
+  private Path dir;
+  private Path log;
+  private ExecutorService reader;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("follow");
+    log = dir.resolve("autogtp.log");
+    Files.write(log, bytes("written before we started\n"));
+    reader = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    reader.shutdownNow();
+    TempDirs.delete(dir);
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private String readLine(InputStream in) throws Exception {
+    Future<String> line = reader.submit(() -> {
+      StringBuilder sb = new StringBuilder();
+      int c;
+      while ((c = in.read()) != '\n') {
+        sb.append((char) c);
+      }
+      return sb.toString();
+    });
+    return line.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testFollowsAppendsTruncationAndRotation() throws Exception {
+    try (InputStream in = new FollowInputStream(log)) {
+      Files.write(log, bytes("appended\n"), StandardOpenOption.APPEND);
+      assertEquals("appended", readLine(in));
+
+      Files.write(log, bytes("short\n"), StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals("short", readLine(in));
+
+      Files.write(log, bytes("last words\n"), StandardOpenOption.APPEND);
+      Files.move(log, dir.resolve("autogtp.log.1"), StandardCopyOption.ATOMIC_MOVE);
+      Files.write(log, bytes("rotated\n"));
+      assertEquals("last words", readLine(in));
+      assertEquals("rotated", readLine(in));
+    }
+  }
+
+  @Test
+  public void testNoticesRewriteLongerThanWhatWasRead() throws Exception {
+    try (InputStream in = new FollowInputStream(log)) {
+      Files.write(log, bytes("appended\n"), StandardOpenOption.APPEND);
+      assertEquals("appended", readLine(in));
+
+      // truncated in place (same inode) and written past the old offset
+      // before the reader looks again
+      Files.write(log, bytes("a new run of autogtp that wrote a lot at once\n"),
+          StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals("a new run of autogtp that wrote a lot at once", readLine(in));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package leelawatcher.parser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayInputStreamTest {
+
+  private static final String LOG = "Got new job: selfplay\n"
+      + "1 game(s) (1 self-play and 0 validation) played in 0 minutes 1 seconds = 1 seconds/game, 20 ms/move\n"
+      + "abc123 1 (B D4) 0.5\n"
+      + "abc123 2 (W Q16) 0.5\n"
+      + "abc123 3 (B Q4) 0.5\n"
+      + "abc123 Score: B+R\n";
+
+  private static final String INTERLEAVED = "Got new job: selfplay\n"
+      + "1 game(s) (1 self-play and 0 validation) played in 0 minutes 1 seconds = 1 seconds/game, 200 ms/move\n"
+      + "abc123 1 (B D4) 0.5\n"
+      + "def456 1 (B D4) 0.5\n"
+      + "abc123 2 (W Q16) 0.5\n"
+      + "def456 2 (W Q16) 0.5\n"
+      + "abc123 Score: B+R\n"
+      + "def456 Score: B+R\n";
+
+  private static Path writeLog() throws IOException {
+    return writeLog(LOG);
+  }
+
+  private static Path writeLog(String text) throws IOException {
+    Path log = Files.createTempFile("replay", ".log");
+    log.toFile().deleteOnExit();
+    Files.write(log, text.getBytes(StandardCharsets.ISO_8859_1));
+    return log;
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[7];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void testMaxSpeedReadsEverything() throws IOException {
+    try (InputStream in = new ReplayInputStream(writeLog(), ReplayInputStream.parseSpeed("max"))) {
+      assertEquals(LOG, readAll(in));
+    }
+  }
+
+  @Test
+  public void testPacedByRecordedMsPerMove() throws IOException {
+    long start = System.nanoTime();
+    try (InputStream in = new ReplayInputStream(writeLog(), 1)) {
+      assertEquals(LOG, readAll(in));
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // three moves at 20ms each, the score line waits for the last one
+    assertTrue("took " + elapsed + "ms", elapsed >= 60);
+  }
+
+  @Test
+  public void testInterleavedGamesShareTheTimePerMove() throws IOException {
+    long start = System.nanoTime();
+    try (InputStream in = new ReplayInputStream(writeLog(INTERLEAVED), 1)) {
+      assertEquals(INTERLEAVED, readAll(in));
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // 200ms alone, then three moves at 100ms each once both games are going
+    assertTrue("took " + elapsed + "ms", elapsed >= 500);
+    assertTrue("took " + elapsed + "ms", elapsed < 800);
+  }
+}
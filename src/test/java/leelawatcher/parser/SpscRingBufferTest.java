@@ -0,0 +1,49 @@
+package leelawatcher.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpscRingBufferTest {
+
+  @Test
+  public void testCapacityRoundsUpAndFills() {
+    SpscRingBuffer<Integer> ring = new SpscRingBuffer<>(3);
+    assertEquals(4, ring.capacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+    assertFalse(ring.offer(4));
+    assertEquals(4, ring.highWaterMark());
+    assertEquals(Integer.valueOf(0), ring.poll());
+    assertTrue(ring.offer(4));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals(Integer.valueOf(i), ring.poll());
+    }
+    assertNull(ring.poll());
+  }
+
+  @Test
+  public void testHandsOverInOrderBetweenThreads() throws Exception {
+    SpscRingBuffer<Integer> ring = new SpscRingBuffer<>(16);
+    int count = 50_000;
+    Thread producer = new Thread(() -> {
+      try {
+        for (int i = 0; i < count; i++) {
+          ring.put(i);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, ring.take().intValue());
+    }
+    producer.join();
+    assertEquals(0, ring.size());
+  }
+}
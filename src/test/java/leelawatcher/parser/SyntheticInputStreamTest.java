@@ -0,0 +1,81 @@
+package leelawatcher.parser;
+
+import leelawatcher.event.AutogtpError;
+import leelawatcher.event.GameEventBus;
+import leelawatcher.event.GameEventSink;
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.MovePlayed;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticInputStreamTest {
+
+  @Test
+  public void testGamesAreLegalAndInterleaved() throws IOException {
+    Map<Integer, Board> boards = new HashMap<>();
+    int[] counts = new int[3]; // started, scored, abandoned
+    GameEventBus bus = new GameEventBus();
+    bus.subscribe("check", new GameEventSink() {
+      @Override
+      public void gameStarted(GameStarted event) {
+        counts[0]++;
+        boards.put(event.getGameId(), new Board());
+      }
+
+      @Override
+      public void movePlayed(MovePlayed event) {
+        Board board = boards.get(event.getGameId());
+        assertEquals(board.getMoveCount() + 1, event.getMoveNum());
+        try {
+          if (event.getPoint() == null) {
+            board.doMove(Move.PASS, Move.PASS);
+          } else {
+            board.doMove(event.getPoint().getX(), event.getPoint().getY());
+          }
+        } catch (IllegalMoveException e) {
+          throw new AssertionError("illegal move " + event.getPoint() + " in " + event.getSeed(), e);
+        }
+      }
+
+      @Override
+      public void gameScored(GameScored event) {
+        counts[1]++;
+        assertTrue(boards.remove(event.getGameId()) != null);
+      }
+
+      @Override
+      public void autogtpError(AutogtpError event) {
+        counts[2] += boards.size();
+        boards.clear();
+      }
+    }, Runnable::run);
+
+    AutoGtpOutputParser parser = new AutoGtpOutputParser(bus);
+    int maxInFlight = 0;
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(
+        new SyntheticInputStream(5, Double.POSITIVE_INFINITY, 30, 7), StandardCharsets.ISO_8859_1))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        parser.handleLine(line + "\n");
+        maxInFlight = Math.max(maxInFlight, boards.size());
+      }
+    }
+    assertEquals(30, counts[1]);
+    assertEquals(counts[0], counts[1] + counts[2]);
+    assertTrue(boards.isEmpty());
+    assertEquals(5, maxInFlight);
+  }
+}
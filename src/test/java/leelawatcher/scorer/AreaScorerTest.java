@@ -0,0 +1,53 @@
+package leelawatcher.scorer;
+
+import leelawatcher.goboard.Bitboard;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AreaScorerTest {
+
+  @Test
+  public void testWallsAndDame() {
+    int[] black = new int[Bitboard.SIZE];
+    int[] white = new int[Bitboard.SIZE];
+    for (int y = 0; y < Bitboard.SIZE; y++) {
+      black[y] = 1 << 8;
+      white[y] = 1 << 10;
+    }
+    // column 9 touches both walls so belongs to nobody
+    AreaScorer scorer = new AreaScorer();
+    float margin = scorer.score(black, white, 7.5f);
+    assertEquals(9 * 19, scorer.getBlackArea());
+    assertEquals(9 * 19, scorer.getWhiteArea());
+    assertEquals(-7.5f, margin, 0);
+
+    // a white stone inside black's area makes that region neutral too
+    black[0] = 1 << 8;
+    white[0] = 1 << 10 | 1;
+    scorer.score(black, white, 7.5f);
+    assertEquals(19, scorer.getBlackArea());
+    assertEquals(9 * 19 + 1, scorer.getWhiteArea());
+  }
+
+  @Test
+  public void testEmptyBoard() {
+    AreaScorer scorer = new AreaScorer();
+    assertEquals(-7.5f, scorer.score(new int[19], new int[19], 7.5f), 0);
+    assertEquals(0, scorer.getBlackArea() + scorer.getWhiteArea());
+  }
+
+  @Test
+  public void testResults() {
+    assertEquals("B+3.5", AreaScorer.result(3.5f));
+    assertEquals("W+12", AreaScorer.result(-12));
+    assertEquals("0", AreaScorer.result(0));
+    assertEquals(3.5f, AreaScorer.margin("B+3.5"), 0);
+    assertEquals(-0.5f, AreaScorer.margin("W+0.5"), 0);
+    assertEquals(0, AreaScorer.margin("Draw"), 0);
+    assertTrue(Float.isNaN(AreaScorer.margin("W+R")));
+    assertTrue(Float.isNaN(AreaScorer.margin("B+Resign")));
+    assertTrue(Float.isNaN(AreaScorer.margin("?")));
+  }
+}
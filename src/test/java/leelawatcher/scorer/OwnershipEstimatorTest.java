@@ -0,0 +1,33 @@
+package leelawatcher.scorer;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OwnershipEstimatorTest {
+
+  @Test
+  public void testDeadStoneInsideLivingGroup() {
+    // black fills the board but for two eyes in the corner and a space
+    // around a lone white stone
+    int[] black = new int[19];
+    int[] white = new int[19];
+    for (int y = 0; y < 19; y++) {
+      black[y] = (1 << 19) - 1;
+    }
+    black[0] &= ~(1 | 1 << 2);
+    black[5] &= ~(1 << 4 | 1 << 5 | 1 << 6);
+    white[5] = 1 << 5;
+
+    OwnershipEstimator estimator = new OwnershipEstimator(ForkJoinPool.commonPool());
+    float[] ownership = estimator.estimate(black, white, false, 256);
+    assertEquals(1, ownership[10 * 19 + 10], 0);
+    assertEquals(1, ownership[0], 0);
+    assertTrue("white stone owned " + ownership[5 * 19 + 5], ownership[5 * 19 + 5] > 0.9);
+    assertArrayEquals(ownership, estimator.estimate(black, white, false, 256), 0);
+  }
+}
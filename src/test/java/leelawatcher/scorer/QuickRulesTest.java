@@ -3,6 +3,7 @@ package leelawatcher.scorer;
 import leelawatcher.goboard.Board;
 import leelawatcher.goboard.IllegalMoveException;
 import leelawatcher.goboard.Move;
+import leelawatcher.goboard.MoveResult;
 import leelawatcher.goboard.PointOfPlay;
 import org.junit.Test;
 
@@ -11,6 +12,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
@@ -111,4 +113,75 @@ public class QuickRulesTest {
     assertTrue(issue4.getCurrPos().colorAt(1,1) == Move.MOVE_BLACK);
     assertTrue(issue4.getCurrPos().colorAt(1,0) == Move.MOVE_BLACK);
   }
+
+  @Test
+  public void testKo() throws IllegalMoveException {
+    Board ko = new Board();
+
+    /* Setting up this (black will play lower case letter):
+    . B W .
+    B W b W
+    . B W .
+
+     */
+    List<PointOfPlay> white = new ArrayList<>();
+    List<PointOfPlay> black = new ArrayList<>();
+
+    white.add(new PointOfPlay(2,2));
+    white.add(new PointOfPlay(1,1));
+    white.add(new PointOfPlay(3,1));
+    white.add(new PointOfPlay(2,0));
+
+    black.add(new PointOfPlay(1,2));
+    black.add(new PointOfPlay(0,1));
+    black.add(new PointOfPlay(1,0));
+
+    ko.setUp(white, black, Collections.emptyList(), true);
+
+    MoveResult result = new MoveResult();
+    assertTrue(new QuickRules().evaluate(2, 1, ko, result));
+    assertEquals(1, result.getCapturedCount());
+    assertTrue(result.isCaptured(1, 1));
+    assertEquals(1, result.getLiberties());
+    assertEquals(1 * 19 + 1, result.getKoPoint());
+
+    ko.doMove(2, 1);
+    assertFalse(ko.getCurrPos().stoneAt(1, 1));
+    assertEquals(1, ko.getBlackHasCap());
+    try {
+      ko.doMove(1, 1);
+      fail("Retaking the ko at once should be illegal\n" + ko.getCurrPos());
+    } catch (IllegalMoveException e) {
+      // success
+    }
+    assertFalse(new QuickRules().evaluate(1, 1, ko, result));
+    assertEquals(MoveResult.Status.KO, result.getStatus());
+
+    ko.doMove(10, 10);
+    ko.doMove(11, 11);
+    ko.doMove(1, 1);
+    assertFalse(ko.getCurrPos().stoneAt(2, 1));
+  }
+
+  @Test
+  public void testKoAfterTrustedReplay() throws IllegalMoveException {
+    Board ko = new Board();
+    // the shape from testKo, built from moves so the capture is replayed
+    ko.setTrusted(true);
+    ko.doMove(1, 2);
+    ko.doMove(2, 2);
+    ko.doMove(0, 1);
+    ko.doMove(1, 1);
+    ko.doMove(1, 0);
+    ko.doMove(3, 1);
+    ko.doMove(10, 10);
+    ko.doMove(2, 0);
+    ko.doMove(2, 1);
+    ko.setTrusted(false);
+    assertFalse(ko.getCurrPos().stoneAt(1, 1));
+
+    MoveResult result = new MoveResult();
+    result.analyze(ko.getCurrPos(), 1, 1, false);
+    assertEquals(MoveResult.Status.KO, result.getStatus());
+  }
 }
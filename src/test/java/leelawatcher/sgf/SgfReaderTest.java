@@ -0,0 +1,75 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.Move;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SgfReaderTest {
+
+  @Test
+  public void testReadsWhatIsWritten() throws IOException {
+    Game gm = new Game("White", "Black", 0, 5.5f);
+    Random random = new Random(46);
+    List<int[]> played = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      int[] move = i % 50 == 49 ? new int[]{Move.PASS, Move.PASS} : new int[]{random.nextInt(19), random.nextInt(19)};
+      gm.play(move[0], move[1]);
+      played.add(move);
+    }
+    gm.setGameResult("W+R");
+    String sgf = new SGFbuilder().buildSGF(gm);
+
+    SgfReader reader = new SgfReader(new StringReader(sgf + sgf));
+    for (int game = 0; game < 2; game++) {
+      assertTrue(reader.next());
+      assertEquals("W+R", reader.getResult());
+      assertEquals(5.5f, reader.getKomi(), 0);
+      assertEquals(played.size(), reader.getMoveCount());
+      for (int i = 0; i < played.size(); i++) {
+        assertEquals(i % 2 == 1, reader.isWhite(i));
+        assertEquals(played.get(i)[0], reader.getX(i));
+        assertEquals(played.get(i)[1], reader.getY(i));
+      }
+    }
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testMainLineOnly() throws IOException {
+    SgfReader reader = new SgfReader(new StringReader(
+        "(;KM[7.5]RE[B+0.5];B[aa](;W[bb];B[cc](;W[dd])(;W[ee]))(;W[ff]))"));
+    assertTrue(reader.next());
+    assertEquals(4, reader.getMoveCount());
+    assertEquals(3, reader.getX(3)); // dd
+    assertEquals(15, reader.getY(3));
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testArchiveScorer() throws IOException {
+    // black walls off the left side, the right side touches both colors
+    StringBuilder sgf = new StringBuilder("(;KM[7.5]RE[W+26.5]");
+    for (int row = 0; row < 19; row++) {
+      char r = (char) ('a' + row);
+      sgf.append(";B[i").append(r).append("];W[j").append(r).append(']');
+    }
+    sgf.append(")");
+    List<String> reports = new ArrayList<>();
+    ArchiveScorer archive = new ArchiveScorer(reports::add);
+    archive.score("test", new SgfReader(new StringReader(sgf.toString() + sgf.toString().replace("W+26.5", "B+1"))));
+    // black 9 columns, white 10, komi 7.5
+    assertEquals(2, archive.getChecked());
+    assertEquals(1, archive.getDisagreements());
+    assertEquals(reports.toString(), "[test game 2 reported B+1 but scores W+26.5]", reports.toString());
+  }
+}
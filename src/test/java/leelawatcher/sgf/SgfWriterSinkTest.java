@@ -0,0 +1,51 @@
+package leelawatcher.sgf;
+
+import leelawatcher.event.GameScored;
+import leelawatcher.event.GameStarted;
+import leelawatcher.event.MovePlayed;
+import leelawatcher.goboard.PointOfPlay;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SgfWriterSinkTest {
+
+  @Test
+  public void testSavedGamesScoreAsReported() throws IOException {
+    Path dir = Files.createTempDirectory("sgf");
+    List<Path> files = new ArrayList<>();
+    try {
+      // black walls off the left side, the right side touches both colors
+      SgfWriterSink sink = new SgfWriterSink(dir.toFile());
+      sink.gameStarted(new GameStarted(0, "seed", "selfplay", false));
+      int moveNum = 1;
+      for (int y = 0; y < 19; y++) {
+        sink.movePlayed(new MovePlayed(0, "seed", moveNum++, new PointOfPlay(8, y), 0.5f, false));
+        sink.movePlayed(new MovePlayed(0, "seed", moveNum++, new PointOfPlay(9, y), 0.5f, false));
+      }
+      sink.gameScored(new GameScored(0, "seed", "W+26.5", false));
+      try (DirectoryStream<Path> saved = Files.newDirectoryStream(dir)) {
+        saved.forEach(files::add);
+      }
+      assertEquals(1, files.size());
+
+      List<String> reports = new ArrayList<>();
+      ArchiveScorer archive = new ArchiveScorer(reports::add);
+      archive.scoreFiles(files);
+      assertEquals(reports.toString(), 1, archive.getChecked());
+      assertEquals(reports.toString(), 0, archive.getDisagreements());
+    } finally {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+      Files.delete(dir);
+    }
+  }
+}